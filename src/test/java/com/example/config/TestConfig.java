@@ -23,7 +23,7 @@ public class TestConfig {
         return builder.build();
     }
 
-    private static boolean isLocalMock(String url) {
+    public static boolean isLocalMock(String url) {
         if (url == null) return false;
         String u = url.toLowerCase();
         return u.startsWith("http://localhost") || u.startsWith("http://127.0.0.1");
@@ -13,6 +13,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 /**
  * Minimal embedded HTTP server to emulate WeatherAPI for demo runs (@api tests).
@@ -28,11 +29,19 @@ public class WeatherApiMockServer {
     private int port;
 
     public void start(int port) {
+        start(port, null, 0);
+    }
+
+    /**
+     * Start with a custom request executor (null = the server's single dispatcher thread) and
+     * accept backlog (0 = system default), e.g. a virtual-thread executor for high-concurrency runs.
+     */
+    public void start(int port, Executor executor, int backlog) {
         try {
-            server = HttpServer.create(new InetSocketAddress(port), 0);
+            server = HttpServer.create(new InetSocketAddress(port), backlog);
             server.createContext("/current.json", new CurrentHandler());
             server.createContext("/forecast.json", new ForecastHandler());
-            server.setExecutor(null);
+            server.setExecutor(executor);
             server.start();
             this.port = ((InetSocketAddress) server.getAddress()).getPort();
             System.out.println("[WeatherApiMock] Started at " + baseUrl());
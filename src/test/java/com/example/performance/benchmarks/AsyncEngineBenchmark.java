@@ -0,0 +1,112 @@
+package com.example.performance.benchmarks;
+
+import com.example.mock.WeatherApiMockServer;
+import com.example.performance.utils.AsyncLoadEngine;
+import com.example.performance.utils.LoadGenerator;
+import com.example.performance.utils.PerformanceMetricsCollector;
+
+import java.net.URI;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static io.restassured.RestAssured.given;
+
+/**
+ * Async Engine Benchmark
+ *
+ * Closed-loop throughput against the local {@link WeatherApiMockServer} at the same concurrency:
+ *  - restassured: {@link LoadGenerator} threads, each looping blocking RestAssured calls
+ *  - async:       {@link AsyncLoadEngine}, the same number of requests kept outstanding on a
+ *                 few I/O threads
+ * The client and the mock share the machine, so results depend on the core count.
+ *
+ * Run with:
+ *   java -cp target/test-classes:... com.example.performance.benchmarks.AsyncEngineBenchmark
+ * Tune with -Dbench.concurrency=16,64,256 -Dbench.seconds=10 -Dbench.connections=64
+ */
+public class AsyncEngineBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        String concurrencyList = System.getProperty("bench.concurrency", "16,64,256");
+        int seconds = Integer.getInteger("bench.seconds", 10);
+        int connections = Integer.getInteger("bench.connections", 64);
+
+        // The JDK server writes headers and body separately; without TCP_NODELAY every keep-alive
+        // response waits for the client's delayed ACK (~40 ms). Above maxIdleConnections (200) it
+        // closes each connection after its response, and RestAssured leaves many idle ones behind.
+        // Both must be set before the server starts.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        System.setProperty("sun.net.httpserver.maxIdleConnections", "100000");
+        WeatherApiMockServer mock = new WeatherApiMockServer();
+        mock.start(0, Executors.newVirtualThreadPerTaskExecutor(), 8192);
+        String baseUrl = mock.baseUrl();
+        URI uri = URI.create(baseUrl + "/current.json?q=London");
+
+        System.out.println("=== Async Engine Benchmark ===");
+        System.out.printf(Locale.ROOT, "%d s per run, %d pooled connections (async), %d cores%n%n",
+                seconds, connections, Runtime.getRuntime().availableProcessors());
+        System.out.printf(Locale.ROOT, "%-12s %11s %10s %12s %10s %10s %8s%n",
+                "engine", "concurrency", "requests", "req/s", "p50 ms", "p99 ms", "errors");
+
+        try (AsyncLoadEngine engine = new AsyncLoadEngine(connections, 4096)) {
+            engine.start();
+            // Warm-up so class loading, JIT and connection setup do not count against the first run
+            runRestAssured(baseUrl, 8, 2);
+            runAsync(engine, uri, 8, 2);
+
+            for (String c : concurrencyList.split(",")) {
+                int concurrency = Integer.parseInt(c.trim());
+                print("restassured", concurrency, runRestAssured(baseUrl, concurrency, seconds));
+                print("async", concurrency, runAsync(engine, uri, concurrency, seconds));
+            }
+        } finally {
+            mock.stop();
+        }
+    }
+
+    private static PerformanceMetricsCollector.PerformanceReport runRestAssured(String baseUrl, int concurrency,
+                                                                                 int seconds) throws InterruptedException {
+        PerformanceMetricsCollector metrics = PerformanceMetricsCollector.histogram("restassured", 2);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        CountDownLatch done = new CountDownLatch(concurrency);
+        LoadGenerator generator = new LoadGenerator(concurrency, LoadGenerator.ThreadMode.PLATFORM);
+        generator.start();
+        for (int i = 0; i < concurrency; i++) {
+            generator.execute(() -> {
+                try {
+                    while (System.nanoTime() - deadline < 0) {
+                        long start = System.nanoTime();
+                        try {
+                            metrics.timed(() -> given()
+                                    .baseUri(baseUrl)
+                                    .queryParam("q", "London")
+                                    .get("/current.json"));
+                        } catch (Exception e) {
+                            // Recorded as status 0, as the async engine does for failed exchanges
+                            metrics.recordDurationNanos(System.nanoTime() - start, 0);
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        generator.shutdown();
+        return metrics.getReport();
+    }
+
+    private static PerformanceMetricsCollector.PerformanceReport runAsync(AsyncLoadEngine engine, URI uri,
+                                                                           int concurrency, int seconds) throws InterruptedException {
+        PerformanceMetricsCollector metrics = PerformanceMetricsCollector.histogram("async", 2);
+        engine.runClosedLoop(() -> uri, concurrency, seconds, TimeUnit.SECONDS, metrics);
+        return metrics.getReport();
+    }
+
+    private static void print(String engine, int concurrency, PerformanceMetricsCollector.PerformanceReport r) {
+        System.out.printf(Locale.ROOT, "%-12s %11d %10d %12.1f %10.3f %10.3f %8d%n",
+                engine, concurrency, r.totalRequests, r.throughput, r.medianResponseTime, r.p99ResponseTime, r.errorCount);
+    }
+}
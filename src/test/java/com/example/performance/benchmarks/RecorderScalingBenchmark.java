@@ -0,0 +1,98 @@
+package com.example.performance.benchmarks;
+
+import com.example.performance.utils.LatencyHistogram;
+import com.example.performance.utils.StripedLatencyRecorder;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Recorder Scaling Benchmark
+ *
+ * Measures how sample-recording throughput scales with the number of load threads for:
+ *  - queue:   one shared ConcurrentLinkedQueue of boxed samples (raw collector mode)
+ *  - shared:  one shared LatencyHistogram
+ *  - striped: StripedLatencyRecorder (histogram collector mode)
+ *
+ * Run with:
+ *   java -cp target/test-classes:... com.example.performance.benchmarks.RecorderScalingBenchmark
+ * Tune with -Dbench.ops=4000000 (total samples per run) and -Dbench.threads=1,2,4,8,16,32,64,128
+ */
+public class RecorderScalingBenchmark {
+
+    private static final long MAX_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    public static void main(String[] args) throws InterruptedException {
+        int totalOps = Integer.getInteger("bench.ops", 4_000_000);
+        String threadList = System.getProperty("bench.threads", "1,2,4,8,16,32,64,128");
+
+        System.out.println("=== Recorder Scaling Benchmark ===");
+        System.out.printf(Locale.ROOT, "%d samples per run, %d cores%n%n", totalOps, Runtime.getRuntime().availableProcessors());
+        System.out.printf(Locale.ROOT, "%8s %16s %16s %16s%n", "threads", "queue ops/s", "shared ops/s", "striped ops/s");
+
+        // Warm-up so the JIT has compiled every record path before measuring
+        for (String strategy : new String[]{"queue", "shared", "striped"}) {
+            run(recorderFor(strategy), 4, totalOps / 4);
+        }
+
+        for (String t : threadList.split(",")) {
+            int threads = Integer.parseInt(t.trim());
+            double queue = run(recorderFor("queue"), threads, totalOps);
+            double shared = run(recorderFor("shared"), threads, totalOps);
+            double striped = run(recorderFor("striped"), threads, totalOps);
+            System.out.printf(Locale.ROOT, "%8d %16.0f %16.0f %16.0f%n", threads, queue, shared, striped);
+        }
+    }
+
+    private static Supplier<LongConsumer> recorderFor(String strategy) {
+        switch (strategy) {
+            case "queue":
+                return () -> {
+                    ConcurrentLinkedQueue<Long> queue = new ConcurrentLinkedQueue<>();
+                    return queue::add;
+                };
+            case "shared":
+                return () -> new LatencyHistogram(MAX_MICROS, 2)::record;
+            default:
+                return () -> new StripedLatencyRecorder(MAX_MICROS, 2)::record;
+        }
+    }
+
+    /** @return samples recorded per second across all threads */
+    private static double run(Supplier<LongConsumer> factory, int threads, int totalOps) throws InterruptedException {
+        LongConsumer recorder = factory.get();
+        int perThread = Math.max(1, totalOps / threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+
+        for (int i = 0; i < threads; i++) {
+            final long seed = i + 1;
+            Thread worker = new Thread(() -> {
+                long x = seed;
+                try {
+                    start.await();
+                    for (int op = 0; op < perThread; op++) {
+                        // xorshift: cheap pseudo-random latencies between 0 and ~65 ms
+                        x ^= x << 13; x ^= x >>> 7; x ^= x << 17;
+                        recorder.accept(x & 0xFFFF);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+            worker.start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+        return (perThread * (double) threads) / (elapsed / 1_000_000_000.0);
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.performance.benchmarks;
+
+import com.example.config.TestConfig;
+import com.example.mock.WeatherApiMockServer;
+import com.example.performance.utils.PerformanceMetricsCollector;
+import com.example.performance.utils.RequestTemplate;
+import com.example.util.ConfigurationReader;
+import io.restassured.response.Response;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+
+import static io.restassured.RestAssured.given;
+
+/**
+ * Request Template Benchmark
+ *
+ * Per-request client cost of the same current-weather GET built two ways:
+ *  - baseSpec: {@code given().spec(TestConfig.baseSpec()).queryParam("q", city)}, as the
+ *              performance tests did per call
+ *  - template: a {@link RequestTemplate} created once, so only the city is encoded per call
+ * First without I/O (preparing the request only, plus {@link RequestTemplate#uri} as used with the
+ * async engine), then end to end against the local {@link WeatherApiMockServer} from one thread,
+ * where every microsecond of client work shows up in the latency. Allocation is measured on the
+ * calling thread only, so the mock's own allocation is not included.
+ *
+ * The mock runs on localhost, so neither variant adds the API key. Run with
+ * -Dbench.host=127.0.0.2 (Linux) to have both treat it as a remote host and add the key.
+ *
+ * Run with:
+ *   java -cp target/test-classes:... com.example.performance.benchmarks.RequestTemplateBenchmark
+ * Tune with -Dbench.ops=200000 (preparations per variant) -Dbench.seconds=10 -Dbench.host=localhost
+ */
+public class RequestTemplateBenchmark {
+
+    private static final String[] CITIES = {"London", "New York", "Tokyo", "Paris", "Sydney", "Berlin", "Mumbai", "Toronto"};
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /** Keeps the prepared requests observable so the JIT cannot drop the work */
+    private static long sink;
+
+    public static void main(String[] args) throws Exception {
+        int ops = Integer.getInteger("bench.ops", 200_000);
+        int seconds = Integer.getInteger("bench.seconds", 10);
+        String host = System.getProperty("bench.host", "localhost");
+
+        // See AsyncEngineBenchmark: both must be set before the server starts
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        System.setProperty("sun.net.httpserver.maxIdleConnections", "100000");
+        WeatherApiMockServer mock = new WeatherApiMockServer();
+        mock.start(0, Executors.newVirtualThreadPerTaskExecutor(), 8192);
+        // TestConfig reads these once, when the class is first used, which is below; so look up
+        // the key the way it does instead of asking TestConfig, or the fallback would come too late
+        System.setProperty("weather_api_base_url", mock.baseUrl().replace("localhost", host));
+        String key = System.getProperty("WEATHER_API_KEY",
+                System.getenv().getOrDefault("WEATHER_API_KEY", ConfigurationReader.get("WEATHER_API_KEY")));
+        if (key == null || key.isBlank()) {
+            System.setProperty("WEATHER_API_KEY", "benchmark-key");
+        }
+        RequestTemplate current = RequestTemplate.weatherApi("/current.json?q={city}");
+
+        System.out.println("=== Request Template Benchmark ===");
+        System.out.printf(Locale.ROOT, "%s, %d cores%n%n", current, Runtime.getRuntime().availableProcessors());
+
+        try {
+            IntFunction<Object> baseSpec = i -> given().spec(TestConfig.baseSpec()).queryParam("q", CITIES[i & 7]);
+            IntFunction<Object> template = i -> {
+                sink += current.expand(CITIES[i & 7]).length();
+                return given().spec(current.spec());
+            };
+            IntFunction<Object> uri = i -> current.uri(CITIES[i & 7]);
+
+            System.out.printf(Locale.ROOT, "Prepare only, %d requests per variant%n", ops);
+            System.out.printf(Locale.ROOT, "%-10s %12s %14s%n", "variant", "ns/req", "bytes/req");
+            // Warm-up so the JIT has compiled both paths before measuring
+            for (int round = 0; round < 3; round++) {
+                prepare(baseSpec, ops / 4);
+                prepare(template, ops / 4);
+                prepare(uri, ops / 4);
+            }
+            printPrepare("baseSpec", prepare(baseSpec, ops), ops);
+            printPrepare("template", prepare(template, ops), ops);
+            printPrepare("uri", prepare(uri, ops), ops);
+
+            System.out.printf(Locale.ROOT, "%nEnd to end, one thread, %d s per variant%n", seconds);
+            System.out.printf(Locale.ROOT, "%-10s %10s %12s %10s %10s %14s %8s%n",
+                    "variant", "requests", "req/s", "p50 ms", "p99 ms", "bytes/req", "errors");
+            IntFunction<Response> sendBaseSpec = i -> given().spec(TestConfig.baseSpec())
+                    .queryParam("q", CITIES[i & 7])
+                    .get("/current.json");
+            IntFunction<Response> sendTemplate = i -> current.get(CITIES[i & 7]);
+            send("baseSpec", sendBaseSpec, 2);
+            send("template", sendTemplate, 2);
+            printSend("baseSpec", send("baseSpec", sendBaseSpec, seconds));
+            printSend("template", send("template", sendTemplate, seconds));
+        } finally {
+            mock.stop();
+        }
+    }
+
+    /** Returns {nanos, allocated bytes} for {@code ops} preparations. */
+    private static long[] prepare(IntFunction<Object> variant, int ops) {
+        long bytes = THREADS.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        long h = 0;
+        for (int i = 0; i < ops; i++) {
+            h += variant.apply(i).hashCode();
+        }
+        long nanos = System.nanoTime() - start;
+        sink += h;
+        return new long[]{nanos, THREADS.getCurrentThreadAllocatedBytes() - bytes};
+    }
+
+    private static Result send(String name, IntFunction<Response> variant, int seconds) {
+        PerformanceMetricsCollector metrics = PerformanceMetricsCollector.histogram(name, 2);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        long bytes = THREADS.getCurrentThreadAllocatedBytes();
+        for (int i = 0; System.nanoTime() - deadline < 0; i++) {
+            final int n = i;
+            long start = System.nanoTime();
+            try {
+                metrics.timed(() -> variant.apply(n));
+            } catch (Exception e) {
+                metrics.recordDurationNanos(System.nanoTime() - start, 0);
+            }
+        }
+        return new Result(metrics.getReport(), THREADS.getCurrentThreadAllocatedBytes() - bytes);
+    }
+
+    private static final class Result {
+        final PerformanceMetricsCollector.PerformanceReport report;
+        final long allocatedBytes;
+
+        Result(PerformanceMetricsCollector.PerformanceReport report, long allocatedBytes) {
+            this.report = report;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+
+    private static void printPrepare(String variant, long[] result, int ops) {
+        System.out.printf(Locale.ROOT, "%-10s %12.1f %14d%n", variant, (double) result[0] / ops, result[1] / ops);
+    }
+
+    private static void printSend(String variant, Result result) {
+        PerformanceMetricsCollector.PerformanceReport r = result.report;
+        System.out.printf(Locale.ROOT, "%-10s %10d %12.1f %10.3f %10.3f %14d %8d%n",
+                variant, r.totalRequests, r.throughput, r.medianResponseTime, r.p99ResponseTime,
+                result.allocatedBytes / Math.max(1, r.totalRequests), r.errorCount);
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.performance.benchmarks;
+
+import com.example.mock.WeatherApiMockServer;
+import com.example.performance.utils.LoadGenerator;
+import com.example.performance.utils.PerformanceMetricsCollector;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static io.restassured.RestAssured.given;
+
+/**
+ * Virtual Thread Load Benchmark
+ *
+ * Runs the same closed-model workload through {@link LoadGenerator} in platform and virtual thread
+ * mode against the local {@link WeatherApiMockServer}, stepping up the number of virtual users
+ * (VUs). Every VU holds its thread for the whole run: request, think time, request, ...
+ *
+ * For each level it reports throughput, p99, error rate, peak live platform threads and resident
+ * memory growth per VU, then the highest level each mode sustained (all VUs finished in time with
+ * at most 1% errors).
+ *
+ * Run with:
+ *   java -cp target/test-classes:... com.example.performance.benchmarks.VirtualThreadLoadBenchmark
+ * Tune with -Dbench.vus=100,500,1000,2000,5000 -Dbench.requestsPerVu=5 -Dbench.thinkMs=200
+ *           -Dbench.timeoutSec=300
+ */
+public class VirtualThreadLoadBenchmark {
+
+    private static final double MAX_ERROR_RATE = 1.0;
+
+    public static void main(String[] args) throws Exception {
+        String vuList = System.getProperty("bench.vus", "100,500,1000,2000,5000");
+        int requestsPerVu = Integer.getInteger("bench.requestsPerVu", 5);
+        long thinkMs = Long.getLong("bench.thinkMs", 200);
+        long timeoutSec = Long.getLong("bench.timeoutSec", 300);
+
+        // The mock must not be the bottleneck: one virtual thread per request and a deep accept queue
+        WeatherApiMockServer mock = new WeatherApiMockServer();
+        mock.start(0, Executors.newVirtualThreadPerTaskExecutor(), 8192);
+        String baseUrl = mock.baseUrl();
+
+        System.out.println("=== Virtual Thread Load Benchmark ===");
+        System.out.printf(Locale.ROOT, "%d requests per VU, %d ms think time, %d cores%n%n",
+                requestsPerVu, thinkMs, Runtime.getRuntime().availableProcessors());
+        System.out.printf(Locale.ROOT, "%-9s %6s %9s %8s %10s %10s %9s %10s %9s%n",
+                "mode", "VUs", "requests", "err %", "req/s", "p99 ms", "threads", "RSS +MB", "KB/VU");
+
+        // Warm-up so class loading and JIT do not count against the first level
+        run(LoadGenerator.ThreadMode.PLATFORM, 50, 2, 10, baseUrl, timeoutSec);
+        run(LoadGenerator.ThreadMode.VIRTUAL, 50, 2, 10, baseUrl, timeoutSec);
+
+        Map<LoadGenerator.ThreadMode, Integer> maxSustained = new LinkedHashMap<>();
+        Map<LoadGenerator.ThreadMode, Boolean> failed = new LinkedHashMap<>();
+        try {
+            for (String v : vuList.split(",")) {
+                int vus = Integer.parseInt(v.trim());
+                for (LoadGenerator.ThreadMode mode : LoadGenerator.ThreadMode.values()) {
+                    if (failed.getOrDefault(mode, false)) {
+                        System.out.printf(Locale.ROOT, "%-9s %6d %9s%n", mode.name().toLowerCase(Locale.ROOT), vus, "skipped");
+                        continue;
+                    }
+                    Result r = run(mode, vus, requestsPerVu, thinkMs, baseUrl, timeoutSec);
+                    r.print();
+                    if (r.sustained()) {
+                        maxSustained.put(mode, vus);
+                    } else {
+                        failed.put(mode, true);
+                    }
+                }
+            }
+        } finally {
+            mock.stop();
+        }
+
+        System.out.println();
+        for (LoadGenerator.ThreadMode mode : LoadGenerator.ThreadMode.values()) {
+            System.out.printf(Locale.ROOT, "Max sustained concurrency (%s): %s VUs%n",
+                    mode.name().toLowerCase(Locale.ROOT), maxSustained.getOrDefault(mode, 0));
+        }
+    }
+
+    private static final class Result {
+        final LoadGenerator.ThreadMode mode;
+        final int vus;
+        final boolean finished;
+        final String failure;
+        final PerformanceMetricsCollector.PerformanceReport report;
+        final long failures;
+        final int peakThreads;
+        final long rssGrowthBytes;
+
+        Result(LoadGenerator.ThreadMode mode, int vus, boolean finished, String failure,
+               PerformanceMetricsCollector.PerformanceReport report, long failures, int peakThreads, long rssGrowthBytes) {
+            this.mode = mode;
+            this.vus = vus;
+            this.finished = finished;
+            this.failure = failure;
+            this.report = report;
+            this.failures = failures;
+            this.peakThreads = peakThreads;
+            this.rssGrowthBytes = rssGrowthBytes;
+        }
+
+        double errorRate() {
+            long attempted = report.totalRequests + failures;
+            return attempted == 0 ? 100.0 : (report.errorCount + failures) * 100.0 / attempted;
+        }
+
+        boolean sustained() {
+            return failure == null && finished && errorRate() <= MAX_ERROR_RATE;
+        }
+
+        void print() {
+            String name = mode.name().toLowerCase(Locale.ROOT);
+            if (failure != null) {
+                System.out.printf(Locale.ROOT, "%-9s %6d failed: %s%n", name, vus, failure);
+                return;
+            }
+            System.out.printf(Locale.ROOT, "%-9s %6d %9d %8.2f %10.1f %10.3f %9d %10.1f %9.1f%s%n",
+                    name, vus, report.totalRequests + failures, errorRate(), report.throughput,
+                    report.p99ResponseTime, peakThreads, rssGrowthBytes / (1024.0 * 1024.0),
+                    rssGrowthBytes / 1024.0 / vus, finished ? "" : "  (timed out)");
+        }
+    }
+
+    private static Result run(LoadGenerator.ThreadMode mode, int vus, int requestsPerVu, long thinkMs,
+                              String baseUrl, long timeoutSec) throws InterruptedException {
+        System.gc();
+        Thread.sleep(200);
+        long baselineRss = residentBytes();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+
+        PerformanceMetricsCollector metrics = PerformanceMetricsCollector.histogram(mode + "-" + vus, 2);
+        LongAdder failures = new LongAdder();
+        CountDownLatch done = new CountDownLatch(vus);
+        AtomicLong peakRss = new AtomicLong(baselineRss);
+        Thread sampler = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                peakRss.accumulateAndGet(residentBytes(), Math::max);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "rss-sampler");
+        sampler.setDaemon(true);
+        sampler.start();
+
+        LoadGenerator generator = new LoadGenerator(vus, mode);
+        String failure = null;
+        boolean finished = false;
+        try {
+            generator.start();
+            for (int vu = 0; vu < vus; vu++) {
+                generator.execute(() -> {
+                    try {
+                        for (int i = 0; i < requestsPerVu; i++) {
+                            try {
+                                metrics.timed(() -> given()
+                                        .baseUri(baseUrl)
+                                        .queryParam("q", "London")
+                                        .get("/current.json"));
+                            } catch (Exception e) {
+                                failures.increment();
+                            }
+                            Thread.sleep(thinkMs);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            finished = done.await(timeoutSec, TimeUnit.SECONDS);
+        } catch (OutOfMemoryError | RuntimeException e) {
+            failure = e.getClass().getSimpleName() + ": " + e.getMessage();
+        } finally {
+            sampler.interrupt();
+            generator.getExecutorService().shutdownNow();
+            generator.getExecutorService().awaitTermination(30, TimeUnit.SECONDS);
+        }
+
+        return new Result(mode, vus, finished, failure, metrics.getReport(),
+                failures.sum(), threads.getPeakThreadCount(), Math.max(0, peakRss.get() - baselineRss));
+    }
+
+    /** Resident set size from /proc (Linux); falls back to used heap + non-heap elsewhere. */
+    private static long residentBytes() {
+        Path status = Paths.get("/proc/self/status");
+        if (Files.isReadable(status)) {
+            try {
+                List<String> lines = Files.readAllLines(status);
+                for (String line : lines) {
+                    if (line.startsWith("VmRSS:")) {
+                        return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                    }
+                }
+            } catch (IOException | NumberFormatException ignored) {
+                // fall through
+            }
+        }
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory()
+                + ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage().getUsed();
+    }
+}
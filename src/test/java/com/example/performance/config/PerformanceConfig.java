@@ -24,11 +24,77 @@ public class PerformanceConfig {
         }
     }
 
+    private static String getOrDefault(String key, String defaultVal) {
+        String val = ConfigurationReader.get(key);
+        return (val == null || val.isBlank()) ? defaultVal : val.trim();
+    }
+
     // Performance Test Parameters (can be overridden via env or system properties)
     public static final int USERS = getIntOrDefault("perf.users", 10);
     public static final int RAMP_UP_TIME = getIntOrDefault("perf.rampUp", 10);
     public static final int DURATION = getIntOrDefault("perf.duration", 60);
 
+    // Load profile for LoadProfile.fromConfig(): inline stages, or a file of stages (takes precedence)
+    public static final String PROFILE = getOrDefault("perf.profile", null);
+    public static final String PROFILE_FILE = getOrDefault("perf.profile.file", null);
+
+    // CapacityFinder: first trial rate, upper bound (req/s), trial length and search resolution
+    public static final int CAPACITY_START_RATE = getIntOrDefault("perf.capacity.startRate", 5);
+    public static final int CAPACITY_MAX_RATE = getIntOrDefault("perf.capacity.maxRate", 1000);
+    public static final int CAPACITY_TRIAL_SECONDS = getIntOrDefault("perf.capacity.trialSeconds", 30);
+    public static final int CAPACITY_RESOLUTION_PERCENT = getIntOrDefault("perf.capacity.resolutionPercent", 5);
+
+    // LoadGenerator threads: "platform" (fixed pool) or "virtual" (virtual thread per task)
+    public static final String LOADGEN_THREADS = getOrDefault("perf.loadgen.threads", "platform");
+    // Tasks that may wait for a LoadGenerator thread, and what happens when that queue is full:
+    // "block" the submitter, "drop" (counted) or "caller-runs"
+    public static final int LOADGEN_QUEUE_CAPACITY = getIntOrDefault("perf.loadgen.queueCapacity", 10_000);
+    public static final String LOADGEN_QUEUE_POLICY = getOrDefault("perf.loadgen.queuePolicy", "block");
+
+    // RateLimits.global(): permits per second overall, burst size, and per-endpoint "path=rate" pairs
+    public static final String RATE_LIMIT = getOrDefault("perf.rateLimit", null);
+    public static final int RATE_LIMIT_BURST = getIntOrDefault("perf.rateLimit.burst", 1);
+    public static final String RATE_LIMIT_ENDPOINTS = getOrDefault("perf.rateLimit.endpoints", null);
+
+    // WarmupPhase.fromConfig(): seconds (takes precedence when > 0) or iteration count, then
+    // optionally continue until latency stabilizes
+    public static final int WARMUP_SECONDS = getIntOrDefault("perf.warmup.seconds", 0);
+    public static final int WARMUP_ITERATIONS = getIntOrDefault("perf.warmup.iterations", 20);
+    public static final boolean WARMUP_STABILIZE = Boolean.parseBoolean(getOrDefault("perf.warmup.stabilize", "true"));
+
+    // Endurance tests (EnduranceRunner): length, fixed request rate and metrics rotation interval
+    public static final int ENDURANCE_SECONDS = getIntOrDefault("perf.endurance.seconds", 60);
+    public static final int ENDURANCE_RATE = getIntOrDefault("perf.endurance.rate", 5);
+    public static final int ENDURANCE_ROTATE_SECONDS = getIntOrDefault("perf.endurance.rotateSeconds", 15);
+
+    // Seed for RandomStreams (think times, data selection, arrival jitter); unset picks and logs one
+    public static final String SEED = getOrDefault("perf.seed", null);
+
+    // Metrics collection: "raw" keeps every sample, "histogram" uses a fixed-memory histogram
+    public static final String METRICS_MODE = getOrDefault("perf.metrics.mode", "raw");
+    public static final int METRICS_SIGNIFICANT_DIGITS = getIntOrDefault("perf.metrics.significantDigits", 2);
+
+    // Rolling time-series windows: width, live ring size and completed windows retained for export
+    public static final int METRICS_WINDOW_MS = getIntOrDefault("perf.metrics.windowMs", 1000);
+    public static final int METRICS_WINDOW_RING = getIntOrDefault("perf.metrics.windowRing", 60);
+    public static final int METRICS_WINDOW_RETAINED = getIntOrDefault("perf.metrics.windowRetained", 86_400);
+
+    // Optional memory-mapped journal of every raw sample, for post-hoc analysis
+    public static final boolean JOURNAL_ENABLED = Boolean.parseBoolean(getOrDefault("perf.journal.enabled", "false"));
+    public static final int JOURNAL_MAX_MB = getIntOrDefault("perf.journal.maxMb", 1024);
+
+    // Live Prometheus endpoint on localhost: -1 disables it, 0 picks a free port
+    public static final int PROMETHEUS_PORT = getIntOrDefault("perf.prometheus.port", -1);
+
+    // Emit a JDK Flight Recorder event per recorded request (only written while a recording runs)
+    public static final boolean JFR_EVENTS = Boolean.parseBoolean(getOrDefault("perf.jfr.events", "false"));
+
+    // Dropwizard bridge: reservoir (hdr | sliding-time-window | exponentially-decaying), its window,
+    // and the period of the scheduled CSV/console reports (0 disables them)
+    public static final String DROPWIZARD_RESERVOIR = getOrDefault("perf.dropwizard.reservoir", "hdr");
+    public static final int DROPWIZARD_WINDOW_SECONDS = getIntOrDefault("perf.dropwizard.windowSeconds", 60);
+    public static final int DROPWIZARD_REPORT_SECONDS = getIntOrDefault("perf.dropwizard.reportSeconds", 0);
+
 
     // SLA Thresholds (in milliseconds)
     public static final int RESPONSE_TIME_P95_THRESHOLD = 2000; // 95th percentile
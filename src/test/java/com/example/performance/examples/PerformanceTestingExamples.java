@@ -1,14 +1,24 @@
 package com.example.performance.examples;
 
-import com.example.config.TestConfig;
+import com.example.performance.config.PerformanceConfig;
+import com.example.performance.utils.ArrivalRateScheduler;
+import com.example.performance.utils.CapacityFinder;
+import com.example.performance.utils.EnduranceRunner;
+import com.example.performance.utils.LoadProfile;
+import com.example.performance.utils.MetricsRegistry;
+import com.example.performance.utils.RandomStreams;
+import com.example.performance.utils.RequestTemplate;
 import com.example.performance.utils.PerformanceMetricsCollector;
 import com.example.performance.utils.LoadGenerator;
-import io.restassured.response.Response;
+import com.example.performance.utils.WarmupPhase;
+import com.example.performance.utils.WorkloadMix;
 
+import java.time.Duration;
+import java.util.SplittableRandom;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
-import static io.restassured.RestAssured.given;
 
 /**
  * Performance Testing Examples
@@ -18,6 +28,10 @@ import static io.restassured.RestAssured.given;
  */
 public class PerformanceTestingExamples {
 
+    // Precompiled once instead of building TestConfig.baseSpec() on every request
+    private static final RequestTemplate CURRENT = RequestTemplate.weatherApi("/current.json?q={city}");
+    private static final RequestTemplate FORECAST = RequestTemplate.weatherApi("/forecast.json?q={city}&days=3");
+
     private static int propInt(String key, int def) {
         try {
             return Integer.parseInt(System.getProperty(key, String.valueOf(def)));
@@ -26,6 +40,18 @@ public class PerformanceTestingExamples {
         }
     }
 
+    /**
+     * Warm-up before the measured phase (perf.warmup.*), recorded into its own collector so class
+     * loading, connection setup and JIT do not end up in the example's percentiles.
+     */
+    private static void warmUp(String name, int concurrency, RequestTemplate endpoint, String city)
+            throws InterruptedException {
+        WarmupPhase.fromConfig()
+                .concurrency(concurrency)
+                .run(name, warmupMetrics -> warmupMetrics.timed(() -> endpoint.get(city)))
+                .print();
+    }
+
     /**
      * Example 1: Simple Load Test
      * Tests a single endpoint with multiple concurrent users
@@ -39,24 +65,25 @@ public class PerformanceTestingExamples {
         PerformanceMetricsCollector metrics = new PerformanceMetricsCollector("Simple Load Test");
         LoadGenerator loadGen = new LoadGenerator(threads);
         loadGen.start();
+        warmUp("Simple Load Test", threads, CURRENT, "London");
 
         CountDownLatch latch = new CountDownLatch(totalRequests);
 
         for (int i = 0; i < totalRequests; i++) {
-            loadGen.execute(() -> {
-                try {
-                    metrics.incrementActiveRequests();
-                    Response response = given()
-                            .spec(TestConfig.baseSpec())
-                            .queryParam("q", "London")
-                            .get("/current.json");
-
-                    metrics.recordResponse(response);
-                } finally {
-                    metrics.decrementActiveRequests();
-                    latch.countDown();
-                }
-            });
+            final long intendedStart = System.nanoTime();
+            try {
+                loadGen.execute(() -> {
+                    try {
+                        metrics.incrementActiveRequests();
+                        metrics.timedFrom(intendedStart, () -> CURRENT.get("London"));
+                    } finally {
+                        metrics.decrementActiveRequests();
+                        latch.countDown();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                latch.countDown(); // dropped under -Dperf.loadgen.queuePolicy=drop
+            }
         }
 
         latch.await();
@@ -80,95 +107,69 @@ public class PerformanceTestingExamples {
         LoadGenerator loadGen = new LoadGenerator(threads);
         loadGen.start();
 
-        for (int user = 1; user <= maxUsers; user++) {
-            loadGen.execute(() -> {
-                for (int req = 0; req < requestsPerUser; req++) {
-                    try {
-                        metrics.incrementActiveRequests();
-                        Response response = given()
-                                .spec(TestConfig.baseSpec())
-                                .queryParam("q", "Paris")
-                                .get("/current.json");
-
-                        metrics.recordResponse(response);
-                        Thread.sleep(1000); // Think time
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                    } finally {
-                        metrics.decrementActiveRequests();
-                    }
+        // Users start evenly over the ramp-up period; perf.profile replaces the shape entirely
+        LoadProfile profile = PerformanceConfig.PROFILE != null || PerformanceConfig.PROFILE_FILE != null
+                ? LoadProfile.fromConfig()
+                : new LoadProfile().plateau((double) maxUsers / Math.max(1, rampUpSeconds),
+                        Duration.ofSeconds(Math.max(1, rampUpSeconds)));
+        System.out.println("Profile: " + profile);
+
+        WarmupPhase warmup = WarmupPhase.fromConfig().concurrency(Math.max(1, Math.min(threads, maxUsers)));
+        ArrivalRateScheduler.ScheduleReport schedule = profile.run(loadGen, warmup,
+                warmupMetrics -> warmupMetrics.timed(() -> CURRENT.get("Paris")), 60, TimeUnit.SECONDS, intendedStart -> {
+            for (int req = 0; req < requestsPerUser; req++) {
+                try {
+                    metrics.incrementActiveRequests();
+                    metrics.timed(() -> CURRENT.get("Paris"));
+                    Thread.sleep(1000); // Think time
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } finally {
+                    metrics.decrementActiveRequests();
                 }
-            });
+            }
+        });
 
-            // Gradual ramp-up
-            Thread.sleep((rampUpSeconds * 1000L) / Math.max(1, maxUsers));
-        }
-
-        Thread.sleep(5000); // Wait for completion
+        schedule.print();
         loadGen.shutdown();
         metrics.printReport();
+        metrics.exportTimeSeriesToCSV("target/performance-results/ramp-up-timeseries.csv");
     }
 
     /**
      * Example 3: Multi-Endpoint Test
-     * Tests multiple endpoints with different load distributions
+     * Tests multiple endpoints with a weighted 70/30 traffic mix
      */
     public static void multiEndpointTest() throws InterruptedException {
         System.out.println("=== Example 3: Multi-Endpoint Test ===\n");
 
-        PerformanceMetricsCollector currentMetrics = new PerformanceMetricsCollector("Current Weather");
-        PerformanceMetricsCollector forecastMetrics = new PerformanceMetricsCollector("Forecast");
-
-        LoadGenerator loadGen = new LoadGenerator(30);
-        loadGen.start();
-
-        CountDownLatch latch = new CountDownLatch(100);
-
-        // 70% current weather requests
-        for (int i = 0; i < 70; i++) {
-            loadGen.execute(() -> {
-                try {
-                    currentMetrics.incrementActiveRequests();
-                    Response response = given()
-                            .spec(TestConfig.baseSpec())
-                            .queryParam("q", "Tokyo")
-                            .get("/current.json");
-
-                    currentMetrics.recordResponse(response);
-                } finally {
-                    currentMetrics.decrementActiveRequests();
-                    latch.countDown();
-                }
-            });
-        }
-
-        // 30% forecast requests
-        for (int i = 0; i < 30; i++) {
-            loadGen.execute(() -> {
-                try {
-                    forecastMetrics.incrementActiveRequests();
-                    Response response = given()
-                            .spec(TestConfig.baseSpec())
-                            .queryParam("q", "Tokyo")
-                            .queryParam("days", "3")
-                            .get("/forecast.json");
-
-                    forecastMetrics.recordResponse(response);
-                } finally {
-                    forecastMetrics.decrementActiveRequests();
-                    latch.countDown();
-                }
-            });
-        }
-
-        latch.await();
-        loadGen.shutdown();
-
-        System.out.println("\nCurrent Weather Endpoint:");
-        currentMetrics.printReport();
-
-        System.out.println("\nForecast Endpoint:");
-        forecastMetrics.printReport();
+        MetricsRegistry metrics = new MetricsRegistry("Multi-Endpoint");
+        String[] cities = {"London", "Tokyo"};
+        RandomStreams streams = RandomStreams.global();
+        long citySeed = streams.seedFor("city");
+
+        // 70% current weather, 30% forecast, interleaved per request in a seeded order; the city of
+        // the k-th request is drawn for k too, so the same seed repeats every (endpoint, city) pair
+        WorkloadMix mix = new WorkloadMix(metrics)
+                .seeded(streams)
+                .add("current", 70, "GET", "/current.json",
+                        k -> CURRENT.get(RandomStreams.pick(citySeed, k, cities)))
+                .add("forecast", 30, "GET", "/forecast.json",
+                        k -> FORECAST.get(RandomStreams.pick(citySeed, k, cities)));
+
+        warmUp("Multi-Endpoint", 4, CURRENT, "London");
+        warmUp("Multi-Endpoint", 4, FORECAST, "London");
+
+        // 20 req/s for 5 seconds: 100 requests
+        ArrivalRateScheduler.ScheduleReport schedule = new ArrivalRateScheduler(20)
+                .run(5, 30, TimeUnit.SECONDS, mix::execute);
+
+        schedule.print();
+        mix.printMix();
+        // Per endpoint/status/template series, then per-endpoint roll-ups and the overall total
+        metrics.printReport();
+        metrics.exportToCSV("target/performance-results/multi-endpoint.csv");
     }
 
     /**
@@ -181,38 +182,43 @@ public class PerformanceTestingExamples {
         PerformanceMetricsCollector metrics = new PerformanceMetricsCollector("User Journey");
         LoadGenerator loadGen = new LoadGenerator(20);
         loadGen.start();
+        warmUp("User Journey", 20, CURRENT, "London");
 
         int numberOfUsers = 20;
         CountDownLatch latch = new CountDownLatch(numberOfUsers);
         String[] cities = {"London", "Paris", "Tokyo", "New York", "Sydney"};
 
-        for (int user = 0; user < numberOfUsers; user++) {
-            final int userId = user;
+        // Each user draws cities and think times from its own seeded stream, so a rerun with the
+        // same -Dperf.seed repeats every user's journey exactly
+        RandomStreams streams = RandomStreams.global();
+        System.out.println("Seed: " + streams.getSeed());
 
-            loadGen.execute(() -> {
-                try {
-                    // User journey: 3 requests with think time
-                    for (int step = 0; step < 3; step++) {
-                        metrics.incrementActiveRequests();
-                        String city = cities[userId % cities.length];
+        for (int user = 0; user < numberOfUsers; user++) {
+            final SplittableRandom random = streams.forUser(user);
 
-                        Response response = given()
-                                .spec(TestConfig.baseSpec())
-                                .queryParam("q", city)
-                                .get("/current.json");
+            try {
+                loadGen.execute(() -> {
+                    try {
+                        // User journey: 3 requests with think time
+                        for (int step = 0; step < 3; step++) {
+                            metrics.incrementActiveRequests();
+                            String city = RandomStreams.pick(random, cities);
 
-                        metrics.recordResponse(response);
-                        metrics.decrementActiveRequests();
+                            metrics.timed(() -> CURRENT.get(city));
+                            metrics.decrementActiveRequests();
 
-                        // Think time: 1-3 seconds
-                        Thread.sleep(1000 + (long) (Math.random() * 2000));
+                            // Think time: 1-3 seconds
+                            Thread.sleep(RandomStreams.thinkTimeMillis(random, 1000, 3000));
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        latch.countDown();
                     }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                } finally {
-                    latch.countDown();
-                }
-            });
+                });
+            } catch (RejectedExecutionException e) {
+                latch.countDown();
+            }
         }
 
         latch.await();
@@ -228,41 +234,81 @@ public class PerformanceTestingExamples {
         System.out.println("=== Example 5: Throughput Test ===\n");
 
         PerformanceMetricsCollector metrics = new PerformanceMetricsCollector("Throughput Test");
-        LoadGenerator loadGen = new LoadGenerator(100);
+        // A short blocking queue paces the submit loop to what 100 threads can complete,
+        // instead of queueing millions of tasks
+        LoadGenerator loadGen = new LoadGenerator(100, LoadGenerator.ThreadMode.parse(PerformanceConfig.LOADGEN_THREADS),
+                200, LoadGenerator.QueuePolicy.BLOCK);
         loadGen.start();
+        warmUp("Throughput Test", 100, CURRENT, "Berlin");
 
         int durationSeconds = 30;
-        AtomicInteger requestCount = new AtomicInteger(0);
         long startTime = System.currentTimeMillis();
         long endTime = startTime + (durationSeconds * 1000L);
 
         while (System.currentTimeMillis() < endTime) {
+            final long intendedStart = System.nanoTime();
             loadGen.execute(() -> {
                 try {
                     metrics.incrementActiveRequests();
-                    Response response = given()
-                            .spec(TestConfig.baseSpec())
-                            .queryParam("q", "Berlin")
-                            .get("/current.json");
-
-                    metrics.recordResponse(response);
-                    requestCount.incrementAndGet();
+                    metrics.timedFrom(intendedStart, () -> CURRENT.get("Berlin"));
                 } finally {
                     metrics.decrementActiveRequests();
                 }
             });
         }
 
-        Thread.sleep(5000); // Wait for completion
-        loadGen.shutdown();
+        loadGen.shutdown(); // waits for queued and running requests
+        loadGen.printQueueStats();
+
+        // Throughput comes from the collector's first/last sample timestamps, not a local counter
+        PerformanceMetricsCollector.PerformanceReport report = metrics.getReport();
+        System.out.println("Achieved throughput: " + String.format("%.2f", report.throughput) + " req/sec"
+                + " (peak " + String.format("%.2f", report.peakThroughput) + " req/sec)\n");
+
+        metrics.printReport();
+    }
+
+    /**
+     * Example 6: Capacity Search
+     * Steps up the arrival rate, then binary-searches the knee against the SLA thresholds
+     */
+    public static void capacitySearch() throws InterruptedException {
+        System.out.println("=== Example 6: Capacity Search ===\n");
+
+        CapacityFinder.Trial trial = CapacityFinder.scheduledTrial(
+                PerformanceConfig.CAPACITY_TRIAL_SECONDS, TimeUnit.SECONDS,
+                (intendedStart, metrics) -> metrics.timedFrom(intendedStart, () -> CURRENT.get("London")));
 
-        double actualDuration = (System.currentTimeMillis() - startTime) / 1000.0;
-        double throughput = requestCount.get() / actualDuration;
+        CapacityFinder.Result result = new CapacityFinder(trial).find();
+        result.print();
+        result.exportToCSV("target/performance-results/capacity-curve.csv");
+    }
 
-        System.out.println("Total requests: " + requestCount.get());
-        System.out.println("Duration: " + String.format("%.2f", actualDuration) + " seconds");
-        System.out.println("Achieved throughput: " + String.format("%.2f", throughput) + " req/sec\n");
+    /**
+     * Example 7: Endurance Test
+     * Sustains a fixed request rate and reports per-interval drift
+     */
+    public static void enduranceTest() throws InterruptedException {
+        System.out.println("=== Example 7: Endurance Test ===\n");
+
+        PerformanceMetricsCollector metrics = new PerformanceMetricsCollector("Endurance");
+
+        EnduranceRunner.Result result = new EnduranceRunner(metrics, PerformanceConfig.ENDURANCE_RATE)
+                .maxInFlight(50)
+                .rotateEvery(PerformanceConfig.ENDURANCE_ROTATE_SECONDS, TimeUnit.SECONDS)
+                .snapshotDirectory("target/performance-results/endurance/examples")
+                .warmup(WarmupPhase.fromConfig().concurrency(50),
+                        warmupMetrics -> warmupMetrics.timed(() -> CURRENT.get("Berlin")))
+                .run(PerformanceConfig.ENDURANCE_SECONDS, TimeUnit.SECONDS, intendedStart -> {
+                    metrics.incrementActiveRequests();
+                    try {
+                        metrics.timedFrom(intendedStart, () -> CURRENT.get("Berlin"));
+                    } finally {
+                        metrics.decrementActiveRequests();
+                    }
+                });
 
+        result.print();
         metrics.printReport();
     }
 
@@ -290,6 +336,12 @@ public class PerformanceTestingExamples {
 //            System.out.println("\n" + "─".repeat(60) + "\n");
 //
 //            throughputTest();
+//            System.out.println("\n" + "─".repeat(60) + "\n");
+//
+//            capacitySearch();
+//            System.out.println("\n" + "─".repeat(60) + "\n");
+//
+//            enduranceTest();
 
             System.out.println("\n✓ All examples completed successfully!");
 
@@ -1,6 +1,7 @@
 package com.example.performance.gatling.simulations;
 
 import com.example.performance.config.PerformanceConfig;
+import com.example.performance.utils.LoadProfile;
 import io.gatling.javaapi.core.*;
 import io.gatling.javaapi.http.*;
 
@@ -17,6 +18,7 @@ import static io.gatling.javaapi.http.HttpDsl.*;
  * - Load Test: Gradual ramp-up to verify system behavior under expected load
  * - Stress Test: Push the system beyond normal capacity to find breaking points
  * - Spike Test: Sudden burst of traffic to test system resilience
+ * - Profile: any shape defined with {@link LoadProfile} (shared with the JUnit/RestAssured engine)
  * <p>
  * Industry Best Practices Implemented:
  * 1. Realistic user behavior modeling
@@ -104,12 +106,14 @@ public class WeatherApiPerformanceSimulation extends Simulation {
 
     {
         // Setup scenarios with injection profiles
-        // Choose test type via system property: -Dperf.type=load|stress|spike
+        // Choose test type via system property: -Dperf.type=load|stress|spike|profile
+        // "profile" runs the shared LoadProfile from -Dperf.profile or -Dperf.profile.file
         String testType = System.getProperty("perf.type", "load");
 
         OpenInjectionStep[] injectionProfile = switch (testType.toLowerCase()) {
             case "stress" -> stressTestProfile.toArray(new OpenInjectionStep[0]);
             case "spike" -> spikeTestProfile.toArray(new OpenInjectionStep[0]);
+            case "profile" -> LoadProfile.fromConfig().toGatlingSteps();
             default -> loadTestProfile.toArray(new OpenInjectionStep[0]);
         };
 
@@ -1,18 +1,27 @@
 package com.example.performance.junit.tests;
 
-import com.example.config.TestConfig;
 import com.example.performance.config.PerformanceConfig;
+import com.example.performance.utils.DropwizardMetricsBridge;
+import com.example.performance.utils.EnduranceRunner;
+import com.example.performance.utils.MetricsSnapshotMerger;
 import com.example.performance.utils.PerformanceMetricsCollector;
+import com.example.performance.utils.PrometheusMetricsServer;
+import com.example.performance.utils.RateLimits;
+import com.example.performance.utils.RequestTemplate;
+import com.example.performance.utils.SampleJournal;
+import com.example.performance.utils.WarmupPhase;
 import io.restassured.response.Response;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TestName;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.*;
 
-import static io.restassured.RestAssured.given;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -26,13 +35,55 @@ import static org.junit.Assert.assertTrue;
  */
 public class WeatherApiPerformanceTest {
 
+    // Built once: base URI, API key and encoding are resolved here, not on every request
+    private static final RequestTemplate CURRENT = rateLimited(RequestTemplate.weatherApi("/current.json?q={city}"));
+    private static final RequestTemplate FORECAST = rateLimited(RequestTemplate.weatherApi("/forecast.json?q={city}&days=3"));
+
+    @Rule
+    public TestName testName = new TestName();
+
     private PerformanceMetricsCollector metricsCollector;
     private ExecutorService executorService;
+    private SampleJournal journal;
+    private PrometheusMetricsServer prometheus;
+    private DropwizardMetricsBridge dropwizard;
+    /** Names this run's journal and snapshot files, so runs in one process don't overwrite each other */
+    private String runName;
 
     @Before
-    public void setUp() {
+    public void setUp() throws Exception {
+        setUp(testName.getMethodName());
+    }
+
+    /**
+     * For callers outside JUnit (the Cucumber steps), where the {@link TestName} rule never runs.
+     * A null name falls back to a unique one.
+     */
+    public void setUp(String runName) throws Exception {
+        this.runName = runName != null ? runName : "run-" + System.currentTimeMillis() + "-" + System.nanoTime();
         metricsCollector = new PerformanceMetricsCollector("Weather API Performance Test");
         executorService = Executors.newFixedThreadPool(PerformanceConfig.USERS);
+        if (PerformanceConfig.JOURNAL_ENABLED) {
+            journal = SampleJournal.open("target/performance-results/journal/weather-api-"
+                    + runName + "-" + ProcessHandle.current().pid() + ".journal",
+                    PerformanceConfig.JOURNAL_MAX_MB * 1024L * 1024L);
+            metricsCollector.setJournal(journal);
+        }
+        if (PerformanceConfig.PROMETHEUS_PORT >= 0) {
+            prometheus = new PrometheusMetricsServer().register(metricsCollector);
+            prometheus.start(PerformanceConfig.PROMETHEUS_PORT);
+        }
+        if (PerformanceConfig.DROPWIZARD_REPORT_SECONDS > 0) {
+            dropwizard = new DropwizardMetricsBridge().bind(metricsCollector)
+                    .startConsoleReporter(PerformanceConfig.DROPWIZARD_REPORT_SECONDS, TimeUnit.SECONDS)
+                    .startCsvReporter(new File("target/performance-results/dropwizard"),
+                            PerformanceConfig.DROPWIZARD_REPORT_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /** Keeps this class's requests within the configured quota, without touching other test classes. */
+    private static RequestTemplate rateLimited(RequestTemplate template) {
+        return RateLimits.global().isEnabled() ? template.withFilter(RateLimits.global().asFilter()) : template;
     }
 
     @After
@@ -47,7 +98,34 @@ public class WeatherApiPerformanceTest {
         if (metricsCollector != null) {
             metricsCollector.printReport();
             metricsCollector.exportToCSV("target/performance-results/weather-api-metrics.csv");
+            metricsCollector.exportTimeSeriesToCSV("target/performance-results/weather-api-timeseries.csv");
+            // One partial file per test and fork; combine with MetricsSnapshotMerger
+            metricsCollector.saveSnapshot("target/performance-results/snapshots/weather-api-"
+                    + runName + "-" + ProcessHandle.current().pid()
+                    + MetricsSnapshotMerger.SNAPSHOT_EXTENSION);
+        }
+        if (journal != null) {
+            journal.close();
         }
+        if (prometheus != null) {
+            prometheus.stop();
+        }
+        if (dropwizard != null) {
+            dropwizard.close();
+        }
+        RateLimits.global().print();
+    }
+
+    /**
+     * Warms up on the test's own pool so class loading, connection setup and JIT are done before
+     * the measured phase; its samples stay out of metricsCollector.
+     */
+    private void warmUp(RequestTemplate endpoint, String city) throws InterruptedException {
+        WarmupPhase.fromConfig()
+                .concurrency(PerformanceConfig.USERS)
+                .executor(executorService)
+                .run("Weather API", warmupMetrics -> warmupMetrics.timed(() -> endpoint.get(city)))
+                .print();
     }
 
     /**
@@ -56,6 +134,7 @@ public class WeatherApiPerformanceTest {
     @Test
     public void testCurrentWeatherEndpointUnderLoad() throws InterruptedException {
         System.out.println("Starting Load Test - Current Weather Endpoint");
+        warmUp(CURRENT, "London");
 
         List<Future<Response>> futures = new ArrayList<>();
         String[] cities = {"London", "New York", "Tokyo", "Paris", "Sydney", "Berlin", "Mumbai", "Toronto"};
@@ -64,16 +143,11 @@ public class WeatherApiPerformanceTest {
         for (int i = 0; i < PerformanceConfig.USERS * 10; i++) {
             final String city = cities[i % cities.length];
 
+            final long intendedStart = System.nanoTime();
             Future<Response> future = executorService.submit(() -> {
                 metricsCollector.incrementActiveRequests();
                 try {
-                    Response response = given()
-                            .spec(TestConfig.baseSpec())
-                            .queryParam("q", city)
-                            .when()
-                            .get("/current.json");
-
-                    metricsCollector.recordResponse(response);
+                    Response response = metricsCollector.timedFrom(intendedStart, () -> CURRENT.get(city));
                     return response;
                 } finally {
                     metricsCollector.decrementActiveRequests();
@@ -115,23 +189,18 @@ public class WeatherApiPerformanceTest {
     @Test
     public void testForecastEndpointStress() throws InterruptedException {
         System.out.println("Starting Stress Test - Forecast Endpoint");
+        warmUp(FORECAST, "London");
 
         List<Future<Response>> futures = new ArrayList<>();
         int stressUsers = PerformanceConfig.STRESS_USERS;
 
         // Generate heavy load
         for (int i = 0; i < stressUsers * 5; i++) {
+            final long intendedStart = System.nanoTime();
             Future<Response> future = executorService.submit(() -> {
                 metricsCollector.incrementActiveRequests();
                 try {
-                    Response response = given()
-                            .spec(TestConfig.baseSpec())
-                            .queryParam("q", "London")
-                            .queryParam("days", "3")
-                            .when()
-                            .get("/forecast.json");
-
-                    metricsCollector.recordResponse(response);
+                    Response response = metricsCollector.timedFrom(intendedStart, () -> FORECAST.get("London"));
                     return response;
                 } finally {
                     metricsCollector.decrementActiveRequests();
@@ -164,27 +233,16 @@ public class WeatherApiPerformanceTest {
     public void testSpikeLoad() throws InterruptedException {
         System.out.println("Starting Spike Test - Sudden Traffic Burst");
 
-        // Warm-up period with low load
-        for (int i = 0; i < 5; i++) {
-            given().spec(TestConfig.baseSpec())
-                    .queryParam("q", "London")
-                    .get("/current.json");
-            Thread.sleep(1000);
-        }
+        warmUp(CURRENT, "London");
 
         // Sudden spike
         List<Future<Response>> futures = new ArrayList<>();
         for (int i = 0; i < PerformanceConfig.SPIKE_USERS; i++) {
+            final long intendedStart = System.nanoTime();
             Future<Response> future = executorService.submit(() -> {
                 metricsCollector.incrementActiveRequests();
                 try {
-                    Response response = given()
-                            .spec(TestConfig.baseSpec())
-                            .queryParam("q", "Tokyo")
-                            .when()
-                            .get("/current.json");
-
-                    metricsCollector.recordResponse(response);
+                    Response response = metricsCollector.timedFrom(intendedStart, () -> CURRENT.get("Tokyo"));
                     return response;
                 } finally {
                     metricsCollector.decrementActiveRequests();
@@ -213,45 +271,28 @@ public class WeatherApiPerformanceTest {
     public void testEndurance() throws InterruptedException {
         System.out.println("Starting Endurance Test - Sustained Load Over Time");
 
-        int durationSeconds = 60; // 1 minute endurance test
-        int requestsPerSecond = 5;
-
-        long startTime = System.currentTimeMillis();
-        long endTime = startTime + (durationSeconds * 1000L);
-
-        while (System.currentTimeMillis() < endTime) {
-            List<Future<Response>> batchFutures = new ArrayList<>();
-
-            for (int i = 0; i < requestsPerSecond; i++) {
-                Future<Response> future = executorService.submit(() -> {
+        // Open model at a fixed rate: starts are paced whether or not earlier requests finished,
+        // capped at one in-flight request per pool thread. Per-interval snapshots show drift over
+        // long runs (-Dperf.endurance.seconds=14400 -Dperf.metrics.mode=histogram for four hours)
+        EnduranceRunner.Result endurance = new EnduranceRunner(metricsCollector, PerformanceConfig.ENDURANCE_RATE)
+                .executor(executorService)
+                .maxInFlight(PerformanceConfig.USERS)
+                .rotateEvery(PerformanceConfig.ENDURANCE_ROTATE_SECONDS, TimeUnit.SECONDS)
+                .drainTimeout(10, TimeUnit.SECONDS)
+                .snapshotDirectory("target/performance-results/endurance/" + ProcessHandle.current().pid())
+                .warmup(WarmupPhase.fromConfig().concurrency(PerformanceConfig.USERS).executor(executorService),
+                        warmupMetrics -> warmupMetrics.timed(() -> CURRENT.get("Berlin")))
+                .run(PerformanceConfig.ENDURANCE_SECONDS, TimeUnit.SECONDS, intendedStart -> {
                     metricsCollector.incrementActiveRequests();
                     try {
-                        Response response = given()
-                                .spec(TestConfig.baseSpec())
-                                .queryParam("q", "Berlin")
-                                .when()
-                                .get("/current.json");
-
-                        metricsCollector.recordResponse(response);
-                        return response;
+                        metricsCollector.timedFrom(intendedStart, () -> CURRENT.get("Berlin"));
+                    } catch (Exception e) {
+                        System.err.println("Request failed: " + e.getMessage());
                     } finally {
                         metricsCollector.decrementActiveRequests();
                     }
                 });
-                batchFutures.add(future);
-            }
-
-            // Wait for batch to complete
-            for (Future<Response> future : batchFutures) {
-                try {
-                    future.get(10, TimeUnit.SECONDS);
-                } catch (ExecutionException | TimeoutException e) {
-                    System.err.println("Request failed: " + e.getMessage());
-                }
-            }
-
-            Thread.sleep(1000); // Maintain steady rate
-        }
+        endurance.print();
 
         PerformanceMetricsCollector.PerformanceReport report = metricsCollector.getReport();
 
@@ -0,0 +1,210 @@
+package com.example.performance.utils;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Arrival Rate Scheduler (open workload model)
+ *
+ * Starts requests at a target rate regardless of how long earlier requests take, unlike the
+ * closed loops that submit a batch and wait for it. Arrivals are either evenly spaced (constant)
+ * or exponentially spaced (Poisson process) at the same mean rate.
+ *
+ * Pacing runs on the calling thread: it parks until shortly before each intended start and then
+ * spins, so starts are accurate to a few microseconds rather than the ~1 ms granularity of sleep.
+ * Each task receives its intended start (System.nanoTime()) so it can be recorded with
+ * {@link PerformanceMetricsCollector#timedFrom(long, java.util.function.Supplier)}; a stalled
+ * executor then shows up as latency instead of being silently omitted.
+ *
+ * Reported per run:
+ *  - late starts: dispatched more than the late threshold after their intended start
+ *  - missed starts: not dispatched at all because the in-flight cap was reached or the executor
+ *    rejected the task
+ */
+public class ArrivalRateScheduler {
+
+    public enum Arrivals { CONSTANT, POISSON }
+
+    /** Below this distance to the next start the pacer spins instead of parking. */
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long MAX_LATENESS_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final double ratePerSecond;
+    private final Arrivals arrivals;
+    private final Executor executor;
+    private final int maxInFlight;
+    private final long lateThresholdNanos;
+    private final long seed;
+
+    /**
+     * Constant arrivals on a virtual-thread-per-task executor, no in-flight cap, 1 ms late threshold.
+     */
+    public ArrivalRateScheduler(double ratePerSecond) {
+        this(ratePerSecond, Arrivals.CONSTANT, null, Integer.MAX_VALUE, TimeUnit.MILLISECONDS.toNanos(1),
+                RandomStreams.global().seedFor("arrivals"));
+    }
+
+    /**
+     * @param executor           runs the tasks; null for a virtual thread per task (the usual choice
+     *                           for an open model, since concurrency is not bounded by a pool)
+     * @param maxInFlight        arrivals beyond this many running tasks are counted as missed
+     * @param lateThresholdNanos dispatch delay above which a start counts as late
+     * @param seed               seed for Poisson inter-arrival times, for repeatable schedules
+     */
+    public ArrivalRateScheduler(double ratePerSecond, Arrivals arrivals, Executor executor,
+                                int maxInFlight, long lateThresholdNanos, long seed) {
+        if (ratePerSecond <= 0) {
+            throw new IllegalArgumentException("ratePerSecond must be positive: " + ratePerSecond);
+        }
+        this.ratePerSecond = ratePerSecond;
+        this.arrivals = arrivals;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        this.lateThresholdNanos = lateThresholdNanos;
+        this.seed = seed;
+    }
+
+    /** Outcome of one scheduled run. */
+    public static final class ScheduleReport {
+        public final double targetRate;
+        public final Arrivals arrivals;
+        public final long intended;
+        public final long dispatched;
+        public final long lateStarts;
+        public final long missedStarts;
+        public final double achievedRate;
+        /** Dispatch delay behind the intended start, µs */
+        public final long p99LatenessMicros;
+        public final long maxLatenessMicros;
+
+        ScheduleReport(double targetRate, Arrivals arrivals, long intended, long dispatched, long lateStarts,
+                       long missedStarts, double achievedRate, long p99LatenessMicros, long maxLatenessMicros) {
+            this.targetRate = targetRate;
+            this.arrivals = arrivals;
+            this.intended = intended;
+            this.dispatched = dispatched;
+            this.lateStarts = lateStarts;
+            this.missedStarts = missedStarts;
+            this.achievedRate = achievedRate;
+            this.p99LatenessMicros = p99LatenessMicros;
+            this.maxLatenessMicros = maxLatenessMicros;
+        }
+
+        public void print() {
+            System.out.printf(Locale.ROOT,
+                    "Schedule: %s %.2f req/s target, %.2f achieved | %d intended, %d dispatched, %d late, %d missed"
+                            + " | start lag p99 %.3f ms, max %.3f ms%n",
+                    arrivals, targetRate, achievedRate, intended, dispatched, lateStarts, missedStarts,
+                    p99LatenessMicros / 1000.0, maxLatenessMicros / 1000.0);
+        }
+    }
+
+    /**
+     * Fires {@code task} at the target rate for {@code duration}, then waits up to
+     * {@code drainTimeout} for in-flight tasks to finish. The task argument is the intended start
+     * in System.nanoTime() units.
+     */
+    public ScheduleReport run(long duration, long drainTimeout, TimeUnit unit, LongConsumer task)
+            throws InterruptedException {
+        SplittableRandom random = new SplittableRandom(seed);
+        double meanIntervalNanos = 1_000_000_000.0 / ratePerSecond;
+        long durationNanos = unit.toNanos(duration);
+        double[] offset = {0.0}; // accumulated as double so constant intervals do not drift
+        LongSupplier nextOffset = () -> {
+            long next = (long) offset[0];
+            if (next >= durationNanos) return -1L;
+            offset[0] += arrivals == Arrivals.POISSON
+                    ? -Math.log(1.0 - random.nextDouble()) * meanIntervalNanos
+                    : meanIntervalNanos;
+            return next;
+        };
+        return dispatch(nextOffset, executor, maxInFlight, lateThresholdNanos, ratePerSecond, arrivals,
+                unit.toNanos(drainTimeout), task);
+    }
+
+    /**
+     * Pacing loop shared with {@link LoadProfile}: dispatches one task per offset returned by
+     * {@code nextOffsetNanos} (relative to the start, non-decreasing, -1 to finish).
+     *
+     * @param executor null for a virtual thread per task
+     */
+    static ScheduleReport dispatch(LongSupplier nextOffsetNanos, Executor executor, int maxInFlight,
+                                   long lateThresholdNanos, double targetRate, Arrivals arrivals,
+                                   long drainTimeoutNanos, LongConsumer task) throws InterruptedException {
+        ExecutorService owned = executor == null ? Executors.newVirtualThreadPerTaskExecutor() : null;
+        Executor target = executor == null ? owned : executor;
+        AtomicLong inFlight = new AtomicLong();
+        LatencyHistogram lateness = new LatencyHistogram(MAX_LATENESS_MICROS, 2);
+
+        long intended = 0, dispatched = 0, late = 0, missed = 0;
+        long start = System.nanoTime();
+        try {
+            long offset;
+            while ((offset = nextOffsetNanos.getAsLong()) >= 0) {
+                long next = start + offset;
+                waitUntil(next);
+                intended++;
+                long lag = System.nanoTime() - next;
+                lateness.record(TimeUnit.NANOSECONDS.toMicros(lag));
+                if (lag > lateThresholdNanos) late++;
+
+                if (inFlight.get() >= maxInFlight) {
+                    missed++;
+                    continue;
+                }
+                inFlight.incrementAndGet();
+                final long intendedStart = next;
+                try {
+                    target.execute(() -> {
+                        try {
+                            task.accept(intendedStart);
+                        } finally {
+                            inFlight.decrementAndGet();
+                        }
+                    });
+                    dispatched++;
+                } catch (RejectedExecutionException | IllegalStateException e) {
+                    inFlight.decrementAndGet();
+                    missed++;
+                }
+            }
+            long pacedNanos = Math.max(1, System.nanoTime() - start);
+
+            long drainDeadline = System.nanoTime() + drainTimeoutNanos;
+            while (inFlight.get() > 0 && System.nanoTime() - drainDeadline < 0) {
+                Thread.sleep(10);
+            }
+
+            return new ScheduleReport(targetRate, arrivals, intended, dispatched, late, missed,
+                    dispatched * 1_000_000_000.0 / pacedNanos,
+                    lateness.getValueAtPercentile(99), lateness.getMax());
+        } finally {
+            if (owned != null) {
+                owned.shutdownNow();
+            }
+        }
+    }
+
+    /** Park until just before {@code deadline}, then spin the rest of the way. */
+    private static void waitUntil(long deadline) throws InterruptedException {
+        while (true) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) return;
+            if (remaining > SPIN_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_NANOS);
+                if (Thread.interrupted()) throw new InterruptedException();
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+}
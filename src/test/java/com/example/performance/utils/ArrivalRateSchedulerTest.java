@@ -0,0 +1,127 @@
+package com.example.performance.utils;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ArrivalRateSchedulerTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void constantArrivalsAreEvenlySpacedIntendedStarts() throws InterruptedException {
+        List<Long> starts = new CopyOnWriteArrayList<>();
+        ArrivalRateScheduler scheduler = new ArrivalRateScheduler(200, ArrivalRateScheduler.Arrivals.CONSTANT,
+                null, Integer.MAX_VALUE, 50 * MS, 1L);
+        ArrivalRateScheduler.ScheduleReport report = scheduler.run(500, 1_000, TimeUnit.MILLISECONDS, starts::add);
+
+        assertEquals(100, report.intended);
+        assertEquals(100, report.dispatched);
+        assertEquals(0, report.missedStarts);
+        assertEquals(100, starts.size());
+        long[] sorted = starts.stream().mapToLong(Long::longValue).sorted().toArray();
+        for (int i = 1; i < sorted.length; i++) {
+            // Intended starts come from the schedule, not from when the task happened to run
+            assertEquals(5 * MS, sorted[i] - sorted[i - 1]);
+        }
+        // Pacing can only stretch the run past its last intended start, never shorten it, so the
+        // achieved rate has a ceiling from the schedule; how far below it lands depends on the host
+        assertTrue("achieved " + report.achievedRate, report.achievedRate > 0 && report.achievedRate <= 100 / 0.495);
+    }
+
+    @Test
+    public void poissonArrivalsKeepTheMeanRateAndAreRepeatable() throws InterruptedException {
+        ArrivalRateScheduler scheduler = new ArrivalRateScheduler(4_000, ArrivalRateScheduler.Arrivals.POISSON,
+                null, Integer.MAX_VALUE, 50 * MS, 42L);
+        ArrivalRateScheduler.ScheduleReport first = scheduler.run(500, 1_000, TimeUnit.MILLISECONDS, t -> { });
+        ArrivalRateScheduler.ScheduleReport second = scheduler.run(500, 1_000, TimeUnit.MILLISECONDS, t -> { });
+
+        // The count depends only on the seeded gaps, not on how fast the host paced them:
+        // 2000 expected, standard deviation ~45
+        assertTrue("intended " + first.intended, first.intended > 1_800 && first.intended < 2_200);
+        assertEquals(first.intended, second.intended);
+        assertEquals(first.intended, first.dispatched + first.missedStarts);
+    }
+
+    @Test
+    public void arrivalsBeyondTheInFlightCapOrRejectedAreMissed() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger completed = new AtomicInteger();
+        ArrivalRateScheduler capped = new ArrivalRateScheduler(100, ArrivalRateScheduler.Arrivals.CONSTANT,
+                null, 2, 50 * MS, 1L);
+        ArrivalRateScheduler.ScheduleReport report = capped.run(200, 0, TimeUnit.MILLISECONDS, t -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertEquals(20, report.intended);
+        assertEquals(2, report.dispatched);
+        assertEquals(18, report.missedStarts);
+        release.countDown();
+
+        ArrivalRateScheduler rejecting = new ArrivalRateScheduler(100, ArrivalRateScheduler.Arrivals.CONSTANT,
+                task -> { throw new RejectedExecutionException("full"); }, Integer.MAX_VALUE, 50 * MS, 1L);
+        report = rejecting.run(100, 0, TimeUnit.MILLISECONDS, t -> completed.incrementAndGet());
+        assertEquals(10, report.intended);
+        assertEquals(0, report.dispatched);
+        assertEquals(10, report.missedStarts);
+        assertEquals(0, completed.get());
+    }
+
+    @Test
+    public void aStalledExecutorShowsUpAsLateStarts() throws InterruptedException {
+        // Tasks run on the pacing thread and take twice the interval, so every start after the
+        // first falls further behind its schedule
+        ArrivalRateScheduler scheduler = new ArrivalRateScheduler(100, ArrivalRateScheduler.Arrivals.CONSTANT,
+                Runnable::run, Integer.MAX_VALUE, MS, 1L);
+        ArrivalRateScheduler.ScheduleReport report = scheduler.run(100, 0, TimeUnit.MILLISECONDS, t -> sleep(20));
+
+        assertEquals(10, report.intended);
+        assertEquals(10, report.dispatched);
+        assertTrue("late " + report.lateStarts, report.lateStarts >= 8);
+        assertTrue("max lag " + report.maxLatenessMicros, report.maxLatenessMicros >= 80_000);
+        assertTrue(report.p99LatenessMicros <= report.maxLatenessMicros);
+    }
+
+    @Test
+    public void drainWaitsForInFlightTasksUpToTheTimeout() throws InterruptedException {
+        AtomicInteger completed = new AtomicInteger();
+        ArrivalRateScheduler scheduler = new ArrivalRateScheduler(100, ArrivalRateScheduler.Arrivals.CONSTANT,
+                null, Integer.MAX_VALUE, 50 * MS, 1L);
+
+        ArrivalRateScheduler.ScheduleReport drained = scheduler.run(50, 10_000, TimeUnit.MILLISECONDS, t -> {
+            sleep(100);
+            completed.incrementAndGet();
+        });
+        assertEquals(5, drained.dispatched);
+        assertEquals(5, completed.get());
+
+        completed.set(0);
+        scheduler.run(50, 20, TimeUnit.MILLISECONDS, t -> {
+            sleep(1_000);
+            if (!Thread.currentThread().isInterrupted()) completed.incrementAndGet();
+        });
+        // Outlive the slow tasks: had the drain waited for them, or left them running, they would
+        // have counted by now. None did, so they were interrupted once the drain timed out
+        Thread.sleep(1_500);
+        assertEquals(0, completed.get());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
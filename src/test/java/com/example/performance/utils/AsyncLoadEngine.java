@@ -0,0 +1,298 @@
+package com.example.performance.utils;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.Method;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.nio.support.BasicRequestProducer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Async Load Engine
+ *
+ * Non-blocking HTTP load engine on the httpclient5 async client. A few I/O reactor threads
+ * multiplex every connection of a pooled, keep-alive connection manager, so throughput is not
+ * bounded by one blocked thread per request as with RestAssured.
+ *
+ * Each exchange is a single object that consumes the response in place: the body is counted and
+ * discarded rather than buffered, and completion is recorded straight into a
+ * {@link PerformanceMetricsCollector} on the reactor thread. Failed exchanges (connect errors,
+ * timeouts) are recorded as status 0, i.e. as errors.
+ *
+ * Two ways to drive it:
+ *  - closed loop: {@link #runClosedLoop} keeps a fixed number of requests outstanding; each
+ *    completion issues the next request directly from its callback
+ *  - open model: {@link #submit(URI, long, PerformanceMetricsCollector)} from a pacing loop such as
+ *    {@link ArrivalRateScheduler} or {@link LoadProfile} (use a direct executor, {@code Runnable::run},
+ *    since submission does not block unless the in-flight cap is reached)
+ */
+public class AsyncLoadEngine implements AutoCloseable {
+
+    private final int maxConnections;
+    private final int maxInFlight;
+    private final int ioThreads;
+    private final Timeout responseTimeout;
+    private final Semaphore permits;
+    private final LongAdder failures = new LongAdder();
+    /** Set by start(), cleared by close(); read by submitting threads */
+    private volatile CloseableHttpAsyncClient client;
+
+    /** One I/O thread per core, 30 s response timeout. */
+    public AsyncLoadEngine(int maxConnections, int maxInFlight) {
+        this(maxConnections, maxInFlight, Runtime.getRuntime().availableProcessors(), 30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param maxConnections pooled keep-alive connections (per route and in total)
+     * @param maxInFlight    outstanding requests; {@link #submit} blocks beyond this
+     * @param ioThreads      I/O reactor threads
+     */
+    public AsyncLoadEngine(int maxConnections, int maxInFlight, int ioThreads, long responseTimeout, TimeUnit unit) {
+        if (maxConnections < 1 || maxInFlight < 1 || ioThreads < 1) {
+            throw new IllegalArgumentException("maxConnections, maxInFlight and ioThreads must be positive");
+        }
+        this.maxConnections = maxConnections;
+        this.maxInFlight = maxInFlight;
+        this.ioThreads = ioThreads;
+        this.responseTimeout = Timeout.of(responseTimeout, unit);
+        this.permits = new Semaphore(maxInFlight);
+    }
+
+    public void start() {
+        PoolingAsyncClientConnectionManager connections = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                // Re-check connections that sat idle, e.g. between runs, before reusing them
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(1))
+                        .build())
+                .build();
+        IOReactorConfig reactor = IOReactorConfig.custom()
+                .setIoThreadCount(ioThreads)
+                .setSoTimeout(responseTimeout)
+                .setTcpNoDelay(true)
+                .build();
+        CloseableHttpAsyncClient c = HttpAsyncClients.custom()
+                .setConnectionManager(connections)
+                .setIOReactorConfig(reactor)
+                .disableCookieManagement()
+                .disableRedirectHandling()
+                .disableAutomaticRetries()
+                .build();
+        c.start();
+        client = c;
+    }
+
+    /**
+     * Sends a GET to {@code uri} and records it against {@code intendedStartNanos}
+     * (System.nanoTime()), correcting for coordinated omission. Blocks only while
+     * {@code maxInFlight} requests are outstanding.
+     */
+    public void submit(URI uri, long intendedStartNanos, PerformanceMetricsCollector metrics)
+            throws InterruptedException {
+        permits.acquire();
+        send(uri, new Exchange(metrics, true, intendedStartNanos, null));
+    }
+
+    /**
+     * Keeps {@code concurrency} requests outstanding for {@code duration}: every completion
+     * immediately sends the next one to {@code uris.get()}. Returns once the last request finished.
+     * {@code concurrency} should not exceed {@code maxInFlight}.
+     */
+    public void runClosedLoop(Supplier<URI> uris, int concurrency, long duration, TimeUnit unit,
+                              PerformanceMetricsCollector metrics) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(duration);
+        CountDownLatch lanesDone = new CountDownLatch(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            new Lane(uris, deadline, metrics, lanesDone).next();
+        }
+        lanesDone.await();
+    }
+
+    /** Waits until no request is outstanding; returns false on timeout. */
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        if (!permits.tryAcquire(maxInFlight, timeout, unit)) return false;
+        permits.release(maxInFlight);
+        return true;
+    }
+
+    public int getInFlight() { return maxInFlight - permits.availablePermits(); }
+
+    /** Exchanges that failed without a response (also recorded as errors). */
+    public long getFailures() { return failures.sum(); }
+
+    @Override
+    public void close() {
+        CloseableHttpAsyncClient c = client;
+        if (c != null) {
+            client = null;
+            c.close(CloseMode.GRACEFUL);
+        }
+    }
+
+    /** Sends the exchange, whose in-flight permit the caller holds; gives the permit back if that fails. */
+    private void send(URI uri, Exchange exchange) {
+        try {
+            CloseableHttpAsyncClient c = client;
+            if (c == null) throw new IllegalStateException("Async load engine is not started");
+            exchange.serviceStart = System.nanoTime();
+            // execute() throws if close() got in after the read above
+            c.execute(new BasicRequestProducer(Method.GET, uri), exchange, exchange);
+        } catch (RuntimeException e) {
+            exchange.abandon();
+            throw e;
+        }
+    }
+
+    /** A closed-loop virtual user: one outstanding request at a time, chained through callbacks. */
+    private final class Lane {
+        final Supplier<URI> uris;
+        final long deadline;
+        final PerformanceMetricsCollector metrics;
+        final CountDownLatch done;
+
+        Lane(Supplier<URI> uris, long deadline, PerformanceMetricsCollector metrics, CountDownLatch done) {
+            this.uris = uris;
+            this.deadline = deadline;
+            this.metrics = metrics;
+            this.done = done;
+        }
+
+        void next() {
+            long now = System.nanoTime();
+            if (now - deadline >= 0 || client == null || !permits.tryAcquire()) {
+                done.countDown();
+                return;
+            }
+            Exchange exchange = new Exchange(metrics, false, 0, this);
+            URI uri;
+            try {
+                uri = uris.get();
+            } catch (RuntimeException e) {
+                exchange.abandon();
+                throw e;
+            }
+            send(uri, exchange);
+        }
+    }
+
+    /**
+     * Response consumer and completion callback in one: counts the body without buffering it and
+     * records the sample when the exchange ends.
+     */
+    private final class Exchange implements AsyncResponseConsumer<Exchange>, FutureCallback<Exchange> {
+        final PerformanceMetricsCollector metrics;
+        /** False for closed-loop requests, which are timed from when they were sent */
+        final boolean scheduled;
+        /** System.nanoTime() the request was due; only meaningful when {@link #scheduled} */
+        final long intendedStart;
+        final Lane lane;
+        long serviceStart;
+        int status;
+        long bytes;
+        FutureCallback<Exchange> resultCallback;
+        /** Reactor callbacks and cancellation/timeout paths may race to finish; only the first counts */
+        final AtomicBoolean finished = new AtomicBoolean();
+
+        Exchange(PerformanceMetricsCollector metrics, boolean scheduled, long intendedStart, Lane lane) {
+            this.metrics = metrics;
+            this.scheduled = scheduled;
+            this.intendedStart = intendedStart;
+            this.lane = lane;
+        }
+
+        @Override
+        public void consumeResponse(HttpResponse response, EntityDetails entityDetails, HttpContext context,
+                                    FutureCallback<Exchange> callback) {
+            status = response.getCode();
+            if (entityDetails == null) {
+                callback.completed(this);
+            } else {
+                resultCallback = callback;
+            }
+        }
+
+        @Override
+        public void informationResponse(HttpResponse response, HttpContext context) {
+        }
+
+        @Override
+        public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+            capacityChannel.update(Integer.MAX_VALUE);
+        }
+
+        @Override
+        public void consume(ByteBuffer src) {
+            bytes += src.remaining();
+            src.position(src.limit());
+        }
+
+        @Override
+        public void streamEnd(List<? extends Header> trailers) {
+            if (resultCallback != null) resultCallback.completed(this);
+        }
+
+        @Override
+        public void releaseResources() {
+        }
+
+        // Shared by AsyncResponseConsumer and FutureCallback; either may report the failure first
+        @Override
+        public void failed(Exception ex) {
+            finish(0);
+        }
+
+        @Override
+        public void completed(Exchange result) {
+            finish(status);
+        }
+
+        @Override
+        public void cancelled() {
+            finish(0);
+        }
+
+        /** The request was never sent: frees its permit and ends its lane, unless a callback already finished it. */
+        void abandon() {
+            if (!finished.compareAndSet(false, true)) return;
+            permits.release();
+            if (lane != null) lane.done.countDown();
+        }
+
+        private void finish(int httpStatus) {
+            if (!finished.compareAndSet(false, true)) return;
+            long end = System.nanoTime();
+            if (httpStatus == 0) failures.increment();
+            if (scheduled) {
+                metrics.recordScheduled(intendedStart, serviceStart, end, httpStatus, bytes);
+            } else {
+                metrics.recordDurationMicros(TimeUnit.NANOSECONDS.toMicros(end - serviceStart), httpStatus, bytes);
+            }
+            permits.release();
+            if (lane != null) lane.next();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.performance.utils;
+
+import com.example.mock.WeatherApiMockServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.ServerSocket;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AsyncLoadEngineTest {
+
+    private WeatherApiMockServer mock;
+    private URI current;
+
+    @Before
+    public void setUp() {
+        mock = new WeatherApiMockServer();
+        mock.start(0);
+        current = URI.create(mock.baseUrl() + "/current.json?q=London");
+    }
+
+    @After
+    public void tearDown() {
+        mock.stop();
+    }
+
+    @Test
+    public void submittedRequestsAreRecordedAgainstTheirIntendedStart() throws Exception {
+        PerformanceMetricsCollector metrics = new PerformanceMetricsCollector("async-open", 0);
+        try (AsyncLoadEngine engine = new AsyncLoadEngine(4, 2, 1, 5, TimeUnit.SECONDS)) {
+            engine.start();
+            // Intended 50 ms ago: the queueing delay must show up in the response time only
+            long intended = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(50);
+            for (int i = 0; i < 20; i++) {
+                engine.submit(current, intended, metrics);
+                assertTrue(engine.getInFlight() <= 2);
+            }
+            assertTrue(engine.awaitIdle(5, TimeUnit.SECONDS));
+            assertEquals(0, engine.getInFlight());
+            assertEquals(0, engine.getFailures());
+        }
+
+        PerformanceMetricsCollector.PerformanceReport report = metrics.getReport();
+        assertEquals(20, report.totalRequests);
+        assertEquals(20, report.successCount);
+        assertEquals(20, report.scheduledRequests);
+        assertTrue("bytes " + report.totalBytes, report.totalBytes > 20 * 100);
+        assertTrue(report.correctedMaxResponseTime >= 50.0);
+        assertTrue(report.maxResponseTime < report.correctedMaxResponseTime);
+    }
+
+    @Test
+    public void closedLoopKeepsLanesBusyUntilTheDeadline() throws Exception {
+        PerformanceMetricsCollector metrics = new PerformanceMetricsCollector("async-closed", 0);
+        try (AsyncLoadEngine engine = new AsyncLoadEngine(4, 4)) {
+            engine.start();
+            long begin = System.nanoTime();
+            engine.runClosedLoop(() -> current, 4, 300, TimeUnit.MILLISECONDS, metrics);
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+
+            assertTrue("elapsed " + elapsedMillis, elapsedMillis >= 300);
+            assertEquals(0, engine.getInFlight());
+        }
+        PerformanceMetricsCollector.PerformanceReport report = metrics.getReport();
+        assertTrue("requests " + report.totalRequests, report.totalRequests > 4);
+        assertEquals(0, report.errorCount);
+        assertEquals(0, report.scheduledRequests);
+    }
+
+    @Test
+    public void failedExchangesAreErrorsAndReleaseTheirPermit() throws Exception {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        PerformanceMetricsCollector metrics = new PerformanceMetricsCollector("async-failures", 0);
+        try (AsyncLoadEngine engine = new AsyncLoadEngine(2, 1, 1, 2, TimeUnit.SECONDS)) {
+            try {
+                engine.submit(current, System.nanoTime(), metrics);
+                fail("Expected submit before start to be rejected");
+            } catch (IllegalStateException expected) {
+                assertEquals(0, engine.getInFlight());
+            }
+
+            engine.start();
+            URI refused = URI.create("http://localhost:" + closedPort + "/current.json?q=London");
+            for (int i = 0; i < 3; i++) {
+                engine.submit(refused, System.nanoTime(), metrics);
+            }
+            assertTrue(engine.awaitIdle(5, TimeUnit.SECONDS));
+            assertEquals(3, engine.getFailures());
+        }
+        PerformanceMetricsCollector.PerformanceReport report = metrics.getReport();
+        assertEquals(3, report.totalRequests);
+        assertEquals(3, report.errorCount);
+    }
+
+    @Test
+    public void requestsThatCannotBeSentGiveBackTheirPermitAndLane() throws Exception {
+        PerformanceMetricsCollector metrics = new PerformanceMetricsCollector("async-unsent", 0);
+        AtomicInteger calls = new AtomicInteger();
+        try (AsyncLoadEngine engine = new AsyncLoadEngine(2, 2)) {
+            engine.start();
+            // Three requests go out, then the next target fails inside a completion callback
+            Thread loop = new Thread(() -> {
+                try {
+                    engine.runClosedLoop(() -> {
+                        if (calls.incrementAndGet() > 3) throw new IllegalStateException("no more targets");
+                        return current;
+                    }, 1, 30, TimeUnit.SECONDS, metrics);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            loop.start();
+            loop.join(10_000);
+            assertFalse("runClosedLoop must end when its lane cannot send", loop.isAlive());
+            assertEquals(0, engine.getInFlight());
+        }
+        assertEquals(3, metrics.getReport().totalRequests);
+    }
+}
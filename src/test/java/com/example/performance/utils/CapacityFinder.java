@@ -0,0 +1,242 @@
+package com.example.performance.utils;
+
+import com.example.performance.config.PerformanceConfig;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Capacity Finder
+ *
+ * Searches for the highest arrival rate the system sustains within SLA, instead of hand-tuning
+ * perf.users. Each trial runs the workload at one fixed rate and is judged on its report:
+ *  - p95 and p99 (measured from the intended start) within the SLA thresholds
+ *  - success rate at or above the SLA threshold
+ *  - achieved throughput at least {@code keepUpRatio} of the target, so a generator or server
+ *    that silently falls behind does not pass
+ *
+ * The search first multiplies the rate by {@code growthFactor} until a trial fails (or
+ * {@code maxRate} is reached), then binary-searches between the last passing and the first failing
+ * rate until they are within {@code resolutionPercent} of each other. If the start rate already
+ * fails, the result is 0; lower the start rate and search again. Every trial is kept, so the
+ * result doubles as the latency-vs-throughput curve.
+ */
+public class CapacityFinder {
+
+    /** Runs the workload at {@code ratePerSecond} and returns its report. */
+    @FunctionalInterface
+    public interface Trial {
+        PerformanceMetricsCollector.PerformanceReport run(double ratePerSecond) throws InterruptedException;
+    }
+
+    /** One trial on the latency-vs-throughput curve. */
+    public static final class Point {
+        public final double targetRate;
+        public final PerformanceMetricsCollector.PerformanceReport report;
+        public final boolean meetsSla;
+        public final String failure;
+
+        Point(double targetRate, PerformanceMetricsCollector.PerformanceReport report, String failure) {
+            this.targetRate = targetRate;
+            this.report = report;
+            this.meetsSla = failure == null;
+            this.failure = failure;
+        }
+    }
+
+    /** Outcome of a search: the highest passing rate (0 if none passed) and every trial, by rate. */
+    public static final class Result {
+        public final double maxSustainableRate;
+        public final List<Point> curve;
+
+        Result(double maxSustainableRate, List<Point> curve) {
+            this.maxSustainableRate = maxSustainableRate;
+            this.curve = Collections.unmodifiableList(curve);
+        }
+
+        public void print() {
+            System.out.println("=".repeat(80));
+            System.out.println("CAPACITY SEARCH");
+            System.out.println("=".repeat(80));
+            System.out.printf(Locale.ROOT, "%10s %10s %10s %10s %10s %8s  %s%n",
+                    "target/s", "achieved/s", "p50 ms", "p95 ms", "p99 ms", "err %", "verdict");
+            for (Point p : curve) {
+                PerformanceMetricsCollector.PerformanceReport r = p.report;
+                System.out.printf(Locale.ROOT, "%10.2f %10.2f %10.3f %10.3f %10.3f %8.2f  %s%n",
+                        p.targetRate, r.throughput, r.correctedMedianResponseTime, r.correctedP95ResponseTime,
+                        r.correctedP99ResponseTime, r.errorRate, p.meetsSla ? "pass" : "FAIL (" + p.failure + ")");
+            }
+            System.out.printf(Locale.ROOT, "Max sustainable rate within SLA: %.2f req/s%n", maxSustainableRate);
+            System.out.println("=".repeat(80));
+        }
+
+        /** Writes the curve, one trial per row, sorted by target rate. */
+        public void exportToCSV(String path) {
+            try {
+                Path p = Paths.get(path);
+                if (p.getParent() != null) Files.createDirectories(p.getParent());
+                try (PrintWriter out = new PrintWriter(new FileWriter(path))) {
+                    out.println("target_rate,achieved_rate,requests,error_rate,p50_ms,p95_ms,p99_ms,max_ms,meets_sla");
+                    for (Point pt : curve) {
+                        PerformanceMetricsCollector.PerformanceReport r = pt.report;
+                        out.printf(Locale.ROOT, "%.3f,%.3f,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%s%n",
+                                pt.targetRate, r.throughput, r.totalRequests, r.errorRate,
+                                r.correctedMedianResponseTime, r.correctedP95ResponseTime,
+                                r.correctedP99ResponseTime, r.correctedMaxResponseTime, pt.meetsSla);
+                    }
+                }
+                System.out.println("Capacity curve exported to: " + path);
+            } catch (IOException e) {
+                System.err.println("Failed to export capacity curve: " + e.getMessage());
+            }
+        }
+    }
+
+    private final Trial trial;
+    private double startRate = PerformanceConfig.CAPACITY_START_RATE;
+    private double maxRate = PerformanceConfig.CAPACITY_MAX_RATE;
+    private double growthFactor = 2.0;
+    private double resolutionPercent = PerformanceConfig.CAPACITY_RESOLUTION_PERCENT;
+    private double keepUpRatio = 0.9;
+    private double p95Ms = PerformanceConfig.RESPONSE_TIME_P95_THRESHOLD;
+    private double p99Ms = PerformanceConfig.RESPONSE_TIME_P99_THRESHOLD;
+    private double successRatePercent = PerformanceConfig.SUCCESS_RATE_THRESHOLD;
+    private boolean warmup = true;
+
+    /** Uses the SLA thresholds and perf.capacity.* settings from {@link PerformanceConfig}. */
+    public CapacityFinder(Trial trial) {
+        this.trial = trial;
+    }
+
+    public CapacityFinder rates(double startRate, double maxRate) {
+        if (startRate <= 0 || maxRate < startRate) {
+            throw new IllegalArgumentException("Need 0 < startRate <= maxRate: " + startRate + ", " + maxRate);
+        }
+        this.startRate = startRate;
+        this.maxRate = maxRate;
+        return this;
+    }
+
+    public CapacityFinder growthFactor(double growthFactor) {
+        if (growthFactor <= 1) throw new IllegalArgumentException("growthFactor must be > 1: " + growthFactor);
+        this.growthFactor = growthFactor;
+        return this;
+    }
+
+    /** Stop the binary search once the pass/fail bracket is narrower than this share of the rate. */
+    public CapacityFinder resolutionPercent(double resolutionPercent) {
+        if (resolutionPercent <= 0) throw new IllegalArgumentException("resolutionPercent must be positive");
+        this.resolutionPercent = resolutionPercent;
+        return this;
+    }
+
+    /** Minimum achieved/target throughput for a trial to pass; 0 disables the check. */
+    public CapacityFinder keepUpRatio(double keepUpRatio) {
+        this.keepUpRatio = keepUpRatio;
+        return this;
+    }
+
+    public CapacityFinder sla(double p95Ms, double p99Ms, double successRatePercent) {
+        this.p95Ms = p95Ms;
+        this.p99Ms = p99Ms;
+        this.successRatePercent = successRatePercent;
+        return this;
+    }
+
+    /**
+     * Whether to run one discarded trial at the start rate first (default), so class loading, JIT
+     * and connection setup do not fail the first step.
+     */
+    public CapacityFinder warmup(boolean warmup) {
+        this.warmup = warmup;
+        return this;
+    }
+
+    public Result find() throws InterruptedException {
+        if (warmup) {
+            System.out.printf(Locale.ROOT, "[CapacityFinder] Warm-up at %.2f req/s (not counted)%n", startRate);
+            trial.run(startRate);
+        }
+        List<Point> curve = new ArrayList<>();
+        double lastPass = 0;
+        double firstFail = Double.NaN;
+
+        // Step up geometrically until the first failure
+        for (double rate = startRate; ; rate = Math.min(maxRate, rate * growthFactor)) {
+            Point p = runTrial(rate, curve);
+            if (!p.meetsSla) {
+                firstFail = rate;
+                break;
+            }
+            lastPass = rate;
+            if (rate >= maxRate) break;
+        }
+
+        // Narrow in on the knee; if even the start rate failed there is no bracket to search
+        if (!Double.isNaN(firstFail) && lastPass > 0) {
+            double lo = lastPass;
+            double hi = firstFail;
+            while (hi - lo > hi * resolutionPercent / 100.0) {
+                double mid = (lo + hi) / 2;
+                if (runTrial(mid, curve).meetsSla) lo = mid; else hi = mid;
+            }
+            lastPass = lo;
+        }
+
+        curve.sort(Comparator.comparingDouble(p -> p.targetRate));
+        return new Result(lastPass, curve);
+    }
+
+    private Point runTrial(double rate, List<Point> curve) throws InterruptedException {
+        System.out.printf(Locale.ROOT, "[CapacityFinder] Trial at %.2f req/s%n", rate);
+        PerformanceMetricsCollector.PerformanceReport report = trial.run(rate);
+        Point p = new Point(rate, report, verdict(rate, report));
+        curve.add(p);
+        System.out.printf(Locale.ROOT, "[CapacityFinder]   p95 %.3f ms, p99 %.3f ms, %.2f%% errors, %.2f req/s -> %s%n",
+                report.correctedP95ResponseTime, report.correctedP99ResponseTime, report.errorRate,
+                report.throughput, p.meetsSla ? "pass" : "fail: " + p.failure);
+        return p;
+    }
+
+    /** Null if the trial passed, otherwise the first reason it did not. */
+    private String verdict(double rate, PerformanceMetricsCollector.PerformanceReport r) {
+        if (r.totalRequests == 0) return "no requests completed";
+        if (!r.meetsCorrectedSLA(p95Ms, p99Ms, successRatePercent)) {
+            if (r.correctedP95ResponseTime > p95Ms) return "p95 above " + p95Ms + " ms";
+            if (r.correctedP99ResponseTime > p99Ms) return "p99 above " + p99Ms + " ms";
+            return "success rate below " + successRatePercent + "%";
+        }
+        if (r.throughput < rate * keepUpRatio) {
+            return String.format(Locale.ROOT, "achieved %.2f req/s", r.throughput);
+        }
+        return null;
+    }
+
+    /**
+     * Open-model trial: an {@link ArrivalRateScheduler} at the trial rate on virtual threads for
+     * {@code duration}, recording into a fresh histogram collector. {@code request} receives the
+     * intended start (System.nanoTime()) and the collector, typically calling
+     * {@link PerformanceMetricsCollector#timedFrom}.
+     */
+    public static Trial scheduledTrial(long duration, TimeUnit unit,
+                                       BiConsumer<Long, PerformanceMetricsCollector> request) {
+        return rate -> {
+            PerformanceMetricsCollector metrics = PerformanceMetricsCollector.histogram(
+                    String.format(Locale.ROOT, "capacity-%.2f", rate), 2);
+            new ArrivalRateScheduler(rate).run(duration, duration, unit,
+                    intendedStart -> request.accept(intendedStart, metrics));
+            return metrics.getReport();
+        };
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.performance.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CapacityFinderTest {
+
+    /** Synthetic system: latency explodes once the rate exceeds {@code knee}. */
+    private static CapacityFinder.Trial syntheticSystem(double knee, List<Double> trials) {
+        return rate -> {
+            trials.add(rate);
+            PerformanceMetricsCollector metrics = PerformanceMetricsCollector.histogram("synthetic", 2);
+            long latencyMicros = rate <= knee ? 20_000 : 3_000_000;
+            for (int i = 0; i < 100; i++) {
+                metrics.recordDurationMicros(latencyMicros, 200);
+            }
+            return metrics.getReport();
+        };
+    }
+
+    @Test
+    public void findsTheKneeWithinResolution() throws InterruptedException {
+        List<Double> trials = new ArrayList<>();
+        CapacityFinder.Result result = new CapacityFinder(syntheticSystem(137, trials))
+                .rates(5, 10_000)
+                .resolutionPercent(2)
+                .keepUpRatio(0)
+                .sla(2000, 5000, 99)
+                .warmup(false)
+                .find();
+
+        assertTrue("found " + result.maxSustainableRate, result.maxSustainableRate <= 137);
+        assertTrue("found " + result.maxSustainableRate, result.maxSustainableRate >= 137 * 0.98);
+        assertEquals(trials.size(), result.curve.size());
+        for (int i = 1; i < result.curve.size(); i++) {
+            assertTrue(result.curve.get(i).targetRate > result.curve.get(i - 1).targetRate);
+        }
+        // 5, 10, 20, 40, 80, 160 stepping up, then a handful of bisections
+        assertTrue("trials " + trials, trials.size() <= 12);
+    }
+
+    @Test
+    public void reportsZeroWhenTheStartRateAlreadyFails() throws InterruptedException {
+        List<Double> trials = new ArrayList<>();
+        CapacityFinder.Result result = new CapacityFinder(syntheticSystem(1, trials))
+                .rates(5, 100)
+                .keepUpRatio(0)
+                .sla(2000, 5000, 99)
+                .find();
+
+        assertEquals(0.0, result.maxSustainableRate, 0.0);
+        assertEquals(1, result.curve.size());
+        // the warm-up trial runs but is not part of the curve
+        assertEquals(2, trials.size());
+        assertFalse(result.curve.get(0).meetsSla);
+    }
+
+    @Test
+    public void stopsAtMaxRateWhenNothingFails() throws InterruptedException {
+        CapacityFinder.Result result = new CapacityFinder(syntheticSystem(1_000_000, new ArrayList<>()))
+                .rates(10, 300)
+                .keepUpRatio(0)
+                .sla(2000, 5000, 99)
+                .find();
+
+        assertEquals(300.0, result.maxSustainableRate, 0.0);
+    }
+}
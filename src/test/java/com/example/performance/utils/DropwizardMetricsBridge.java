@@ -0,0 +1,233 @@
+package com.example.performance.utils;
+
+import com.codahale.metrics.ConsoleReporter;
+import com.codahale.metrics.CsvReporter;
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.ScheduledReporter;
+import com.codahale.metrics.SlidingTimeWindowArrayReservoir;
+import com.codahale.metrics.Timer;
+import com.example.performance.config.PerformanceConfig;
+
+import java.io.File;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Dropwizard Metrics Bridge
+ *
+ * Mirrors samples from {@link PerformanceMetricsCollector}s and {@link MetricsRegistry}s into a
+ * Dropwizard {@link MetricRegistry}, so the stock scheduled reporters (CSV, console) can print
+ * periodic reports during long runs with bounded memory. Per endpoint it maintains:
+ *  - perf.&lt;endpoint&gt;.service   Timer (send to completion)
+ *  - perf.&lt;endpoint&gt;.response  Timer (scheduled start to completion)
+ *  - perf.&lt;endpoint&gt;.errors    Meter (non 2xx/3xx)
+ *  - perf.&lt;endpoint&gt;.bytes     Histogram (response size)
+ *  - perf.&lt;name&gt;.inFlight      Gauge (one per bound collector or registry)
+ *
+ * Reservoirs (perf.dropwizard.reservoir):
+ *  - hdr: {@link LatencyHistogramReservoir} in interval mode, every sample counted, fixed memory,
+ *    percentiles per report period (default)
+ *  - sliding-time-window: {@link SlidingTimeWindowArrayReservoir}, exact but memory grows with
+ *    rate x window (perf.dropwizard.windowSeconds)
+ *  - exponentially-decaying: {@link ExponentiallyDecayingReservoir}, 1028-sample forward-decaying
+ *    sample biased towards the last ~5 minutes
+ *
+ * Reporters are not scheduled on their own: the bridge runs one reporting tick that rotates every
+ * hdr reservoir and then has each reporter report, so all reporters print the same interval. They
+ * therefore share one period.
+ */
+public class DropwizardMetricsBridge implements SampleListener, AutoCloseable {
+
+    public enum ReservoirType {
+        HDR, SLIDING_TIME_WINDOW, EXPONENTIALLY_DECAYING;
+
+        /** Parses "hdr", "sliding-time-window" or "exponentially-decaying" (case-insensitive). */
+        public static ReservoirType parse(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+    }
+
+    private static final class EndpointMetrics {
+        final Timer service;
+        final Timer response;
+        final Meter errors;
+        final Histogram bytes;
+
+        EndpointMetrics(MetricRegistry registry, String prefix, Supplier<Reservoir> reservoirs) {
+            this.service = registry.timer(prefix + ".service", () -> new Timer(reservoirs.get()));
+            this.response = registry.timer(prefix + ".response", () -> new Timer(reservoirs.get()));
+            this.errors = registry.meter(prefix + ".errors");
+            this.bytes = registry.histogram(prefix + ".bytes", () -> new Histogram(reservoirs.get()));
+        }
+    }
+
+    private static final long HDR_MAX_NANOS = TimeUnit.HOURS.toNanos(1);
+
+    private final MetricRegistry registry;
+    private final Supplier<Reservoir> reservoirs;
+    private final Map<String, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+    private final List<ScheduledReporter> reporters = new CopyOnWriteArrayList<>();
+    /** Interval-mode reservoirs, rotated on every reporting tick */
+    private final List<LatencyHistogramReservoir> intervalReservoirs = new CopyOnWriteArrayList<>();
+    private ScheduledExecutorService ticker;
+    private long tickNanos;
+
+    /** Fresh registry with the reservoir and window from configuration. */
+    public DropwizardMetricsBridge() {
+        this(new MetricRegistry(),
+                ReservoirType.parse(PerformanceConfig.DROPWIZARD_RESERVOIR),
+                PerformanceConfig.DROPWIZARD_WINDOW_SECONDS);
+    }
+
+    /**
+     * @param windowSeconds only used by {@link ReservoirType#SLIDING_TIME_WINDOW}
+     */
+    public DropwizardMetricsBridge(MetricRegistry registry, ReservoirType type, long windowSeconds) {
+        this.registry = registry;
+        switch (type) {
+            case SLIDING_TIME_WINDOW:
+                this.reservoirs = () -> new SlidingTimeWindowArrayReservoir(windowSeconds, TimeUnit.SECONDS);
+                break;
+            case EXPONENTIALLY_DECAYING:
+                this.reservoirs = ExponentiallyDecayingReservoir::new;
+                break;
+            default:
+                // Interval mode: a cumulative reservoir would report whole-run percentiles every period
+                this.reservoirs = () -> {
+                    LatencyHistogramReservoir reservoir = new LatencyHistogramReservoir(HDR_MAX_NANOS, 2, true);
+                    intervalReservoirs.add(reservoir);
+                    return reservoir;
+                };
+        }
+    }
+
+    /** A reservoir of the configured type, as used for every timer and histogram of this bridge. */
+    Reservoir newReservoir() {
+        return reservoirs.get();
+    }
+
+    public MetricRegistry getRegistry() { return registry; }
+
+    /** Mirrors the collector's samples and exposes its in-flight count as a gauge. */
+    public DropwizardMetricsBridge bind(PerformanceMetricsCollector collector) {
+        registry.gauge(metricName(collector.getName()) + ".inFlight", () -> (Gauge<Long>) collector::getActiveRequests);
+        collector.addListener(this);
+        return this;
+    }
+
+    /** Mirrors the registry's samples (one set of metrics per "METHOD endpoint") and its in-flight count. */
+    public DropwizardMetricsBridge bind(MetricsRegistry metricsRegistry) {
+        registry.gauge(metricName(metricsRegistry.getName()) + ".inFlight", () -> (Gauge<Long>) metricsRegistry::getActiveRequests);
+        metricsRegistry.addListener(this);
+        return this;
+    }
+
+    @Override
+    public void onSample(String endpoint, int httpStatus, long serviceMicros, long responseMicros,
+                         long responseBytes, boolean scheduled) {
+        EndpointMetrics m = endpoints.get(endpoint);
+        if (m == null) {
+            m = endpoints.computeIfAbsent(endpoint, e -> new EndpointMetrics(registry, metricName(e), reservoirs));
+        }
+        m.service.update(serviceMicros, TimeUnit.MICROSECONDS);
+        m.response.update(responseMicros, TimeUnit.MICROSECONDS);
+        if (httpStatus < 200 || httpStatus >= 400) m.errors.mark();
+        m.bytes.update(responseBytes);
+    }
+
+    /** Prints all metrics to stdout every {@code period}. */
+    public DropwizardMetricsBridge startConsoleReporter(long period, TimeUnit unit) {
+        return startReporter(ConsoleReporter.forRegistry(registry)
+                .convertRatesTo(TimeUnit.SECONDS)
+                .convertDurationsTo(TimeUnit.MILLISECONDS)
+                .build(), period, unit);
+    }
+
+    /** Appends one CSV row per metric to {@code directory/<metric>.csv} every {@code period}. */
+    public DropwizardMetricsBridge startCsvReporter(File directory, long period, TimeUnit unit) {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IllegalStateException("Cannot create CSV report directory " + directory);
+        }
+        CsvReporter reporter = CsvReporter.forRegistry(registry)
+                .formatFor(Locale.ROOT)
+                .convertRatesTo(TimeUnit.SECONDS)
+                .convertDurationsTo(TimeUnit.MILLISECONDS)
+                .build(directory);
+        return startReporter(reporter, period, unit);
+    }
+
+    /**
+     * Has {@code reporter} (built on {@link #getRegistry()}, not started) report on the bridge's
+     * tick. The first reporter sets the period; later ones must use the same.
+     */
+    public synchronized DropwizardMetricsBridge startReporter(ScheduledReporter reporter, long period, TimeUnit unit) {
+        long nanos = unit.toNanos(period);
+        if (nanos <= 0) throw new IllegalArgumentException("Report period must be positive");
+        if (ticker == null) {
+            ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "dropwizard-report");
+                t.setDaemon(true);
+                return t;
+            });
+            tickNanos = nanos;
+            ticker.scheduleAtFixedRate(this::report, nanos, nanos, TimeUnit.NANOSECONDS);
+        } else if (nanos != tickNanos) {
+            throw new IllegalArgumentException("All reporters of a bridge share one period: "
+                    + TimeUnit.NANOSECONDS.toMillis(tickNanos) + " ms, not " + unit.toMillis(period) + " ms");
+        }
+        reporters.add(reporter);
+        return this;
+    }
+
+    /** One reporting tick: closes the current interval of every hdr reservoir, then runs every reporter. */
+    synchronized void report() {
+        for (LatencyHistogramReservoir reservoir : intervalReservoirs) {
+            reservoir.rotate();
+        }
+        for (ScheduledReporter reporter : reporters) {
+            try {
+                reporter.report();
+            } catch (RuntimeException e) {
+                // A failure must not cancel the schedule
+                System.err.println("[DropwizardMetricsBridge] Report failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /** Stops the tick and writes one final report of the last, partial interval. */
+    @Override
+    public void close() {
+        ScheduledExecutorService t;
+        synchronized (this) {
+            t = ticker;
+            ticker = null;
+        }
+        if (t == null) return;
+        t.shutdown();
+        try {
+            if (!t.awaitTermination(10, TimeUnit.SECONDS)) t.shutdownNow();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        report();
+        // The reporters were never started, so they own no thread; stop() would only report again
+        reporters.clear();
+    }
+
+    /** Dropwizard names double as CSV file names, so keep them file-system safe. */
+    private static String metricName(String endpoint) {
+        return MetricRegistry.name("perf", endpoint.replaceAll("[^A-Za-z0-9._-]+", "_").replaceAll("^_+|_+$", ""));
+    }
+}
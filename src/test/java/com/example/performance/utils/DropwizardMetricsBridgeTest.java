@@ -0,0 +1,106 @@
+package com.example.performance.utils;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.ScheduledReporter;
+import com.codahale.metrics.SlidingTimeWindowArrayReservoir;
+import com.codahale.metrics.Timer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class DropwizardMetricsBridgeTest {
+
+    private static final String SERVICE = "perf.GET_current.json.service";
+
+    /** Records the service-timer count of every report instead of printing it. */
+    private static final class CountingReporter extends ScheduledReporter {
+        final List<Integer> intervalSizes = new ArrayList<>();
+
+        CountingReporter(MetricRegistry registry) {
+            super(registry, "counting", MetricFilter.ALL, TimeUnit.SECONDS, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes")
+        public void report(SortedMap<String, Gauge> gauges, SortedMap<String, Counter> counters,
+                           SortedMap<String, Histogram> histograms, SortedMap<String, Meter> meters,
+                           SortedMap<String, Timer> timers) {
+            Timer service = timers.get(SERVICE);
+            intervalSizes.add(service == null ? -1 : service.getSnapshot().size());
+        }
+    }
+
+    @Test
+    public void reservoirTypeSelectsTheReservoir() {
+        assertTrue(new DropwizardMetricsBridge(new MetricRegistry(), DropwizardMetricsBridge.ReservoirType.SLIDING_TIME_WINDOW, 60)
+                .newReservoir() instanceof SlidingTimeWindowArrayReservoir);
+        assertTrue(new DropwizardMetricsBridge(new MetricRegistry(), DropwizardMetricsBridge.ReservoirType.EXPONENTIALLY_DECAYING, 60)
+                .newReservoir() instanceof ExponentiallyDecayingReservoir);
+        LatencyHistogramReservoir hdr = (LatencyHistogramReservoir) new DropwizardMetricsBridge(
+                new MetricRegistry(), DropwizardMetricsBridge.ReservoirType.HDR, 60).newReservoir();
+        assertTrue(hdr.isInterval());
+
+        assertEquals(DropwizardMetricsBridge.ReservoirType.SLIDING_TIME_WINDOW,
+                DropwizardMetricsBridge.ReservoirType.parse(" Sliding-Time-Window "));
+        assertEquals(DropwizardMetricsBridge.ReservoirType.EXPONENTIALLY_DECAYING,
+                DropwizardMetricsBridge.ReservoirType.parse("exponentially-decaying"));
+    }
+
+    @Test
+    public void mirrorsCollectorSamples() {
+        PerformanceMetricsCollector collector = PerformanceMetricsCollector.histogram("GET /current.json", 2);
+        DropwizardMetricsBridge bridge = new DropwizardMetricsBridge(new MetricRegistry(),
+                DropwizardMetricsBridge.ReservoirType.SLIDING_TIME_WINDOW, 60).bind(collector);
+        collector.recordDurationMicros(1_000, 200, 100);
+        collector.recordDurationMicros(3_000, 503, 50);
+
+        MetricRegistry registry = bridge.getRegistry();
+        Timer service = registry.timer(SERVICE);
+        assertEquals(2, service.getCount());
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(3_000), service.getSnapshot().getMax());
+        assertEquals(1, registry.meter("perf.GET_current.json.errors").getCount());
+        assertEquals(2, registry.histogram("perf.GET_current.json.bytes").getCount());
+        assertEquals(100, registry.histogram("perf.GET_current.json.bytes").getSnapshot().getMax());
+        assertTrue(registry.getGauges().containsKey("perf.GET_current.json.inFlight"));
+    }
+
+    @Test
+    public void everyReporterOfATickSeesTheSameInterval() {
+        PerformanceMetricsCollector collector = PerformanceMetricsCollector.histogram("GET /current.json", 2);
+        DropwizardMetricsBridge bridge = new DropwizardMetricsBridge(new MetricRegistry(),
+                DropwizardMetricsBridge.ReservoirType.HDR, 60).bind(collector);
+        CountingReporter console = new CountingReporter(bridge.getRegistry());
+        CountingReporter csv = new CountingReporter(bridge.getRegistry());
+        // Long period: the test drives the ticks itself
+        bridge.startReporter(console, 1, TimeUnit.HOURS).startReporter(csv, 1, TimeUnit.HOURS);
+        assertThrows(IllegalArgumentException.class,
+                () -> bridge.startReporter(new CountingReporter(bridge.getRegistry()), 30, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 5; i++) collector.recordDurationMicros(1_000, 200, 0);
+        bridge.report();
+        for (int i = 0; i < 2; i++) collector.recordDurationMicros(1_000, 200, 0);
+        bridge.report();
+        bridge.report();
+        collector.recordDurationMicros(1_000, 200, 0);
+        bridge.close();
+
+        // Intervals reset on every tick; close() reports the last, partial one
+        assertEquals(List.of(5, 2, 0, 1), console.intervalSizes);
+        assertEquals(console.intervalSizes, csv.intervalSizes);
+        assertFalse(bridge.getRegistry().getTimers().isEmpty());
+    }
+}
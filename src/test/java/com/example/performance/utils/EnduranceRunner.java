@@ -0,0 +1,298 @@
+package com.example.performance.utils;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Endurance Runner
+ *
+ * Runs a fixed-rate open workload for as long as needed (minutes to hours) and tracks how it
+ * behaves over time. There are no batch barriers: an {@link ArrivalRateScheduler} starts each
+ * request on time whether or not earlier ones have finished, and arrivals beyond
+ * {@code maxInFlight} running requests are counted as missed rather than piling up.
+ *
+ * The task records into the caller's collector as usual. The runner mirrors every sample into a
+ * fixed-memory interval collector that is rotated every {@code rotateEvery}:
+ *  - a summary line per interval (throughput, p50/p99, errors, in flight) shows drift as it happens
+ *  - each interval can be saved as a {@link MetricsSnapshot} file, to be merged or compared later
+ *    with {@link MetricsSnapshotMerger}
+ *  - only the last {@link #MAX_INTERVALS} summaries are kept in memory
+ * Memory therefore stays bounded as long as the caller's collector is in histogram mode
+ * (-Dperf.metrics.mode=histogram); a raw-mode collector keeps every sample and triggers a warning.
+ */
+public class EnduranceRunner {
+
+    /** Interval summaries kept in memory; older ones are only in the snapshot files. */
+    public static final int MAX_INTERVALS = 10_000;
+
+    /** One rotation interval. */
+    public static final class Interval {
+        public final int index;
+        public final Instant start;
+        public final long requests;
+        public final long errors;
+        public final double throughput;
+        public final double p50Ms;
+        public final double p99Ms;
+        public final long inFlight;
+
+        Interval(int index, Instant start, long requests, long errors, double throughput,
+                 double p50Ms, double p99Ms, long inFlight) {
+            this.index = index;
+            this.start = start;
+            this.requests = requests;
+            this.errors = errors;
+            this.throughput = throughput;
+            this.p50Ms = p50Ms;
+            this.p99Ms = p99Ms;
+            this.inFlight = inFlight;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "#%-4d %s %8d req %8.2f req/s  p50 %9.3f ms  p99 %9.3f ms  %6d err  %5d in flight",
+                    index, start, requests, throughput, p50Ms, p99Ms, errors, inFlight);
+        }
+    }
+
+    /** Outcome of a run. */
+    public static final class Result {
+        public final ArrivalRateScheduler.ScheduleReport schedule;
+        public final List<Interval> intervals;
+        /** The warm-up that ran before the measured run (printed as it ends), or null if none was set */
+        public final WarmupPhase.Result warmup;
+
+        Result(ArrivalRateScheduler.ScheduleReport schedule, List<Interval> intervals, WarmupPhase.Result warmup) {
+            this.schedule = schedule;
+            this.intervals = Collections.unmodifiableList(intervals);
+            this.warmup = warmup;
+        }
+
+        /** Schedule figures and drift between the first and last full interval. */
+        public void print() {
+            schedule.print();
+            if (intervals.size() < 2) return;
+            Interval first = intervals.get(0);
+            Interval last = intervals.get(intervals.size() - 1);
+            double minTp = Double.MAX_VALUE, maxP99 = 0;
+            for (Interval i : intervals) {
+                minTp = Math.min(minTp, i.throughput);
+                maxP99 = Math.max(maxP99, i.p99Ms);
+            }
+            System.out.printf(Locale.ROOT,
+                    "Endurance drift over %d intervals: p99 %.3f -> %.3f ms (worst %.3f), throughput %.2f -> %.2f req/s (lowest %.2f)%n",
+                    intervals.size(), first.p99Ms, last.p99Ms, maxP99, first.throughput, last.throughput, minTp);
+        }
+    }
+
+    /** The collector of the current interval and the mirror calls writing into it. */
+    private static final class IntervalSlot {
+        final PerformanceMetricsCollector collector;
+        /** Mirror calls currently recording into this interval */
+        final AtomicInteger writers = new AtomicInteger();
+        volatile boolean closed;
+
+        IntervalSlot(PerformanceMetricsCollector collector) { this.collector = collector; }
+
+        /** Returns false if the interval was closed by a concurrent rotation. */
+        boolean tryRecord(boolean scheduled, int status, long serviceMicros, long responseMicros, long bytes) {
+            writers.incrementAndGet();
+            try {
+                if (closed) return false;
+                if (scheduled) {
+                    long end = System.nanoTime();
+                    collector.recordScheduled(end - responseMicros * 1000, end - serviceMicros * 1000, end, status, bytes);
+                } else {
+                    collector.recordDurationMicros(serviceMicros, status, bytes);
+                }
+                return true;
+            } finally {
+                writers.decrementAndGet();
+            }
+        }
+
+        /** Stops new writes and waits for the ones in progress. */
+        void close() {
+            closed = true;
+            while (writers.get() > 0) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private final PerformanceMetricsCollector metrics;
+    private final double ratePerSecond;
+    private int maxInFlight = 1000;
+    private Executor executor;
+    private long rotateNanos = TimeUnit.MINUTES.toNanos(1);
+    private long drainNanos = TimeUnit.SECONDS.toNanos(30);
+    private String snapshotDirectory;
+    private boolean printIntervals = true;
+    private WarmupPhase warmup;
+    private Consumer<PerformanceMetricsCollector> warmupRequest;
+
+    private final AtomicReference<IntervalSlot> current = new AtomicReference<>();
+    private final Deque<Interval> intervals = new ArrayDeque<>();
+    private int intervalIndex;
+    private Instant intervalStart;
+
+    /** Runs at {@code ratePerSecond}; {@code metrics} is the collector the task records into. */
+    public EnduranceRunner(PerformanceMetricsCollector metrics, double ratePerSecond) {
+        if (ratePerSecond <= 0) throw new IllegalArgumentException("ratePerSecond must be positive: " + ratePerSecond);
+        this.metrics = metrics;
+        this.ratePerSecond = ratePerSecond;
+    }
+
+    /** Arrivals while this many requests are running are missed (counted, not queued). */
+    public EnduranceRunner maxInFlight(int maxInFlight) {
+        if (maxInFlight < 1) throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+        this.maxInFlight = maxInFlight;
+        return this;
+    }
+
+    /** Runs requests on {@code executor}; by default each gets a virtual thread. */
+    public EnduranceRunner executor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    public EnduranceRunner rotateEvery(long interval, TimeUnit unit) {
+        if (interval <= 0) throw new IllegalArgumentException("Rotation interval must be positive");
+        this.rotateNanos = unit.toNanos(interval);
+        return this;
+    }
+
+    /** How long to wait for in-flight requests once the last one has been started. */
+    public EnduranceRunner drainTimeout(long timeout, TimeUnit unit) {
+        this.drainNanos = unit.toNanos(timeout);
+        return this;
+    }
+
+    /** Saves each interval as {@code <dir>/<collector name>-<index>.snapshot}; null (default) keeps none. */
+    public EnduranceRunner snapshotDirectory(String directory) {
+        this.snapshotDirectory = directory;
+        return this;
+    }
+
+    /**
+     * Runs {@code phase} (e.g. {@link WarmupPhase#fromConfig()}) before the measured run starts.
+     * {@code request} records into the warm-up's own collector, so none of it reaches the run's
+     * collector, intervals or snapshots.
+     */
+    public EnduranceRunner warmup(WarmupPhase phase, Consumer<PerformanceMetricsCollector> request) {
+        this.warmup = phase;
+        this.warmupRequest = request;
+        return this;
+    }
+
+    public EnduranceRunner printIntervals(boolean printIntervals) {
+        this.printIntervals = printIntervals;
+        return this;
+    }
+
+    /**
+     * Runs the warm-up if one is set, then starts {@code task} at the fixed rate for
+     * {@code duration} and drains. The task receives the intended start (System.nanoTime()) for
+     * {@link PerformanceMetricsCollector#timedFrom}.
+     */
+    public Result run(long duration, TimeUnit unit, LongConsumer task) throws InterruptedException {
+        if (!metrics.isHistogramMode() && unit.toMinutes(duration) >= 10) {
+            System.err.println("[EnduranceRunner] " + metrics.getName() + " keeps every raw sample; use "
+                    + "-Dperf.metrics.mode=histogram to bound memory on long runs");
+        }
+        WarmupPhase.Result warmed = warmup == null ? null : warmup.run(metrics.getName(), warmupRequest);
+        if (warmed != null && printIntervals) warmed.print();
+
+        intervals.clear();
+        intervalIndex = 0;
+        intervalStart = Instant.now();
+        current.set(new IntervalSlot(newIntervalCollector()));
+
+        // A call that picked up an interval just as it was rotated out retries on the new one
+        SampleListener mirror = (endpoint, status, serviceMicros, responseMicros, bytes, scheduled) -> {
+            while (!current.get().tryRecord(scheduled, status, serviceMicros, responseMicros, bytes)) {
+                Thread.onSpinWait();
+            }
+        };
+        metrics.addListener(mirror);
+
+        ScheduledExecutorService rotation = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "endurance-rotation");
+            t.setDaemon(true);
+            return t;
+        });
+        rotation.scheduleAtFixedRate(this::rotate, rotateNanos, rotateNanos, TimeUnit.NANOSECONDS);
+
+        ArrivalRateScheduler.ScheduleReport schedule;
+        try {
+            schedule = new ArrivalRateScheduler(ratePerSecond, ArrivalRateScheduler.Arrivals.CONSTANT, executor,
+                    maxInFlight, TimeUnit.MILLISECONDS.toNanos(5), RandomStreams.global().seedFor("arrivals"))
+                    .run(unit.toNanos(duration), drainNanos, TimeUnit.NANOSECONDS, task);
+        } finally {
+            rotation.shutdownNow();
+            rotation.awaitTermination(10, TimeUnit.SECONDS);
+            metrics.removeListener(mirror);
+        }
+        // The last, partial interval
+        rotate();
+
+        List<Interval> summaries;
+        synchronized (intervals) {
+            summaries = new ArrayList<>(intervals);
+        }
+        return new Result(schedule, summaries, warmed);
+    }
+
+    private PerformanceMetricsCollector newIntervalCollector() {
+        return PerformanceMetricsCollector.histogram(
+                String.format(Locale.ROOT, "%s-%04d", metrics.getName(), intervalIndex), 2);
+    }
+
+    private synchronized void rotate() {
+        Instant start = intervalStart;
+        IntervalSlot slot = current.get();
+        intervalIndex++;
+        intervalStart = Instant.now();
+        current.set(new IntervalSlot(newIntervalCollector()));
+        // Samples already on their way into the old interval are part of its report and snapshot
+        slot.close();
+        PerformanceMetricsCollector finished = slot.collector;
+
+        PerformanceMetricsCollector.PerformanceReport r = finished.getReport();
+        if (r.totalRequests == 0) return;
+        double seconds = Math.max(1e-3, (intervalStart.toEpochMilli() - start.toEpochMilli()) / 1000.0);
+        Interval interval = new Interval(intervalIndex - 1, start, r.totalRequests, r.errorCount,
+                r.totalRequests / seconds, r.correctedMedianResponseTime, r.correctedP99ResponseTime,
+                metrics.getActiveRequests());
+        synchronized (intervals) {
+            if (intervals.size() == MAX_INTERVALS) intervals.removeFirst();
+            intervals.addLast(interval);
+        }
+        if (printIntervals) {
+            System.out.println("[EnduranceRunner] " + interval);
+        }
+        if (snapshotDirectory != null) {
+            String path = snapshotDirectory + "/" + finished.getName().replaceAll("[^A-Za-z0-9._-]", "_")
+                    + MetricsSnapshotMerger.SNAPSHOT_EXTENSION;
+            try {
+                finished.snapshot().save(path);
+            } catch (IOException e) {
+                System.err.println("[EnduranceRunner] Snapshot export failed: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.performance.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class EnduranceRunnerTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void rotatesIntervalsThatAddUpToTheRun() throws Exception {
+        PerformanceMetricsCollector metrics = PerformanceMetricsCollector.histogram("soak", 2);
+        File dir = tmp.newFolder("snapshots");
+
+        EnduranceRunner.Result result = new EnduranceRunner(metrics, 200)
+                .rotateEvery(300, TimeUnit.MILLISECONDS)
+                .snapshotDirectory(dir.getPath())
+                .printIntervals(false)
+                .run(1200, TimeUnit.MILLISECONDS, intendedStart -> {
+                    long start = System.nanoTime();
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                    metrics.recordScheduled(intendedStart, start, System.nanoTime(), 200, 100);
+                });
+
+        assertEquals(240, result.schedule.intended);
+        assertEquals(240, result.schedule.dispatched);
+        assertEquals(240, metrics.getReport().totalRequests);
+        // How many rotations fit in depends on when the rotation thread gets scheduled; what must
+        // hold on any host is that the intervals, however many, add up to the run
+        assertTrue("intervals " + result.intervals.size(), result.intervals.size() >= 1);
+
+        long inIntervals = 0;
+        for (EnduranceRunner.Interval i : result.intervals) inIntervals += i.requests;
+        assertEquals(240, inIntervals);
+
+        File[] files = dir.listFiles((d, name) -> name.endsWith(MetricsSnapshotMerger.SNAPSHOT_EXTENSION));
+        assertNotNull(files);
+        assertEquals(result.intervals.size(), files.length);
+        long inFiles = 0;
+        for (File f : files) inFiles += MetricsSnapshot.load(f.getPath()).getTotalCount();
+        assertEquals(240, inFiles);
+    }
+
+    @Test
+    public void warmupRunsFirstAndStaysOutOfTheRun() throws InterruptedException {
+        PerformanceMetricsCollector metrics = PerformanceMetricsCollector.histogram("warmed", 2);
+
+        EnduranceRunner.Result result = new EnduranceRunner(metrics, 100)
+                .warmup(WarmupPhase.iterations(7), warmupMetrics -> warmupMetrics.recordDurationMicros(5_000, 200))
+                .printIntervals(false)
+                .run(100, TimeUnit.MILLISECONDS, intendedStart ->
+                        metrics.recordScheduled(intendedStart, System.nanoTime(), System.nanoTime(), 200, 0));
+
+        assertNotNull(result.warmup);
+        assertEquals(7, result.warmup.metrics.getReport().totalRequests);
+        assertEquals(10, metrics.getReport().totalRequests);
+        long inIntervals = 0;
+        for (EnduranceRunner.Interval i : result.intervals) inIntervals += i.requests;
+        assertEquals(10, inIntervals);
+    }
+
+    @Test
+    public void countsArrivalsBeyondTheInFlightLimitAsMissed() throws InterruptedException {
+        PerformanceMetricsCollector metrics = PerformanceMetricsCollector.histogram("capped", 2);
+
+        EnduranceRunner.Result result = new EnduranceRunner(metrics, 100)
+                .maxInFlight(2)
+                .printIntervals(false)
+                .run(500, TimeUnit.MILLISECONDS, intendedStart -> {
+                    long start = System.nanoTime();
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+                    metrics.recordScheduled(intendedStart, start, System.nanoTime(), 200, 0);
+                });
+
+        // At most 2 running, each for at least 100 ms: about 10 of the 50 arrivals can start on an
+        // idle host. A stalled pacing thread lets more through, so only assert that some were missed
+        assertEquals(50, result.schedule.intended);
+        assertTrue("missed " + result.schedule.missedStarts, result.schedule.missedStarts > 0);
+        assertTrue("dispatched " + result.schedule.dispatched, result.schedule.dispatched >= 2);
+        assertEquals(result.schedule.intended, result.schedule.dispatched + result.schedule.missedStarts);
+        assertEquals(result.schedule.dispatched, metrics.getReport().totalRequests);
+    }
+}
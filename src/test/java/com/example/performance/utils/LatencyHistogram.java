@@ -0,0 +1,304 @@
+package com.example.performance.utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-memory latency histogram with log-linear buckets.
+ *
+ * Values are grouped into power-of-two buckets, and each bucket is split into linear
+ * sub-buckets so every recorded value keeps the configured number of significant decimal
+ * digits. Memory depends only on the trackable range and precision, never on the number of
+ * samples, and recording is O(1). Values above the highest trackable value are clamped.
+ *
+ * The histogram is unit-agnostic: callers decide whether values are ms, micros, etc.
+ */
+public class LatencyHistogram {
+
+    /** Receives one non-empty bucket: a representative value and how many samples fell into it. */
+    @FunctionalInterface
+    public interface BucketVisitor {
+        void visit(long value, long count);
+    }
+
+    private final long highestTrackableValue;
+    private final int significantDigits;
+
+    private final int subBucketHalfCountMagnitude;
+    private final int subBucketHalfCount;
+    private final long subBucketMask;
+    private final int leadingZeroCountBase;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param highestTrackableValue largest value kept at full precision (>= 2)
+     * @param significantDigits     decimal digits of precision, 1..5
+     */
+    public LatencyHistogram(long highestTrackableValue, int significantDigits) {
+        if (significantDigits < 1 || significantDigits > 5) {
+            throw new IllegalArgumentException("significantDigits must be between 1 and 5: " + significantDigits);
+        }
+        if (highestTrackableValue < 2) {
+            throw new IllegalArgumentException("highestTrackableValue must be >= 2: " + highestTrackableValue);
+        }
+        this.highestTrackableValue = highestTrackableValue;
+        this.significantDigits = significantDigits;
+
+        long largestValueWithSingleUnitResolution = 2 * (long) Math.pow(10, significantDigits);
+        int subBucketCountMagnitude = (int) Math.ceil(Math.log(largestValueWithSingleUnitResolution) / Math.log(2));
+        this.subBucketHalfCountMagnitude = subBucketCountMagnitude - 1;
+        int subBucketCount = 1 << subBucketCountMagnitude;
+        this.subBucketHalfCount = subBucketCount / 2;
+        this.subBucketMask = subBucketCount - 1;
+        this.leadingZeroCountBase = 64 - subBucketCountMagnitude;
+
+        // Number of power-of-two buckets needed to cover [0, highestTrackableValue]
+        long smallestUntrackableValue = ((long) subBucketCount);
+        int bucketsNeeded = 1;
+        while (smallestUntrackableValue <= highestTrackableValue) {
+            if (smallestUntrackableValue > (Long.MAX_VALUE / 2)) {
+                bucketsNeeded++;
+                break;
+            }
+            smallestUntrackableValue <<= 1;
+            bucketsNeeded++;
+        }
+        this.counts = new AtomicLongArray((bucketsNeeded + 1) * subBucketHalfCount);
+    }
+
+    /** Record one value. Negative values are recorded as 0, values above the range are clamped. */
+    public void record(long value) {
+        recordCount(value, 1);
+    }
+
+    /** Record {@code count} occurrences of a value. */
+    public void recordCount(long value, long count) {
+        if (count <= 0) return;
+        long v = Math.max(0, Math.min(value, highestTrackableValue));
+        counts.addAndGet(countsIndex(v), count);
+        totalCount.addAndGet(count);
+        sum.addAndGet(v * count);
+        updateMax(v);
+    }
+
+    /**
+     * Add all counts from another histogram. Histograms with the same layout merge exactly;
+     * otherwise each of the other histogram's buckets is re-recorded here, which is accurate to
+     * the coarser of the two precisions.
+     */
+    public void add(LatencyHistogram other) {
+        if (other.counts.length() != counts.length() || other.significantDigits != significantDigits) {
+            addResampled(other);
+            return;
+        }
+        for (int i = 0; i < other.counts.length(); i++) {
+            long c = other.counts.get(i);
+            if (c != 0) counts.addAndGet(i, c);
+        }
+        totalCount.addAndGet(other.totalCount.get());
+        sum.addAndGet(other.sum.get());
+        updateMax(other.max.get());
+    }
+
+    private void addResampled(LatencyHistogram other) {
+        for (int i = 0; i < other.counts.length(); i++) {
+            long c = other.counts.get(i);
+            if (c == 0) continue;
+            long v = Math.min(other.highestEquivalentValue(other.valueFromIndex(i)), other.max.get());
+            v = Math.min(v, highestTrackableValue);
+            counts.addAndGet(countsIndex(v), c);
+        }
+        totalCount.addAndGet(other.totalCount.get());
+        // Keep the exact sum so the mean is unaffected by re-bucketing
+        sum.addAndGet(other.sum.get());
+        updateMax(Math.min(other.max.get(), highestTrackableValue));
+    }
+
+    private void updateMax(long candidate) {
+        long current = max.get();
+        while (candidate > current && !max.compareAndSet(current, candidate)) {
+            current = max.get();
+        }
+    }
+
+    /** Empty histogram with the same range and precision. */
+    public LatencyHistogram emptyCopy() {
+        return new LatencyHistogram(highestTrackableValue, significantDigits);
+    }
+
+    /** Point-in-time copy of this histogram. */
+    public LatencyHistogram copy() {
+        LatencyHistogram copy = emptyCopy();
+        copy.add(this);
+        return copy;
+    }
+
+    /**
+     * Clears all counts. Not atomic with respect to concurrent writers; callers that reuse a
+     * histogram must make sure nobody is recording into it while it is reset.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    public long getTotalCount() { return totalCount.get(); }
+
+    public long getMax() { return max.get(); }
+
+    /** Exact sum of all recorded values (after clamping to the trackable range). */
+    public long getSum() { return sum.get(); }
+
+    public double getMean() {
+        long n = totalCount.get();
+        return n == 0 ? 0.0 : sum.get() / (double) n;
+    }
+
+    public long getHighestTrackableValue() { return highestTrackableValue; }
+
+    public int getSignificantDigits() { return significantDigits; }
+
+    /**
+     * Value at the given percentile using the same nearest-rank rule as the raw-sample report:
+     * the smallest recorded value such that at least {@code pct}% of samples are at or below it.
+     * Returns the highest value equivalent to the bucket, capped at the recorded max.
+     */
+    public long getValueAtPercentile(double pct) {
+        long n = totalCount.get();
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil((Math.min(100.0, pct) / 100.0) * n));
+        long cumulative = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            cumulative += counts.get(i);
+            if (cumulative >= rank) {
+                return Math.min(highestEquivalentValue(valueFromIndex(i)), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /** Number of recorded values that are less than or equal to {@code value} (bucket resolution). */
+    public long getCountAtOrBelow(long value) {
+        if (value < 0) return 0;
+        int last = countsIndex(Math.min(value, highestTrackableValue));
+        long cumulative = 0;
+        for (int i = 0; i <= last; i++) {
+            cumulative += counts.get(i);
+        }
+        return cumulative;
+    }
+
+    /**
+     * Adds the number of recorded values at or below each of the ascending {@code bounds} to the
+     * matching slot of {@code into}, in a single pass over the buckets. Same resolution as
+     * {@link #getCountAtOrBelow(long)}; a bound of {@link Long#MAX_VALUE} counts every value.
+     */
+    public void addCountsAtOrBelow(long[] bounds, long[] into) {
+        long cumulative = 0;
+        int i = 0;
+        for (int b = 0; b < bounds.length; b++) {
+            if (bounds[b] < 0) continue;
+            int last = countsIndex(Math.min(bounds[b], highestTrackableValue));
+            for (; i <= last; i++) {
+                cumulative += counts.get(i);
+            }
+            into[b] += cumulative;
+        }
+    }
+
+    /**
+     * Visits every non-empty bucket in ascending order. The value passed is the bucket's highest
+     * equivalent value capped at the recorded max, matching {@link #getValueAtPercentile(double)}.
+     */
+    public void forEachBucket(BucketVisitor visitor) {
+        long maxValue = max.get();
+        for (int i = 0; i < counts.length(); i++) {
+            long c = counts.get(i);
+            if (c != 0) {
+                visitor.visit(Math.min(highestEquivalentValue(valueFromIndex(i)), maxValue), c);
+            }
+        }
+    }
+
+    // --- serialization ---
+
+    /**
+     * Writes the layout, totals and every non-empty bucket as (index, count) pairs, so the encoded
+     * size grows with the number of distinct latencies rather than the number of samples.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        int nonEmpty = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            if (counts.get(i) != 0) nonEmpty++;
+        }
+        out.writeLong(highestTrackableValue);
+        out.writeInt(significantDigits);
+        out.writeLong(totalCount.get());
+        out.writeLong(sum.get());
+        out.writeLong(max.get());
+        out.writeInt(nonEmpty);
+        for (int i = 0; i < counts.length() && nonEmpty > 0; i++) {
+            long c = counts.get(i);
+            if (c != 0) {
+                out.writeInt(i);
+                out.writeLong(c);
+                nonEmpty--;
+            }
+        }
+    }
+
+    /** Reads a histogram written by {@link #writeTo(DataOutput)}. */
+    public static LatencyHistogram readFrom(DataInput in) throws IOException {
+        LatencyHistogram h = new LatencyHistogram(in.readLong(), in.readInt());
+        h.totalCount.set(in.readLong());
+        h.sum.set(in.readLong());
+        h.max.set(in.readLong());
+        int nonEmpty = in.readInt();
+        for (int n = 0; n < nonEmpty; n++) {
+            int index = in.readInt();
+            long count = in.readLong();
+            if (index < 0 || index >= h.counts.length()) {
+                throw new IOException("Bucket index " + index + " out of range for histogram layout");
+            }
+            h.counts.set(index, count);
+        }
+        return h;
+    }
+
+    // --- bucket arithmetic ---
+
+    private int countsIndex(long value) {
+        int bucketIndex = leadingZeroCountBase - Long.numberOfLeadingZeros(value | subBucketMask);
+        int subBucketIndex = (int) (value >>> bucketIndex);
+        return ((bucketIndex + 1) << subBucketHalfCountMagnitude) + (subBucketIndex - subBucketHalfCount);
+    }
+
+    private long valueFromIndex(int index) {
+        int bucketIndex = (index >> subBucketHalfCountMagnitude) - 1;
+        int subBucketIndex = (index & (subBucketHalfCount - 1)) + subBucketHalfCount;
+        if (bucketIndex < 0) {
+            subBucketIndex -= subBucketHalfCount;
+            bucketIndex = 0;
+        }
+        return ((long) subBucketIndex) << bucketIndex;
+    }
+
+    private long highestEquivalentValue(long value) {
+        int bucketIndex = leadingZeroCountBase - Long.numberOfLeadingZeros(value | subBucketMask);
+        int subBucketIndex = (int) (value >>> bucketIndex);
+        int adjustedBucket = (subBucketIndex > subBucketMask) ? bucketIndex + 1 : bucketIndex;
+        long lowest = ((long) subBucketIndex) << bucketIndex;
+        return lowest + (1L << adjustedBucket) - 1;
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.performance.utils;
+
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * HDR-style Dropwizard {@link Reservoir} backed by a {@link LatencyHistogram}: fixed memory,
+ * O(1) updates, and every sample counts towards the percentiles (no sampling).
+ *
+ * In cumulative mode the reservoir covers the whole run. In interval mode {@link #rotate()} closes
+ * the current interval and starts a fresh histogram, and {@link #getSnapshot()} returns the last
+ * closed interval until the next rotation, so a reporter prints per-period percentiles. Rotation
+ * is driven by the reporting tick ({@link DropwizardMetricsBridge} rotates once before each round
+ * of reports), so every reporter of that tick (console and CSV) sees the same interval however
+ * far apart they run, and reading a snapshot never changes what the next reader sees.
+ *
+ * The histogram is swapped with a single {@code getAndSet}. One window remains:
+ * {@link #update(long)} reads the current histogram and then records into it, so an update whose
+ * read happened just before a swap lands in the swapped-out histogram. It is still reported if the
+ * snapshot's percentiles are read after it lands, and otherwise lost. The window is a few
+ * instructions wide, far below reporter resolution.
+ */
+public class LatencyHistogramReservoir implements Reservoir {
+
+    private static final long DEFAULT_MAX = TimeUnit.HOURS.toNanos(1);
+
+    private final boolean interval;
+    private final AtomicReference<LatencyHistogram> current;
+    /** Interval mode: the interval closed by the last {@link #rotate()} */
+    private volatile HistogramSnapshot lastInterval;
+
+    /** Cumulative reservoir for nanosecond values (Timer units) up to one hour. */
+    public LatencyHistogramReservoir() {
+        this(DEFAULT_MAX, 2, false);
+    }
+
+    public LatencyHistogramReservoir(long highestTrackableValue, int significantDigits, boolean interval) {
+        this.interval = interval;
+        this.current = new AtomicReference<>(new LatencyHistogram(highestTrackableValue, significantDigits));
+        this.lastInterval = new HistogramSnapshot(current.get().emptyCopy());
+    }
+
+    public boolean isInterval() { return interval; }
+
+    @Override
+    public int size() {
+        return (int) Math.min(Integer.MAX_VALUE, current.get().getTotalCount());
+    }
+
+    @Override
+    public void update(long value) {
+        current.get().record(value);
+    }
+
+    /** Interval mode: closes the current interval, which snapshots return from now on. No-op when cumulative. */
+    public synchronized void rotate() {
+        if (!interval) return;
+        LatencyHistogram previous = current.getAndSet(current.get().emptyCopy());
+        lastInterval = new HistogramSnapshot(previous);
+    }
+
+    /** Cumulative: everything recorded so far. Interval: the interval closed by the last {@link #rotate()}. */
+    @Override
+    public Snapshot getSnapshot() {
+        return interval ? lastInterval : new HistogramSnapshot(current.get().copy());
+    }
+
+    /** Read-only view of a histogram that is no longer written to. */
+    static final class HistogramSnapshot extends Snapshot {
+        private final LatencyHistogram h;
+        private final long min;
+        private final double stdDev;
+
+        HistogramSnapshot(LatencyHistogram h) {
+            this.h = h;
+            long[] lowest = {-1};
+            double mean = h.getMean();
+            double[] squares = {0.0};
+            h.forEachBucket((value, count) -> {
+                if (lowest[0] < 0) lowest[0] = value;
+                double d = value - mean;
+                squares[0] += d * d * count;
+            });
+            long n = h.getTotalCount();
+            this.min = Math.max(0, lowest[0]);
+            this.stdDev = n > 1 ? Math.sqrt(squares[0] / (n - 1)) : 0.0;
+        }
+
+        @Override
+        public double getValue(double quantile) {
+            if (quantile < 0.0 || quantile > 1.0 || Double.isNaN(quantile)) {
+                throw new IllegalArgumentException(quantile + " is not in [0..1]");
+            }
+            return h.getValueAtPercentile(quantile * 100.0);
+        }
+
+        /** Expands every bucket into its samples; only for small reservoirs and debugging. */
+        @Override
+        public long[] getValues() {
+            long[] values = new long[size()];
+            int[] i = {0};
+            h.forEachBucket((value, count) -> {
+                for (long c = 0; c < count && i[0] < values.length; c++) values[i[0]++] = value;
+            });
+            return values;
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(Integer.MAX_VALUE, h.getTotalCount());
+        }
+
+        @Override
+        public long getMax() { return h.getMax(); }
+
+        @Override
+        public double getMean() { return h.getMean(); }
+
+        @Override
+        public long getMin() { return min; }
+
+        @Override
+        public double getStdDev() { return stdDev; }
+
+        @Override
+        public void dump(OutputStream output) {
+            try (PrintWriter out = new PrintWriter(new java.io.OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+                h.forEachBucket((value, count) -> out.printf("%d %d%n", value, count));
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.performance.utils;
+
+import com.codahale.metrics.Snapshot;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class LatencyHistogramReservoirTest {
+
+    private static final long MAX = TimeUnit.HOURS.toNanos(1);
+
+    @Test
+    public void cumulativeReservoirKeepsEverySample() {
+        LatencyHistogramReservoir reservoir = new LatencyHistogramReservoir(MAX, 2, false);
+        for (int i = 1; i <= 100; i++) reservoir.update(i * 1_000_000L);
+        reservoir.rotate();
+        reservoir.update(500_000_000L);
+
+        Snapshot snapshot = reservoir.getSnapshot();
+        assertEquals(101, snapshot.size());
+        assertEquals(1_000_000L, snapshot.getMin(), 10_000);
+        assertEquals(500_000_000L, snapshot.getMax(), 5_000_000);
+        assertEquals(50_000_000L, snapshot.getMedian(), 1_000_000);
+    }
+
+    @Test
+    public void intervalReservoirReportsWhatWasRecordedBetweenRotations() {
+        LatencyHistogramReservoir reservoir = new LatencyHistogramReservoir(MAX, 2, true);
+        assertEquals(0, reservoir.getSnapshot().size());
+
+        for (int i = 0; i < 5; i++) reservoir.update(2_000_000L);
+        // Nothing closed yet: samples only show up once their interval is rotated out
+        assertEquals(0, reservoir.getSnapshot().size());
+        reservoir.rotate();
+
+        // Every reader of the tick sees the same interval, however many and however late
+        Snapshot first = reservoir.getSnapshot();
+        assertEquals(5, first.size());
+        reservoir.update(9_000_000L);
+        reservoir.update(9_000_000L);
+        assertSame(first, reservoir.getSnapshot());
+
+        reservoir.rotate();
+        Snapshot second = reservoir.getSnapshot();
+        assertEquals(2, second.size());
+        assertEquals(9_000_000L, second.getMin(), 100_000);
+
+        reservoir.rotate();
+        assertEquals(0, reservoir.getSnapshot().size());
+    }
+}
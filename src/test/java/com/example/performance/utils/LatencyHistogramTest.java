@@ -0,0 +1,112 @@
+package com.example.performance.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void percentilesStayWithinConfiguredPrecision() {
+        LatencyHistogram h = new LatencyHistogram(3_600_000L, 2);
+        Random rnd = new Random(42);
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 1 + (long) Math.abs(rnd.nextGaussian() * 400 + 200);
+            h.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double pct : new double[]{50, 95, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(pct / 100.0 * values.length) - 1];
+            long approx = h.getValueAtPercentile(pct);
+            assertTrue("p" + pct + " exact=" + exact + " approx=" + approx,
+                    Math.abs(approx - exact) <= Math.max(1, exact / 100));
+        }
+        assertEquals(values.length, h.getTotalCount());
+        assertEquals(values[values.length - 1], h.getMax());
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram h = new LatencyHistogram(1000, 2);
+        for (long v = 0; v <= 100; v++) h.record(v);
+        assertEquals(50, h.getValueAtPercentile(50));
+        assertEquals(100, h.getValueAtPercentile(100));
+        assertEquals(50.0, h.getMean(), 0.0001);
+        assertEquals(11, h.getCountAtOrBelow(10));
+    }
+
+    @Test
+    public void addMergesCountsAndMax() {
+        LatencyHistogram a = new LatencyHistogram(10_000, 2);
+        LatencyHistogram b = a.emptyCopy();
+        a.record(10);
+        b.record(20);
+        b.record(5_000);
+        a.add(b);
+        assertEquals(3, a.getTotalCount());
+        assertEquals(5_000, a.getMax());
+    }
+
+    @Test
+    public void valuesAboveRangeAreClamped() {
+        LatencyHistogram h = new LatencyHistogram(1_000, 1);
+        h.record(50_000);
+        assertEquals(1_000, h.getMax());
+        assertEquals(1, h.getTotalCount());
+    }
+
+    @Test
+    public void serializedHistogramRoundTrips() throws IOException {
+        LatencyHistogram h = new LatencyHistogram(3_600_000L, 3);
+        for (long v = 1; v <= 50_000; v += 7) h.record(v);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        h.writeTo(new DataOutputStream(bytes));
+        LatencyHistogram copy = LatencyHistogram.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(h.getTotalCount(), copy.getTotalCount());
+        assertEquals(h.getMax(), copy.getMax());
+        assertEquals(h.getMean(), copy.getMean(), 0.0001);
+        for (double pct : new double[]{50, 95, 99, 99.9}) {
+            assertEquals(h.getValueAtPercentile(pct), copy.getValueAtPercentile(pct));
+        }
+    }
+
+    @Test
+    public void mergedPartsMatchSingleHistogram() {
+        LatencyHistogram whole = new LatencyHistogram(3_600_000L, 2);
+        LatencyHistogram fast = whole.emptyCopy();
+        LatencyHistogram slow = new LatencyHistogram(3_600_000L, 3);
+        Random rnd = new Random(7);
+        for (int i = 0; i < 20_000; i++) {
+            long f = 100 + rnd.nextInt(200);
+            long s = 5_000 + rnd.nextInt(20_000);
+            whole.record(f);
+            whole.record(s);
+            fast.record(f);
+            slow.record(s);
+        }
+
+        fast.add(slow); // different precision: re-bucketed at 2 digits
+        assertEquals(whole.getTotalCount(), fast.getTotalCount());
+        assertEquals(whole.getMax(), fast.getMax());
+        assertEquals(whole.getMean(), fast.getMean(), 0.0001);
+        for (double pct : new double[]{25, 50, 75, 99}) {
+            long expected = whole.getValueAtPercentile(pct);
+            long actual = fast.getValueAtPercentile(pct);
+            assertTrue("p" + pct + " expected=" + expected + " actual=" + actual,
+                    Math.abs(actual - expected) <= Math.max(1, expected / 100));
+        }
+    }
+}
@@ -0,0 +1,513 @@
+package com.example.performance.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Load Coordinator
+ *
+ * Splits a {@link LoadProfile} across N {@link LoadWorker} processes so the load is not limited
+ * by one JVM, then merges their results into a single report. Workers may run on this host or
+ * others; they connect to the coordinator over plain TCP.
+ *
+ * A run goes through these steps:
+ *  1. wait for N workers to connect and say hello
+ *  2. send each worker its share of the profile ({@link LoadProfile#share}), the target URLs and
+ *     engine limits
+ *  3. once every worker has reported ready, send all of them the start signal with the same
+ *     short delay, so they begin together without relying on synchronized clocks
+ *  4. collect interim updates as they stream in (a live progress line per interval) and the
+ *     final snapshot plus schedule figures from each worker. Updates carry cumulative totals and
+ *     histograms but only the time windows that changed since the worker's previous update, so
+ *     their size does not grow with the length of the run
+ *  5. merge the snapshots ({@link MetricsSnapshot#merge}) into one {@link PerformanceMetricsCollector.PerformanceReport}
+ * A worker that disconnects early, or sends nothing for {@value #SILENT_INTERVALS} interim
+ * intervals (hung, partitioned), contributes its last interim snapshot and is reported as failed.
+ *
+ * Protocol: each message is a type byte followed by its fields in {@link DataOutputStream} format;
+ * snapshots use {@link MetricsSnapshot#writeTo}.
+ *
+ * Run with:
+ *   java -cp target/test-classes:... com.example.performance.utils.LoadCoordinator \
+ *     --workers 4 --profile "ramp(10,400,30s);plateau(400,2m)" --url http://host/current.json?q=London \
+ *     [--port 7070] [--spawn] [--maxInFlight 1000] [--connections 200]
+ * then start {@code LoadWorker <coordinator-host>:7070} on each load host, or pass --spawn to
+ * launch the workers as local processes.
+ */
+public class LoadCoordinator implements AutoCloseable {
+
+    static final int MAGIC = 0x504C4457; // "PLDW"
+    static final int PROTOCOL_VERSION = 2;
+    static final byte HELLO = 1;
+    static final byte ASSIGN = 2;
+    static final byte READY = 3;
+    static final byte START = 4;
+    static final byte INTERIM = 5;
+    static final byte FINAL = 6;
+    static final int SIGNIFICANT_DIGITS = 3;
+
+    private static final long START_DELAY_MILLIS = 500;
+    /** Interim intervals without any message after which a worker counts as dropped out */
+    static final int SILENT_INTERVALS = 5;
+
+    /** What one worker is asked to run. */
+    static final class Assignment {
+        final int index;
+        final int count;
+        final LoadProfile profile;
+        final List<String> urls;
+        final int maxInFlight;
+        final int maxConnections;
+        final long interimMillis;
+        final long drainMillis;
+
+        Assignment(int index, int count, LoadProfile profile, List<String> urls, int maxInFlight,
+                   int maxConnections, long interimMillis, long drainMillis) {
+            this.index = index;
+            this.count = count;
+            this.profile = profile;
+            this.urls = urls;
+            this.maxInFlight = maxInFlight;
+            this.maxConnections = maxConnections;
+            this.interimMillis = interimMillis;
+            this.drainMillis = drainMillis;
+        }
+    }
+
+    /** Coordinator-side view of one connected worker. */
+    public static final class WorkerResult {
+        public final String workerId;
+        private final AtomicReference<MetricsSnapshot> latest = new AtomicReference<>();
+        private volatile boolean finished;
+        private volatile String failure;
+        private volatile long intended, dispatched, lateStarts, missedStarts;
+
+        WorkerResult(String workerId) {
+            this.workerId = workerId;
+        }
+
+        /** Final snapshot, or the last interim one if the worker failed; null if none arrived. */
+        public MetricsSnapshot getSnapshot() { return latest.get(); }
+
+        public boolean isFinished() { return finished; }
+
+        public String getFailure() { return failure; }
+
+        public long getIntended() { return intended; }
+
+        public long getDispatched() { return dispatched; }
+
+        public long getLateStarts() { return lateStarts; }
+
+        public long getMissedStarts() { return missedStarts; }
+    }
+
+    private final ServerSocket server;
+    private final List<Process> spawned = new ArrayList<>();
+    private final List<WorkerResult> results = new ArrayList<>();
+    private int maxInFlight = 1000;
+    private int maxConnections = 200;
+    private long interimMillis = 1000;
+    private long drainMillis = 30_000;
+    private long connectTimeoutMillis = 60_000;
+    private MetricsSnapshot merged;
+
+    /** Listens on all interfaces; port 0 picks a free port. */
+    public LoadCoordinator(int port) throws IOException {
+        this.server = new ServerSocket(port);
+    }
+
+    public int getPort() { return server.getLocalPort(); }
+
+    /** Per-worker engine limits (see {@link AsyncLoadEngine}). */
+    public LoadCoordinator engineLimits(int maxInFlight, int maxConnections) {
+        this.maxInFlight = maxInFlight;
+        this.maxConnections = maxConnections;
+        return this;
+    }
+
+    public LoadCoordinator interimMillis(long interimMillis) {
+        this.interimMillis = interimMillis;
+        return this;
+    }
+
+    public LoadCoordinator connectTimeout(long timeout, TimeUnit unit) {
+        this.connectTimeoutMillis = unit.toMillis(timeout);
+        return this;
+    }
+
+    /**
+     * Launches {@code count} workers as child processes of this JVM, using the same java binary
+     * and class path, pointed at this coordinator on localhost.
+     */
+    public void spawnLocalWorkers(int count) throws IOException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        for (int i = 0; i < count; i++) {
+            spawned.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    LoadWorker.class.getName(), "localhost:" + getPort())
+                    .inheritIO()
+                    .start());
+        }
+    }
+
+    /** Worker processes started by {@link #spawnLocalWorkers(int)}. */
+    List<Process> getSpawnedWorkers() { return new ArrayList<>(spawned); }
+
+    /**
+     * Runs {@code profile} across {@code workers} workers, each sending GETs to {@code urls} in
+     * round-robin order, and returns the merged report. Blocks until every worker has finished
+     * or dropped out.
+     */
+    public PerformanceMetricsCollector.PerformanceReport run(LoadProfile profile, List<String> urls, int workers)
+            throws IOException, InterruptedException {
+        if (workers < 1) throw new IllegalArgumentException("workers must be positive: " + workers);
+        if (urls.isEmpty()) throw new IllegalArgumentException("At least one target URL is required");
+        results.clear();
+
+        List<Socket> sockets = new ArrayList<>();
+        List<DataInputStream> ins = new ArrayList<>();
+        List<DataOutputStream> outs = new ArrayList<>();
+        try {
+            log("Waiting for %d workers on port %d", workers, getPort());
+            server.setSoTimeout((int) Math.min(Integer.MAX_VALUE, connectTimeoutMillis));
+            for (int i = 0; i < workers; i++) {
+                Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (SocketTimeoutException e) {
+                    throw new IOException("Only " + i + " of " + workers + " workers connected within "
+                            + connectTimeoutMillis + " ms", e);
+                }
+                socket.setTcpNoDelay(true);
+                // Until the run starts, a worker that stops answering gets the connect timeout
+                socket.setSoTimeout((int) Math.min(Integer.MAX_VALUE, connectTimeoutMillis));
+                sockets.add(socket);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                ins.add(in);
+                outs.add(new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())));
+                WorkerResult result = new WorkerResult(readHello(in));
+                results.add(result);
+                log("Worker %d connected: %s (%s)", i + 1, result.workerId, socket.getRemoteSocketAddress());
+            }
+
+            long drain = Math.max(drainMillis, 0);
+            for (int i = 0; i < workers; i++) {
+                writeAssignment(outs.get(i), new Assignment(i, workers, profile.share(i, workers), urls,
+                        maxInFlight, maxConnections, interimMillis, drain));
+            }
+            for (int i = 0; i < workers; i++) {
+                expect(ins.get(i), READY);
+            }
+            for (DataOutputStream out : outs) {
+                writeStart(out, START_DELAY_MILLIS);
+            }
+            log("All %d workers ready, starting %s (%s)", workers, profile, profile.getDuration());
+            // Workers report every interimMillis until their final message
+            int silenceMillis = (int) Math.min(Integer.MAX_VALUE, START_DELAY_MILLIS + SILENT_INTERVALS * interimMillis);
+            for (Socket socket : sockets) {
+                socket.setSoTimeout(silenceMillis);
+            }
+
+            List<Thread> readers = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                Thread reader = new Thread(readLoop(ins.get(i), results.get(i)), "load-coordinator-" + i);
+                reader.setDaemon(true);
+                reader.start();
+                readers.add(reader);
+            }
+            printProgress(readers);
+        } finally {
+            for (Socket socket : sockets) {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                    // already closed by the worker
+                }
+            }
+        }
+
+        merged = null;
+        for (WorkerResult r : results) {
+            MetricsSnapshot s = r.getSnapshot();
+            if (s == null) continue;
+            merged = merged == null ? s.withName("distributed") : merged.merge("distributed", s);
+        }
+        if (merged == null) {
+            throw new IOException("No worker returned any results");
+        }
+        return merged.toReport();
+    }
+
+    /** Merged snapshot of the last run, e.g. to save or merge further. */
+    public MetricsSnapshot getMergedSnapshot() { return merged; }
+
+    public List<WorkerResult> getWorkerResults() { return new ArrayList<>(results); }
+
+    /** Per-worker lines plus schedule totals for the last run. */
+    public void printWorkerSummary() {
+        long intended = 0, dispatched = 0, late = 0, missed = 0;
+        for (WorkerResult r : results) {
+            MetricsSnapshot s = r.getSnapshot();
+            System.out.printf(Locale.ROOT, "  %-40s %10d requests  %s%n", r.workerId,
+                    s == null ? 0 : s.getTotalCount(),
+                    r.isFinished() ? "finished" : "FAILED: " + r.getFailure());
+            intended += r.getIntended();
+            dispatched += r.getDispatched();
+            late += r.getLateStarts();
+            missed += r.getMissedStarts();
+        }
+        System.out.printf(Locale.ROOT, "  Schedule: %d intended, %d dispatched, %d late, %d missed%n",
+                intended, dispatched, late, missed);
+    }
+
+    private Runnable readLoop(DataInputStream in, WorkerResult result) {
+        return () -> {
+            Map<Long, Long> windows = new TreeMap<>();
+            try {
+                while (true) {
+                    byte type = in.readByte();
+                    if (type == INTERIM) {
+                        result.latest.set(applyWindows(windows, MetricsSnapshot.readFrom(in)));
+                    } else if (type == FINAL) {
+                        result.latest.set(applyWindows(windows, MetricsSnapshot.readFrom(in)));
+                        result.intended = in.readLong();
+                        result.dispatched = in.readLong();
+                        result.lateStarts = in.readLong();
+                        result.missedStarts = in.readLong();
+                        result.finished = true;
+                        return;
+                    } else {
+                        throw new IOException("Unexpected message type " + type);
+                    }
+                }
+            } catch (SocketTimeoutException e) {
+                result.failure = "no update for " + (START_DELAY_MILLIS + SILENT_INTERVALS * interimMillis) + " ms";
+                log("Worker %s dropped out: %s", result.workerId, result.failure);
+            } catch (IOException e) {
+                result.failure = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+                log("Worker %s dropped out: %s", result.workerId, result.failure);
+            }
+        };
+    }
+
+    /** Prints the merged interim totals once per interval until every reader has finished. */
+    private void printProgress(List<Thread> readers) throws InterruptedException {
+        long previous = 0;
+        while (true) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(interimMillis);
+            boolean alive = false;
+            for (Thread t : readers) {
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMillis > 0) t.join(remainingMillis);
+                alive |= t.isAlive();
+            }
+            if (!alive) return;
+            MetricsSnapshot sum = null;
+            for (WorkerResult r : results) {
+                MetricsSnapshot s = r.getSnapshot();
+                if (s != null) sum = sum == null ? s : sum.merge("progress", s);
+            }
+            if (sum == null) continue;
+            long total = sum.getTotalCount();
+            LatencyHistogram response = sum.getResponseTimes();
+            log("%d requests (+%d), %d errors, p99 %.3f ms", total, total - previous, sum.errorCount,
+                    response.getValueAtPercentile(99) / 1000.0);
+            previous = total;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        for (Process p : spawned) {
+            try {
+                if (!p.waitFor(10, TimeUnit.SECONDS)) {
+                    log("Worker process %d did not exit, destroying it", p.pid());
+                    p.destroy();
+                } else if (p.exitValue() != 0) {
+                    log("Worker process %d exited with code %d", p.pid(), p.exitValue());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                p.destroy();
+            }
+        }
+    }
+
+    private static void log(String format, Object... args) {
+        System.out.println("[LoadCoordinator] " + String.format(Locale.ROOT, format, args));
+    }
+
+    // --- protocol -------------------------------------------------------------------------------
+
+    static void writeMessage(DataOutputStream out, byte type) throws IOException {
+        synchronized (out) {
+            out.writeByte(type);
+            out.flush();
+        }
+    }
+
+    static void writeHello(DataOutputStream out, String workerId) throws IOException {
+        synchronized (out) {
+            out.writeByte(HELLO);
+            out.writeInt(MAGIC);
+            out.writeInt(PROTOCOL_VERSION);
+            out.writeUTF(workerId);
+            out.flush();
+        }
+    }
+
+    static String readHello(DataInputStream in) throws IOException {
+        expect(in, HELLO);
+        if (in.readInt() != MAGIC) throw new IOException("Not a load worker");
+        int version = in.readInt();
+        if (version != PROTOCOL_VERSION) throw new IOException("Unsupported worker protocol version: " + version);
+        return in.readUTF();
+    }
+
+    static void writeAssignment(DataOutputStream out, Assignment a) throws IOException {
+        synchronized (out) {
+            out.writeByte(ASSIGN);
+            out.writeInt(a.index);
+            out.writeInt(a.count);
+            out.writeUTF(a.profile.toString());
+            out.writeInt(a.urls.size());
+            for (String url : a.urls) out.writeUTF(url);
+            out.writeInt(a.maxInFlight);
+            out.writeInt(a.maxConnections);
+            out.writeLong(a.interimMillis);
+            out.writeLong(a.drainMillis);
+            out.flush();
+        }
+    }
+
+    static Assignment readAssignment(DataInputStream in) throws IOException {
+        expect(in, ASSIGN);
+        int index = in.readInt();
+        int count = in.readInt();
+        LoadProfile profile = LoadProfile.parse(in.readUTF());
+        int urlCount = in.readInt();
+        List<String> urls = new ArrayList<>(urlCount);
+        for (int i = 0; i < urlCount; i++) urls.add(in.readUTF());
+        return new Assignment(index, count, profile, urls, in.readInt(), in.readInt(), in.readLong(), in.readLong());
+    }
+
+    static void writeStart(DataOutputStream out, long delayMillis) throws IOException {
+        synchronized (out) {
+            out.writeByte(START);
+            out.writeLong(delayMillis);
+            out.flush();
+        }
+    }
+
+    static long readStart(DataInputStream in) throws IOException {
+        expect(in, START);
+        return in.readLong();
+    }
+
+    static void writeSnapshot(DataOutputStream out, byte type, MetricsSnapshot snapshot) throws IOException {
+        synchronized (out) {
+            out.writeByte(type);
+            snapshot.writeTo(out);
+            out.flush();
+        }
+    }
+
+    /**
+     * Worker side: {@code current} reduced to the windows whose count differs from what was last
+     * sent. {@code sent} is updated to match and forgets windows the worker no longer retains.
+     */
+    static MetricsSnapshot changedWindows(Map<Long, Long> sent, MetricsSnapshot current) {
+        Map<Long, Long> changed = new TreeMap<>();
+        current.getWindowCounts().forEach((start, count) -> {
+            if (!count.equals(sent.put(start, count))) changed.put(start, count);
+        });
+        sent.keySet().retainAll(current.getWindowCounts().keySet());
+        return current.withWindows(changed);
+    }
+
+    /**
+     * Coordinator side: folds the windows of an update into everything received from that worker
+     * so far and returns the update with the complete timeline.
+     */
+    static MetricsSnapshot applyWindows(Map<Long, Long> received, MetricsSnapshot update) {
+        received.putAll(update.getWindowCounts());
+        return update.withWindows(received);
+    }
+
+    static void writeFinal(DataOutputStream out, MetricsSnapshot snapshot,
+                           ArrivalRateScheduler.ScheduleReport schedule) throws IOException {
+        synchronized (out) {
+            out.writeByte(FINAL);
+            snapshot.writeTo(out);
+            out.writeLong(schedule.intended);
+            out.writeLong(schedule.dispatched);
+            out.writeLong(schedule.lateStarts);
+            out.writeLong(schedule.missedStarts);
+            out.flush();
+        }
+    }
+
+    private static void expect(DataInputStream in, byte type) throws IOException {
+        byte actual = in.readByte();
+        if (actual != type) throw new IOException("Expected message type " + type + " but got " + actual);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int workers = 2;
+        int port = 7070;
+        boolean spawn = false;
+        String profileText = null;
+        int maxInFlight = 1000;
+        int connections = 200;
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--workers" -> workers = Integer.parseInt(args[++i]);
+                case "--port" -> port = Integer.parseInt(args[++i]);
+                case "--profile" -> profileText = args[++i];
+                case "--url" -> urls.add(args[++i]);
+                case "--maxInFlight" -> maxInFlight = Integer.parseInt(args[++i]);
+                case "--connections" -> connections = Integer.parseInt(args[++i]);
+                case "--spawn" -> spawn = true;
+                default -> {
+                    System.err.println("Unknown argument: " + args[i]);
+                    System.exit(2);
+                }
+            }
+        }
+        if (urls.isEmpty()) {
+            System.err.println("Usage: LoadCoordinator --url <url> [--url <url>...] [--workers N] [--profile <stages>]"
+                    + " [--port P] [--spawn] [--maxInFlight N] [--connections N]");
+            System.exit(2);
+        }
+        LoadProfile profile = profileText != null ? LoadProfile.parse(profileText) : LoadProfile.fromConfig();
+
+        try (LoadCoordinator coordinator = new LoadCoordinator(port).engineLimits(maxInFlight, connections)) {
+            if (spawn) {
+                coordinator.spawnLocalWorkers(workers);
+            } else {
+                log("Start workers with: LoadWorker %s:%d", InetAddress.getLocalHost().getHostName(), coordinator.getPort());
+            }
+            PerformanceMetricsCollector.PerformanceReport report = coordinator.run(profile, urls, workers);
+            PerformanceMetricsCollector.printReport(report);
+            coordinator.printWorkerSummary();
+            coordinator.getMergedSnapshot().save("target/performance-results/snapshots/distributed.snapshot");
+        }
+    }
+}
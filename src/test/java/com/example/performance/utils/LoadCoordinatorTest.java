@@ -0,0 +1,185 @@
+package com.example.performance.utils;
+
+import com.example.mock.WeatherApiMockServer;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LoadCoordinatorTest {
+
+    @Test
+    public void mergesTheSharesOfTwoLocalWorkers() throws Exception {
+        WeatherApiMockServer mock = new WeatherApiMockServer();
+        mock.start(0);
+        List<Thread> workers = new ArrayList<>();
+        try (LoadCoordinator coordinator = new LoadCoordinator(0).engineLimits(100, 10).interimMillis(200)) {
+            for (int i = 0; i < 2; i++) {
+                Thread worker = new Thread(() -> {
+                    try {
+                        new LoadWorker("localhost", coordinator.getPort()).run();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                worker.start();
+                workers.add(worker);
+            }
+
+            // 50 req/s for 2 s plus a 3-user spike: 100 + 3 arrivals in total
+            LoadProfile profile = LoadProfile.parse("spike(3); plateau(50, 2s)");
+            PerformanceMetricsCollector.PerformanceReport report = coordinator.run(profile,
+                    List.of(mock.baseUrl() + "/current.json?q=London"), 2);
+
+            assertEquals(103, report.totalRequests);
+            assertEquals(0, report.errorCount);
+            long perWorker = 0;
+            for (LoadCoordinator.WorkerResult r : coordinator.getWorkerResults()) {
+                assertTrue(r.workerId + " " + r.getFailure(), r.isFinished());
+                assertEquals(r.getIntended(), r.getDispatched());
+                perWorker += r.getSnapshot().getTotalCount();
+            }
+            assertEquals(report.totalRequests, perWorker);
+        } finally {
+            for (Thread worker : workers) worker.join(10_000);
+            mock.stop();
+        }
+    }
+
+    @Test
+    public void spawnedWorkerProcessesRunTheirSharesAndExitCleanly() throws Exception {
+        WeatherApiMockServer mock = new WeatherApiMockServer();
+        mock.start(0);
+        List<Process> processes = List.of();
+        try (LoadCoordinator coordinator = new LoadCoordinator(0).engineLimits(100, 10).interimMillis(200)) {
+            coordinator.spawnLocalWorkers(2);
+            processes = coordinator.getSpawnedWorkers();
+            assertEquals(2, processes.size());
+
+            PerformanceMetricsCollector.PerformanceReport report = coordinator.run(LoadProfile.parse("plateau(40, 1s)"),
+                    List.of(mock.baseUrl() + "/current.json?q=London"), 2);
+
+            assertEquals(40, report.totalRequests);
+            assertEquals(0, report.errorCount);
+            for (LoadCoordinator.WorkerResult r : coordinator.getWorkerResults()) {
+                assertTrue(r.workerId + " " + r.getFailure(), r.isFinished());
+                assertEquals(20, r.getDispatched());
+            }
+        } finally {
+            mock.stop();
+        }
+        // close() waited for the workers; LoadWorker.main returns normally once its share is sent
+        for (Process p : processes) {
+            assertFalse(p.isAlive());
+            assertEquals(0, p.exitValue());
+        }
+    }
+
+    @Test
+    public void silentWorkerIsReportedAsDroppedOut() throws Exception {
+        try (LoadCoordinator coordinator = new LoadCoordinator(0).interimMillis(100);
+             Socket socket = new Socket("localhost", coordinator.getPort())) {
+            // A worker that sends one update and then hangs without closing its connection
+            Thread worker = new Thread(() -> {
+                try {
+                    DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                    LoadCoordinator.writeHello(out, "silent");
+                    LoadCoordinator.readAssignment(in);
+                    LoadCoordinator.writeMessage(out, LoadCoordinator.READY);
+                    LoadCoordinator.readStart(in);
+                    PerformanceMetricsCollector metrics = PerformanceMetricsCollector.histogram("silent", 2);
+                    metrics.recordDurationMicros(1_000, 200);
+                    LoadCoordinator.writeSnapshot(out, LoadCoordinator.INTERIM, metrics.snapshot());
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            worker.start();
+
+            long start = System.nanoTime();
+            PerformanceMetricsCollector.PerformanceReport report = coordinator.run(LoadProfile.parse("plateau(10, 1s)"),
+                    List.of("http://localhost:1/"), 1);
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            worker.join(1_000);
+
+            assertEquals(1, report.totalRequests);
+            LoadCoordinator.WorkerResult result = coordinator.getWorkerResults().get(0);
+            assertFalse(result.isFinished());
+            assertTrue(result.getFailure(), result.getFailure().startsWith("no update"));
+            assertTrue("returned after " + elapsedMillis + " ms", elapsedMillis < 10_000);
+        }
+    }
+
+    @Test
+    public void workerProcessExitCodesReportBadArgumentsAndFailures() throws Exception {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        assertEquals(2, runWorkerProcess("no-port"));
+        // Nobody listening: the connect failure ends the process with a stack trace and code 1
+        assertEquals(1, runWorkerProcess("localhost:" + closedPort));
+    }
+
+    @Test
+    public void interimUpdatesCarryOnlyChangedWindows() {
+        Map<Long, Long> sent = new HashMap<>();
+        Map<Long, Long> received = new TreeMap<>();
+
+        MetricsSnapshot first = snapshot(Map.of(0L, 5L, 1_000L, 2L));
+        MetricsSnapshot delta = LoadCoordinator.changedWindows(sent, first);
+        assertEquals(first.getWindowCounts(), delta.getWindowCounts());
+        assertEquals(first.getWindowCounts(), LoadCoordinator.applyWindows(received, delta).getWindowCounts());
+
+        // Window 0 is complete, window 1000 grew and 2000 is new
+        MetricsSnapshot second = snapshot(Map.of(0L, 5L, 1_000L, 6L, 2_000L, 1L));
+        delta = LoadCoordinator.changedWindows(sent, second);
+        assertEquals(Map.of(1_000L, 6L, 2_000L, 1L), delta.getWindowCounts());
+        assertEquals(second.getTotalCount(), delta.getTotalCount());
+        assertEquals(second.getWindowCounts(), LoadCoordinator.applyWindows(received, delta).getWindowCounts());
+
+        // The worker no longer retains window 0: nothing to send for it, the coordinator keeps it
+        MetricsSnapshot third = snapshot(Map.of(1_000L, 6L, 2_000L, 1L));
+        delta = LoadCoordinator.changedWindows(sent, third);
+        assertTrue(delta.getWindowCounts().isEmpty());
+        assertEquals(Map.of(0L, 5L, 1_000L, 6L, 2_000L, 1L), LoadCoordinator.applyWindows(received, delta).getWindowCounts());
+        assertEquals(Map.of(1_000L, 6L, 2_000L, 1L), sent);
+    }
+
+    private static MetricsSnapshot snapshot(Map<Long, Long> windows) {
+        LatencyHistogram h = new LatencyHistogram(3_600_000_000L, LoadCoordinator.SIGNIFICANT_DIGITS);
+        long total = 0;
+        for (long count : windows.values()) {
+            h.recordCount(1_000, count);
+            total += count;
+        }
+        return new MetricsSnapshot("worker", total, 0, total, 0, 0, 3_000, 1000, windows, h, h);
+    }
+
+    private static int runWorkerProcess(String coordinator) throws Exception {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process p = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                LoadWorker.class.getName(), coordinator)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        assertTrue(p.waitFor(30, TimeUnit.SECONDS));
+        return p.exitValue();
+    }
+}
@@ -1,39 +1,248 @@
 package com.example.performance.utils;
 
+import com.example.performance.config.PerformanceConfig;
+
+import java.util.Locale;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Load Generator Utility
  *
  * Provides utilities for generating concurrent load in performance tests
  * Follows industry best practices for thread management
+ *
+ * Two thread modes are available (perf.loadgen.threads):
+ *  - platform: a fixed pool of {@code threadPoolSize} OS threads (default)
+ *  - virtual: one virtual thread per task, at most {@code threadPoolSize} running at once.
+ *    Blocking RestAssured calls park the virtual thread instead of an OS thread, so thousands
+ *    of virtual users cost a few KB of heap each rather than a 1 MB native stack.
+ *
+ * Submissions are bounded in both modes: at most {@code threadPoolSize} tasks run and at most
+ * {@code queueCapacity} wait (perf.loadgen.queueCapacity). When both are full the queue policy
+ * (perf.loadgen.queuePolicy) decides:
+ *  - block: {@link #execute} waits for space, slowing the submitter down to the generator's pace
+ *  - drop: the task is rejected with a {@link RejectedExecutionException} and counted in
+ *    {@link #getDroppedTasks()}
+ *  - caller-runs: the submitting thread runs the task itself
+ * so a saturated generator degrades predictably instead of queueing until the heap is exhausted.
+ * Rejecting rather than silently discarding lets callers account for the task: as an
+ * {@link java.util.concurrent.Executor} for {@link ArrivalRateScheduler} or {@link LoadProfile},
+ * a dropped arrival is counted as missed and never occupies an in-flight slot.
+ *
+ * An optional {@link TokenBucketRateLimiter} ({@link #setRateLimiter}) caps task starts: each task
+ * takes a permit right before it runs, on its pool thread (or on the submitter under
+ * caller-runs). Tasks that queued up during a stall therefore still start at the limited rate
+ * rather than in a burst, and a dropped task never uses up a permit.
  */
 public class LoadGenerator {
 
+    public enum ThreadMode {
+        PLATFORM, VIRTUAL;
+
+        public static ThreadMode parse(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    public enum QueuePolicy {
+        BLOCK, DROP, CALLER_RUNS;
+
+        public static QueuePolicy parse(String value) {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+    }
+
     private final int threadPoolSize;
+    private final ThreadMode threadMode;
+    private final int queueCapacity;
+    private final QueuePolicy queuePolicy;
     private ExecutorService executorService;
+    /** Caps concurrently running tasks in virtual mode; null in platform mode */
+    private Semaphore permits;
+    /** One permit per task slot, running or queued: threadPoolSize + queueCapacity */
+    private Semaphore admission;
+    private int slots;
+
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger peakQueueDepth = new AtomicInteger();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder callerRuns = new LongAdder();
+    private volatile TokenBucketRateLimiter rateLimiter;
 
     public LoadGenerator(int threadPoolSize) {
+        this(threadPoolSize, ThreadMode.parse(PerformanceConfig.LOADGEN_THREADS));
+    }
+
+    public LoadGenerator(int threadPoolSize, ThreadMode threadMode) {
+        this(threadPoolSize, threadMode, PerformanceConfig.LOADGEN_QUEUE_CAPACITY,
+                QueuePolicy.parse(PerformanceConfig.LOADGEN_QUEUE_POLICY));
+    }
+
+    public LoadGenerator(int threadPoolSize, ThreadMode threadMode, int queueCapacity, QueuePolicy queuePolicy) {
+        if (queueCapacity < 0) {
+            throw new IllegalArgumentException("queueCapacity must not be negative: " + queueCapacity);
+        }
         this.threadPoolSize = threadPoolSize;
+        this.threadMode = threadMode;
+        this.queueCapacity = queueCapacity;
+        this.queuePolicy = queuePolicy;
+    }
+
+    public ThreadMode getThreadMode() {
+        return threadMode;
+    }
+
+    public QueuePolicy getQueuePolicy() {
+        return queuePolicy;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /** Caps the rate at which tasks start running; null removes the cap. */
+    public void setRateLimiter(TokenBucketRateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    public TokenBucketRateLimiter getRateLimiter() {
+        return rateLimiter;
     }
 
     /**
      * Start the load generator
      */
     public void start() {
-        executorService = Executors.newFixedThreadPool(threadPoolSize);
+        slots = (int) Math.min(Integer.MAX_VALUE, (long) threadPoolSize + queueCapacity);
+        admission = new Semaphore(slots);
+        if (threadMode == ThreadMode.VIRTUAL) {
+            permits = new Semaphore(threadPoolSize);
+            executorService = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("load-vu-", 0).factory());
+        } else {
+            // The executor's own queue is unbounded, but admission permits keep it within queueCapacity
+            executorService = Executors.newFixedThreadPool(threadPoolSize);
+        }
     }
 
     /**
-     * Execute a task with the load generator
+     * Execute a task with the load generator. When running and queued tasks are at capacity the
+     * queue policy applies: block until space frees up, drop the task, or run it on the caller.
+     *
+     * @throws RejectedExecutionException if the task was dropped, by the drop policy or because the
+     *                                    submitter was interrupted while waiting for a permit (the
+     *                                    interrupt flag is kept); the task is counted as dropped
      */
     public void execute(Runnable task) {
         if (executorService == null || executorService.isShutdown()) {
             throw new IllegalStateException("Load generator is not started");
         }
-        executorService.submit(task);
+        if (!admission.tryAcquire()) {
+            switch (queuePolicy) {
+                case DROP:
+                    throw reject("Load generator queue is full (" + queueCapacity + " queued)");
+                case CALLER_RUNS:
+                    if (!awaitRatePermit()) {
+                        throw reject("Interrupted while waiting for a rate limit permit");
+                    }
+                    callerRuns.increment();
+                    task.run();
+                    return;
+                default:
+                    try {
+                        admission.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw reject("Interrupted while waiting for queue space");
+                    }
+            }
+        }
+        submitted.increment();
+        peakQueueDepth.accumulateAndGet(getQueueDepth(), Math::max);
+        try {
+            executorService.submit(() -> {
+                if (permits != null) {
+                    // Queued tasks wait as parked virtual threads, mirroring the fixed pool's queue
+                    try {
+                        permits.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        admission.release();
+                        return;
+                    }
+                }
+                if (!awaitRatePermit()) {
+                    // Interrupted by shutdownNow(): the task never started
+                    if (permits != null) permits.release();
+                    admission.release();
+                    return;
+                }
+                running.incrementAndGet();
+                try {
+                    task.run();
+                } finally {
+                    running.decrementAndGet();
+                    if (permits != null) permits.release();
+                    admission.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            admission.release();
+            throw e;
+        }
+    }
+
+    /** Waits for a rate limit permit, if a limiter is set; false if interrupted (the flag is kept). */
+    private boolean awaitRatePermit() {
+        TokenBucketRateLimiter limiter = rateLimiter;
+        if (limiter == null) return true;
+        try {
+            limiter.acquire();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private RejectedExecutionException reject(String reason) {
+        dropped.increment();
+        return new RejectedExecutionException(reason);
+    }
+
+    /** Tasks accepted but not yet running. */
+    public int getQueueDepth() {
+        Semaphore a = admission;
+        if (a == null) return 0;
+        int outstanding = slots - a.availablePermits();
+        return Math.max(0, outstanding - running.get());
+    }
+
+    /** Highest queue depth seen at submission time. */
+    public int getPeakQueueDepth() { return peakQueueDepth.get(); }
+
+    public int getRunningTasks() { return running.get(); }
+
+    /** Tasks handed to the executor (excluding dropped and caller-run ones). */
+    public long getSubmittedTasks() { return submitted.sum(); }
+
+    /** Tasks discarded by the drop policy, or while blocked submitters were interrupted. */
+    public long getDroppedTasks() { return dropped.sum(); }
+
+    /** Tasks the submitting thread ran itself under the caller-runs policy. */
+    public long getCallerRunsTasks() { return callerRuns.sum(); }
+
+    public void printQueueStats() {
+        System.out.printf(Locale.ROOT,
+                "LoadGenerator queue: policy %s, capacity %d | %d submitted, %d dropped, %d caller-runs | depth %d, peak %d%n",
+                queuePolicy.name().toLowerCase(Locale.ROOT).replace('_', '-'), queueCapacity,
+                getSubmittedTasks(), getDroppedTasks(), getCallerRunsTasks(), getQueueDepth(), getPeakQueueDepth());
     }
 
     /**
@@ -49,10 +258,10 @@ public class LoadGenerator {
     }
 
     /**
-     * Get the executor service (for advanced usage)
+     * Get the executor service (for advanced usage).
+     * Tasks submitted directly bypass the queue bound and, in virtual mode, the concurrency cap.
      */
     public ExecutorService getExecutorService() {
         return executorService;
     }
 }
-
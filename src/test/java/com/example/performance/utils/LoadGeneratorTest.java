@@ -0,0 +1,194 @@
+package com.example.performance.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LoadGeneratorTest {
+
+    @Test
+    public void blockPolicyPacesTheSubmitterAndRunsEveryTask() throws InterruptedException {
+        for (LoadGenerator.ThreadMode mode : LoadGenerator.ThreadMode.values()) {
+            LoadGenerator generator = new LoadGenerator(2, mode, 1, LoadGenerator.QueuePolicy.BLOCK);
+            generator.start();
+            CountDownLatch release = new CountDownLatch(1);
+            AtomicInteger completed = new AtomicInteger();
+            for (int i = 0; i < 3; i++) {
+                generator.execute(() -> {
+                    await(release);
+                    completed.incrementAndGet();
+                });
+            }
+
+            // Two running, one queued: the fourth submission waits for a slot
+            Thread submitter = new Thread(() -> generator.execute(completed::incrementAndGet));
+            submitter.start();
+            submitter.join(200);
+            assertTrue(mode + " submitter should block", submitter.isAlive());
+            assertEquals(1, generator.getQueueDepth());
+
+            release.countDown();
+            submitter.join(5_000);
+            generator.shutdown();
+            assertEquals(4, completed.get());
+            assertEquals(4, generator.getSubmittedTasks());
+            assertEquals(0, generator.getDroppedTasks());
+            // Sampled at submission, before the first tasks may have started running
+            assertTrue(generator.getPeakQueueDepth() >= 1);
+        }
+    }
+
+    @Test
+    public void interruptedBlockedSubmitterIsRejected() throws InterruptedException {
+        LoadGenerator generator = new LoadGenerator(1, LoadGenerator.ThreadMode.PLATFORM, 0, LoadGenerator.QueuePolicy.BLOCK);
+        generator.start();
+        CountDownLatch release = new CountDownLatch(1);
+        generator.execute(() -> await(release));
+
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+        AtomicReference<Boolean> stillInterrupted = new AtomicReference<>();
+        Thread submitter = new Thread(() -> {
+            try {
+                generator.execute(() -> { });
+            } catch (RejectedExecutionException e) {
+                thrown.set(e);
+                stillInterrupted.set(Thread.currentThread().isInterrupted());
+            }
+        });
+        submitter.start();
+        Thread.sleep(100);
+        submitter.interrupt();
+        submitter.join(5_000);
+
+        assertTrue(thrown.get() instanceof RejectedExecutionException);
+        assertEquals(Boolean.TRUE, stillInterrupted.get());
+        assertEquals(1, generator.getDroppedTasks());
+        release.countDown();
+        generator.shutdown();
+    }
+
+    @Test
+    public void dropPolicyRejectsVisibly() throws InterruptedException {
+        LoadGenerator generator = new LoadGenerator(1, LoadGenerator.ThreadMode.VIRTUAL, 1, LoadGenerator.QueuePolicy.DROP);
+        generator.start();
+        CountDownLatch release = new CountDownLatch(1);
+        generator.execute(() -> await(release));
+        generator.execute(() -> await(release));
+        try {
+            generator.execute(() -> fail("dropped task must not run"));
+            fail("Expected the full generator to reject the task");
+        } catch (RejectedExecutionException expected) {
+            assertEquals(1, generator.getDroppedTasks());
+        }
+        assertEquals(2, generator.getSubmittedTasks());
+        release.countDown();
+        generator.shutdown();
+    }
+
+    @Test
+    public void droppedArrivalsAreMissedAndDoNotHoldTheDrain() throws InterruptedException {
+        LoadGenerator generator = new LoadGenerator(1, LoadGenerator.ThreadMode.PLATFORM, 0, LoadGenerator.QueuePolicy.DROP);
+        generator.start();
+        AtomicInteger ran = new AtomicInteger();
+        long begin = System.nanoTime();
+        // 50 arrivals 2 ms apart against one 30 ms task slot: most find the generator full
+        ArrivalRateScheduler.ScheduleReport report = ArrivalRateScheduler.dispatch(
+                new LongSupplier() {
+                    int n;
+
+                    @Override
+                    public long getAsLong() {
+                        return n < 50 ? TimeUnit.MILLISECONDS.toNanos(2L * n++) : -1;
+                    }
+                },
+                generator::execute, Integer.MAX_VALUE, TimeUnit.MILLISECONDS.toNanos(1), 500,
+                ArrivalRateScheduler.Arrivals.CONSTANT, TimeUnit.SECONDS.toNanos(10), t -> {
+                    sleep(30);
+                    ran.incrementAndGet();
+                });
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+        generator.shutdown();
+
+        assertEquals(50, report.intended);
+        assertEquals(ran.get(), report.dispatched);
+        assertEquals(50 - ran.get(), report.missedStarts);
+        assertEquals(generator.getDroppedTasks(), report.missedStarts);
+        // Most are missed on an idle host; a stalled pacing thread spreads them out and lets more through
+        assertTrue("missed " + report.missedStarts, report.missedStarts > 0);
+        assertTrue("ran " + ran.get(), ran.get() >= 1);
+        // Only the dispatched tasks were waited for, not the 10 s drain timeout (about 0.1 s of
+        // pacing and 30 ms per task when idle, so this leaves room for a busy host)
+        assertTrue("elapsed " + elapsedMillis, elapsedMillis < 8_000);
+    }
+
+    @Test
+    public void callerRunsPolicyRunsOnTheSubmittingThread() throws InterruptedException {
+        LoadGenerator generator = new LoadGenerator(1, LoadGenerator.ThreadMode.PLATFORM, 0, LoadGenerator.QueuePolicy.CALLER_RUNS);
+        generator.start();
+        CountDownLatch release = new CountDownLatch(1);
+        generator.execute(() -> await(release));
+
+        AtomicReference<Thread> ranOn = new AtomicReference<>();
+        generator.execute(() -> ranOn.set(Thread.currentThread()));
+        assertSame(Thread.currentThread(), ranOn.get());
+        assertEquals(1, generator.getCallerRunsTasks());
+        assertEquals(1, generator.getSubmittedTasks());
+        assertEquals(0, generator.getDroppedTasks());
+        release.countDown();
+        generator.shutdown();
+    }
+
+    @Test
+    public void rateLimiterSpacesTaskStartsNotSubmissions() throws InterruptedException {
+        LoadGenerator generator = new LoadGenerator(2, LoadGenerator.ThreadMode.PLATFORM, 10, LoadGenerator.QueuePolicy.DROP);
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(50); // one start every 20 ms
+        generator.setRateLimiter(limiter);
+        generator.start();
+        long interval = TimeUnit.MILLISECONDS.toNanos(20);
+        long[] starts = new long[8];
+        AtomicInteger next = new AtomicInteger();
+        long t0 = System.nanoTime();
+        // Submitting is not paced, so the tasks pile up in the queue behind the two pool threads
+        for (int i = 0; i < starts.length; i++) {
+            generator.execute(() -> starts[next.getAndIncrement()] = System.nanoTime());
+        }
+        assertTrue("peak queue " + generator.getPeakQueueDepth(), generator.getPeakQueueDepth() >= 1);
+        generator.shutdown();
+
+        // The backlog still starts one task per interval: the i-th start can't come before slot i
+        assertEquals(starts.length, next.get());
+        Arrays.sort(starts);
+        for (int i = 0; i < starts.length; i++) {
+            assertTrue("start " + i + " after " + (starts[i] - t0) / 1_000 + " us", starts[i] - t0 >= i * interval);
+        }
+        assertEquals(starts.length, limiter.getGranted());
+        assertEquals(0, generator.getDroppedTasks());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
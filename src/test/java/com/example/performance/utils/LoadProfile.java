@@ -0,0 +1,505 @@
+package com.example.performance.utils;
+
+import com.example.performance.config.PerformanceConfig;
+import io.gatling.javaapi.core.OpenInjectionStep;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static io.gatling.javaapi.core.CoreDsl.*;
+
+/**
+ * Load Profile
+ *
+ * Declarative open-model load shape: a sequence of stages, each describing how many arrivals
+ * (iterations of the test task) start per second. The same profile runs on the RestAssured engine
+ * through {@link #run(LoadGenerator, long, TimeUnit, LongConsumer)} and is handed to Gatling with
+ * {@link #toGatlingSteps()}, so load, stress, spike and endurance shapes are defined once.
+ *
+ * Stages (Gatling equivalent in brackets):
+ *  - ramp(from, to, duration)                  rate changes linearly      [rampUsersPerSec]
+ *  - plateau(rate, duration)                   constant rate              [constantUsersPerSec]
+ *  - step(from, increment, levels, duration)   staircase of plateaus      [incrementUsersPerSec]
+ *  - spike(users)                              burst all at once          [atOnceUsers]
+ *  - stop(duration)                            no arrivals                [nothingFor]
+ *
+ * Text form, used by perf.profile and profile files: stages separated by ';' or new lines,
+ * '#' starts a comment, durations as 500ms, 30s, 2m or 1h (a bare number is seconds):
+ * <pre>
+ *   ramp(1, 20, 30s); plateau(20, 2m); spike(50); stop(10s); step(20, 10, 3, 30s)
+ * </pre>
+ * Arrivals are evenly spaced at the instantaneous rate of their stage.
+ */
+public final class LoadProfile {
+
+    private static final Pattern STAGE = Pattern.compile("(\\w+)\\s*\\(([^)]*)\\)");
+    private static final Pattern DURATION = Pattern.compile("(\\d+(?:\\.\\d+)?)\\s*(ms|s|m|h)?");
+
+    /** One segment of the profile; offsets are relative to the start of the stage. */
+    public abstract static class Stage {
+        /** Length of the stage in nanoseconds. */
+        public abstract long durationNanos();
+
+        /** Offset of the k-th arrival (0-based) within this stage, or -1 if the stage has fewer. */
+        abstract long arrivalOffsetNanos(long k);
+
+        /** Number of arrivals this stage starts. */
+        public abstract long arrivals();
+
+        abstract OpenInjectionStep toGatling();
+
+        /** This stage's part for worker {@code index} of {@code count}. */
+        abstract Stage share(int index, int count);
+    }
+
+    private static final class Ramp extends Stage {
+        final double from, to;
+        final long nanos;
+
+        Ramp(double from, double to, long nanos) {
+            this.from = from;
+            this.to = to;
+            this.nanos = nanos;
+        }
+
+        @Override public long durationNanos() { return nanos; }
+
+        @Override
+        long arrivalOffsetNanos(long k) {
+            // Arrivals by time t (seconds): N(t) = from*t + (to-from)*t^2 / (2*D); solve N(t) = k
+            double d = nanos / 1e9;
+            double c = (to - from) / (2 * d);
+            double t;
+            if (Math.abs(c) < 1e-12) {
+                if (from <= 0) return -1;
+                t = k / from;
+            } else {
+                double disc = from * from + 4 * c * k;
+                if (disc < 0) return -1;
+                t = (-from + Math.sqrt(disc)) / (2 * c);
+            }
+            long offset = (long) (t * 1e9);
+            return t >= 0 && offset < nanos ? offset : -1;
+        }
+
+        @Override public long arrivals() { return (long) Math.ceil((from + to) / 2 * nanos / 1e9); }
+
+        @Override
+        OpenInjectionStep toGatling() {
+            return rampUsersPerSec(from).to(to).during(Duration.ofNanos(nanos));
+        }
+
+        @Override
+        Stage share(int index, int count) { return new Ramp(from / count, to / count, nanos); }
+
+        @Override
+        public String toString() { return "ramp(" + num(from) + ", " + num(to) + ", " + dur(nanos) + ")"; }
+    }
+
+    private static final class Plateau extends Stage {
+        final double rate;
+        final long nanos;
+
+        Plateau(double rate, long nanos) {
+            this.rate = rate;
+            this.nanos = nanos;
+        }
+
+        @Override public long durationNanos() { return nanos; }
+
+        @Override
+        long arrivalOffsetNanos(long k) {
+            if (rate <= 0) return -1;
+            long offset = (long) (k * 1e9 / rate);
+            return offset < nanos ? offset : -1;
+        }
+
+        @Override public long arrivals() { return (long) Math.ceil(rate * nanos / 1e9); }
+
+        @Override
+        OpenInjectionStep toGatling() {
+            return constantUsersPerSec(rate).during(Duration.ofNanos(nanos));
+        }
+
+        @Override
+        Stage share(int index, int count) { return new Plateau(rate / count, nanos); }
+
+        @Override
+        public String toString() { return "plateau(" + num(rate) + ", " + dur(nanos) + ")"; }
+    }
+
+    private static final class Step extends Stage {
+        final double from, increment;
+        final int levels;
+        final long levelNanos;
+        final Plateau[] plateaus;
+
+        Step(double from, double increment, int levels, long levelNanos) {
+            this.from = from;
+            this.increment = increment;
+            this.levels = levels;
+            this.levelNanos = levelNanos;
+            this.plateaus = new Plateau[levels];
+            for (int i = 0; i < levels; i++) {
+                plateaus[i] = new Plateau(from + i * increment, levelNanos);
+            }
+        }
+
+        @Override public long durationNanos() { return levels * levelNanos; }
+
+        @Override
+        long arrivalOffsetNanos(long k) {
+            for (int i = 0; i < levels; i++) {
+                long n = plateaus[i].arrivals();
+                if (k < n) {
+                    long offset = plateaus[i].arrivalOffsetNanos(k);
+                    return offset < 0 ? -1 : i * levelNanos + offset;
+                }
+                k -= n;
+            }
+            return -1;
+        }
+
+        @Override
+        public long arrivals() {
+            long n = 0;
+            for (Plateau p : plateaus) n += p.arrivals();
+            return n;
+        }
+
+        @Override
+        OpenInjectionStep toGatling() {
+            return incrementUsersPerSec(increment).times(levels)
+                    .eachLevelLasting(Duration.ofNanos(levelNanos)).startingFrom(from);
+        }
+
+        @Override
+        Stage share(int index, int count) {
+            return new Step(from / count, increment / count, levels, levelNanos);
+        }
+
+        @Override
+        public String toString() {
+            return "step(" + num(from) + ", " + num(increment) + ", " + levels + ", " + dur(levelNanos) + ")";
+        }
+    }
+
+    private static final class Spike extends Stage {
+        final int users;
+
+        Spike(int users) { this.users = users; }
+
+        @Override public long durationNanos() { return 0; }
+
+        @Override long arrivalOffsetNanos(long k) { return k < users ? 0 : -1; }
+
+        @Override public long arrivals() { return users; }
+
+        @Override OpenInjectionStep toGatling() { return atOnceUsers(users); }
+
+        /** Whole users: the remainder goes to the lowest indices. */
+        @Override Stage share(int index, int count) { return new Spike(users / count + (index < users % count ? 1 : 0)); }
+
+        @Override public String toString() { return "spike(" + users + ")"; }
+    }
+
+    private static final class Stop extends Stage {
+        final long nanos;
+
+        Stop(long nanos) { this.nanos = nanos; }
+
+        @Override public long durationNanos() { return nanos; }
+
+        @Override long arrivalOffsetNanos(long k) { return -1; }
+
+        @Override public long arrivals() { return 0; }
+
+        @Override OpenInjectionStep toGatling() { return nothingFor(Duration.ofNanos(nanos)); }
+
+        @Override Stage share(int index, int count) { return this; }
+
+        @Override public String toString() { return "stop(" + dur(nanos) + ")"; }
+    }
+
+    private final List<Stage> stages = new ArrayList<>();
+
+    public LoadProfile ramp(double fromRate, double toRate, Duration duration) {
+        requireRate(fromRate);
+        requireRate(toRate);
+        stages.add(new Ramp(fromRate, toRate, requirePositive(duration)));
+        return this;
+    }
+
+    public LoadProfile plateau(double rate, Duration duration) {
+        requireRate(rate);
+        stages.add(new Plateau(rate, requirePositive(duration)));
+        return this;
+    }
+
+    public LoadProfile step(double fromRate, double increment, int levels, Duration levelDuration) {
+        requireRate(fromRate);
+        requireRate(fromRate + (levels - 1) * increment);
+        if (levels < 1) throw new IllegalArgumentException("levels must be positive: " + levels);
+        stages.add(new Step(fromRate, increment, levels, requirePositive(levelDuration)));
+        return this;
+    }
+
+    public LoadProfile spike(int users) {
+        if (users < 0) throw new IllegalArgumentException("users must not be negative: " + users);
+        stages.add(new Spike(users));
+        return this;
+    }
+
+    public LoadProfile stop(Duration duration) {
+        stages.add(new Stop(requirePositive(duration)));
+        return this;
+    }
+
+    public List<Stage> getStages() { return Collections.unmodifiableList(stages); }
+
+    public Duration getDuration() {
+        long nanos = 0;
+        for (Stage s : stages) nanos += s.durationNanos();
+        return Duration.ofNanos(nanos);
+    }
+
+    /** Total arrivals the profile starts. */
+    public long getTotalArrivals() {
+        long n = 0;
+        for (Stage s : stages) n += s.arrivals();
+        return n;
+    }
+
+    /** Mean arrival rate over the whole profile, per second. */
+    public double getMeanRate() {
+        long nanos = getDuration().toNanos();
+        return nanos == 0 ? getTotalArrivals() : getTotalArrivals() * 1e9 / nanos;
+    }
+
+    /**
+     * The part of this profile one of {@code count} generators runs so that together they produce
+     * the full load: rates divided by {@code count}, spike users split as whole users.
+     */
+    public LoadProfile share(int index, int count) {
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("Invalid share " + index + " of " + count);
+        }
+        LoadProfile part = new LoadProfile();
+        for (Stage s : stages) part.stages.add(s.share(index, count));
+        return part;
+    }
+
+    /** Injection steps for {@code scenario.injectOpen(...)}. */
+    public OpenInjectionStep[] toGatlingSteps() {
+        OpenInjectionStep[] steps = new OpenInjectionStep[stages.size()];
+        for (int i = 0; i < steps.length; i++) {
+            steps[i] = stages.get(i).toGatling();
+        }
+        return steps;
+    }
+
+    /**
+     * Intended start offsets from the beginning of the profile, in order; -1 once exhausted.
+     * Not thread-safe: one supplier per run.
+     */
+    LongSupplier arrivalOffsets() {
+        return new LongSupplier() {
+            int stage = 0;
+            long k = 0;
+            long stageStart = 0;
+
+            @Override
+            public long getAsLong() {
+                while (stage < stages.size()) {
+                    Stage s = stages.get(stage);
+                    long offset = s.arrivalOffsetNanos(k);
+                    if (offset >= 0) {
+                        k++;
+                        return stageStart + offset;
+                    }
+                    stageStart += s.durationNanos();
+                    stage++;
+                    k = 0;
+                }
+                return -1;
+            }
+        };
+    }
+
+    /**
+     * Runs the profile on {@code generator}, which must be started. Pacing happens on the calling
+     * thread as in {@link ArrivalRateScheduler}; {@code task} receives the intended start
+     * (System.nanoTime()) for {@link PerformanceMetricsCollector#timedFrom}. Blocks until the
+     * profile has finished and in-flight tasks have drained or {@code drainTimeout} has passed.
+     */
+    public ArrivalRateScheduler.ScheduleReport run(LoadGenerator generator, long drainTimeout, TimeUnit unit,
+                                                   LongConsumer task) throws InterruptedException {
+        return ArrivalRateScheduler.dispatch(arrivalOffsets(), generator::execute, Integer.MAX_VALUE,
+                TimeUnit.MILLISECONDS.toNanos(1), getMeanRate(), ArrivalRateScheduler.Arrivals.CONSTANT,
+                unit.toNanos(drainTimeout), task);
+    }
+
+    /**
+     * Runs {@code warmup} (e.g. {@link WarmupPhase#fromConfig()}) and prints it, then the profile as
+     * {@link #run(LoadGenerator, long, TimeUnit, LongConsumer)} does. {@code warmupRequest} records
+     * into the warm-up's own collector, so the profile's collector only sees the measured phase.
+     */
+    public ArrivalRateScheduler.ScheduleReport run(LoadGenerator generator, WarmupPhase warmup,
+                                                   Consumer<PerformanceMetricsCollector> warmupRequest,
+                                                   long drainTimeout, TimeUnit unit,
+                                                   LongConsumer task) throws InterruptedException {
+        warmup.run("Load profile", warmupRequest).print();
+        return run(generator, drainTimeout, unit, task);
+    }
+
+    /**
+     * Profile from perf.profile.file, else perf.profile, else the classic shape built from
+     * perf.users, perf.rampUp and perf.duration: ramp(1, users, rampUp); plateau(users, duration).
+     */
+    public static LoadProfile fromConfig() {
+        if (PerformanceConfig.PROFILE_FILE != null) {
+            return load(PerformanceConfig.PROFILE_FILE);
+        }
+        if (PerformanceConfig.PROFILE != null) {
+            return parse(PerformanceConfig.PROFILE);
+        }
+        return new LoadProfile()
+                .ramp(1, PerformanceConfig.USERS, Duration.ofSeconds(PerformanceConfig.RAMP_UP_TIME))
+                .plateau(PerformanceConfig.USERS, Duration.ofSeconds(PerformanceConfig.DURATION));
+    }
+
+    public static LoadProfile load(String path) {
+        try {
+            return parse(new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot read load profile " + path, e);
+        }
+    }
+
+    public static LoadProfile parse(String text) {
+        LoadProfile profile = new LoadProfile();
+        for (String line : text.split("\\R")) {
+            int comment = line.indexOf('#');
+            String body = comment >= 0 ? line.substring(0, comment) : line;
+            for (String part : body.split(";")) {
+                String stage = part.trim();
+                if (stage.isEmpty()) continue;
+                Matcher m = STAGE.matcher(stage);
+                if (!m.matches()) {
+                    throw new IllegalArgumentException("Invalid load profile stage: '" + stage + "'");
+                }
+                profile.addStage(m.group(1).toLowerCase(Locale.ROOT), splitArgs(m.group(2)), stage);
+            }
+        }
+        if (profile.stages.isEmpty()) {
+            throw new IllegalArgumentException("Load profile has no stages");
+        }
+        return profile;
+    }
+
+    private void addStage(String type, String[] args, String source) {
+        try {
+            switch (type) {
+                case "ramp" -> {
+                    expectArgs(args, 3, source);
+                    ramp(Double.parseDouble(args[0]), Double.parseDouble(args[1]), parseDuration(args[2]));
+                }
+                case "plateau" -> {
+                    expectArgs(args, 2, source);
+                    plateau(Double.parseDouble(args[0]), parseDuration(args[1]));
+                }
+                case "step" -> {
+                    expectArgs(args, 4, source);
+                    step(Double.parseDouble(args[0]), Double.parseDouble(args[1]),
+                            Integer.parseInt(args[2]), parseDuration(args[3]));
+                }
+                case "spike" -> {
+                    expectArgs(args, 1, source);
+                    spike(Integer.parseInt(args[0]));
+                }
+                case "stop" -> {
+                    expectArgs(args, 1, source);
+                    stop(parseDuration(args[0]));
+                }
+                default -> throw new IllegalArgumentException("Unknown load profile stage '" + type + "' in '" + source + "'");
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in load profile stage '" + source + "'", e);
+        }
+    }
+
+    private static String[] splitArgs(String args) {
+        if (args.isBlank()) return new String[0];
+        String[] parts = args.split(",");
+        for (int i = 0; i < parts.length; i++) parts[i] = parts[i].trim();
+        return parts;
+    }
+
+    private static void expectArgs(String[] args, int expected, String source) {
+        if (args.length != expected) {
+            throw new IllegalArgumentException("Expected " + expected + " arguments in load profile stage '" + source + "'");
+        }
+    }
+
+    static Duration parseDuration(String text) {
+        Matcher m = DURATION.matcher(text.trim().toLowerCase(Locale.ROOT));
+        if (!m.matches()) {
+            throw new IllegalArgumentException("Invalid duration: '" + text + "'");
+        }
+        double value = Double.parseDouble(m.group(1));
+        String unit = m.group(2) == null ? "s" : m.group(2);
+        double nanos = switch (unit) {
+            case "ms" -> value * 1e6;
+            case "m" -> value * 60e9;
+            case "h" -> value * 3600e9;
+            default -> value * 1e9;
+        };
+        return Duration.ofNanos((long) nanos);
+    }
+
+    private static void requireRate(double rate) {
+        if (rate < 0 || Double.isNaN(rate) || Double.isInfinite(rate)) {
+            throw new IllegalArgumentException("rate must be a non-negative number: " + rate);
+        }
+    }
+
+    private static long requirePositive(Duration duration) {
+        if (duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("duration must be positive: " + duration);
+        }
+        return duration.toNanos();
+    }
+
+    private static String num(double v) {
+        return v == Math.rint(v) ? Long.toString((long) v) : Double.toString(v);
+    }
+
+    private static String dur(long nanos) {
+        if (nanos % 1_000_000_000L == 0) return nanos / 1_000_000_000L + "s";
+        return nanos / 1_000_000L + "ms";
+    }
+
+    /** Text form accepted by {@link #parse(String)}. */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (Stage s : stages) {
+            if (sb.length() > 0) sb.append("; ");
+            sb.append(s);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.performance.utils;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LoadProfileTest {
+
+    @Test
+    public void parsesAllStagesAndRoundTripsTextForm() {
+        String text = "ramp(1, 20, 30s); plateau(20, 2m)\n"
+                + "# burst\n"
+                + "spike(50); stop(500ms); step(20, 10, 3, 30s)";
+        LoadProfile profile = LoadProfile.parse(text);
+
+        assertEquals(5, profile.getStages().size());
+        assertEquals(Duration.ofMillis(30_000 + 120_000 + 500 + 90_000), profile.getDuration());
+        assertEquals(profile.toString(), LoadProfile.parse(profile.toString()).toString());
+        assertEquals(5, profile.toGatlingSteps().length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownStage() {
+        LoadProfile.parse("plateau(5, 10s); hold(5, 10s)");
+    }
+
+    @Test
+    public void plateauArrivalsAreEvenlySpaced() {
+        LongSupplier offsets = new LoadProfile().plateau(4, Duration.ofSeconds(1)).arrivalOffsets();
+        assertEquals(0, offsets.getAsLong());
+        assertEquals(250_000_000, offsets.getAsLong());
+        assertEquals(500_000_000, offsets.getAsLong());
+        assertEquals(750_000_000, offsets.getAsLong());
+        assertEquals(-1, offsets.getAsLong());
+    }
+
+    @Test
+    public void rampStartsTheExpectedNumberOfArrivalsInOrder() {
+        // 0 -> 100/s over 10 s starts 500 arrivals, denser towards the end
+        LoadProfile profile = new LoadProfile().ramp(0, 100, Duration.ofSeconds(10)).stop(Duration.ofSeconds(1)).spike(3);
+        LongSupplier offsets = profile.arrivalOffsets();
+        long count = 0, previous = -1, last = 0;
+        for (long offset; (offset = offsets.getAsLong()) >= 0; count++) {
+            assertTrue(offset >= previous);
+            previous = offset;
+            last = offset;
+        }
+        assertEquals(500 + 3, count);
+        assertEquals(503, profile.getTotalArrivals());
+        // spike fires once the stop has elapsed
+        assertEquals(11_000_000_000L, last);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.performance.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load Worker
+ *
+ * One generator process of a distributed run. Connects to a {@link LoadCoordinator}, receives its
+ * share of the load profile and the target URLs, and once every worker is ready starts on the
+ * coordinator's signal. Requests go through an {@link AsyncLoadEngine} paced like
+ * {@link LoadProfile#run}; a {@link MetricsSnapshot} is streamed back at a fixed interval, with
+ * only the time windows that changed since the previous one, and in full when the share is done.
+ *
+ * Run with:
+ *   java -cp target/test-classes:... com.example.performance.utils.LoadWorker <coordinator-host>:<port>
+ */
+public final class LoadWorker {
+
+    /** Distinguishes workers that share a JVM, e.g. in tests */
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    private final String host;
+    private final int port;
+    private final String workerId;
+
+    public LoadWorker(String host, int port) {
+        this.host = host;
+        this.port = port;
+        this.workerId = hostName() + "-" + ProcessHandle.current().pid() + "-" + INSTANCES.incrementAndGet();
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1 || !args[0].contains(":")) {
+            System.err.println("Usage: LoadWorker <coordinator-host>:<port>");
+            System.exit(2);
+        }
+        int colon = args[0].lastIndexOf(':');
+        new LoadWorker(args[0].substring(0, colon), Integer.parseInt(args[0].substring(colon + 1))).run();
+    }
+
+    /** Runs one assignment end to end; returns when the final snapshot has been sent. */
+    public void run() throws IOException, InterruptedException {
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            LoadCoordinator.writeHello(out, workerId);
+            LoadCoordinator.Assignment assignment = LoadCoordinator.readAssignment(in);
+            log("assigned share %d/%d: %s", assignment.index + 1, assignment.count, assignment.profile);
+
+            List<URI> targets = new ArrayList<>();
+            for (String url : assignment.urls) targets.add(URI.create(url));
+            PerformanceMetricsCollector metrics = PerformanceMetricsCollector.histogram(workerId, LoadCoordinator.SIGNIFICANT_DIGITS);
+
+            try (AsyncLoadEngine engine = new AsyncLoadEngine(assignment.maxConnections, assignment.maxInFlight)) {
+                engine.start();
+                LoadCoordinator.writeMessage(out, LoadCoordinator.READY);
+                long startDelay = LoadCoordinator.readStart(in);
+                Thread.sleep(startDelay);
+
+                ScheduledExecutorService interim = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread t = new Thread(r, "load-worker-interim");
+                    t.setDaemon(true);
+                    return t;
+                });
+                Map<Long, Long> sentWindows = new HashMap<>(); // only touched by the interim thread
+                interim.scheduleAtFixedRate(() -> {
+                    try {
+                        LoadCoordinator.writeSnapshot(out, LoadCoordinator.INTERIM,
+                                LoadCoordinator.changedWindows(sentWindows, metrics.snapshot()));
+                    } catch (IOException e) {
+                        log("interim update failed: %s", e.getMessage());
+                    }
+                }, assignment.interimMillis, assignment.interimMillis, TimeUnit.MILLISECONDS);
+
+                AtomicLong next = new AtomicLong();
+                ArrivalRateScheduler.ScheduleReport schedule;
+                try {
+                    schedule = ArrivalRateScheduler.dispatch(assignment.profile.arrivalOffsets(), Runnable::run,
+                            Integer.MAX_VALUE, TimeUnit.MILLISECONDS.toNanos(1), assignment.profile.getMeanRate(),
+                            ArrivalRateScheduler.Arrivals.CONSTANT, 0, intendedStart -> {
+                                URI target = targets.get((int) (next.getAndIncrement() % targets.size()));
+                                try {
+                                    engine.submit(target, intendedStart, metrics);
+                                } catch (InterruptedException e) {
+                                    Thread.currentThread().interrupt();
+                                }
+                            });
+                    engine.awaitIdle(assignment.drainMillis, TimeUnit.MILLISECONDS);
+                } finally {
+                    interim.shutdownNow();
+                    interim.awaitTermination(5, TimeUnit.SECONDS);
+                }
+                LoadCoordinator.writeFinal(out, metrics.snapshot(), schedule);
+                log("done: %d requests, %d late starts", metrics.getReport().totalRequests, schedule.lateStarts);
+            }
+        }
+    }
+
+    private void log(String format, Object... args) {
+        System.out.println("[LoadWorker " + workerId + "] " + String.format(Locale.ROOT, format, args));
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            return ManagementFactory.getRuntimeMXBean().getName();
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package com.example.performance.utils;
+
+import com.example.performance.config.PerformanceConfig;
+import io.restassured.response.Response;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Tagged Metrics Registry
+ *
+ * Multi-dimensional alternative to one {@link PerformanceMetricsCollector} per endpoint. Every
+ * sample is keyed by endpoint, HTTP method, status class (2xx, 4xx, ...) and free-form labels such
+ * as city; each key gets its own lightweight histogram pair and counters. Reports can be read per
+ * key or rolled up along any dimension, e.g. per endpoint, per endpoint and status, or in total.
+ *
+ * Recording looks its series up by endpoint, method, label map and status class in nested maps,
+ * so a sample with a known combination of tags allocates no key; the {@link MetricKey} and its
+ * sorted copy of the labels are only built the first time a combination is seen. Label maps are
+ * compared by content, so a fixed map per template (as {@link WorkloadMix} uses) is the cheapest.
+ *
+ * All latencies are recorded in MICROSECONDS.
+ */
+public class MetricsRegistry {
+
+    /** Identity of one metric series. Labels are kept sorted so equal tags always compare equal. */
+    public static final class MetricKey implements Comparable<MetricKey> {
+        public final String method;
+        public final String endpoint;
+        public final String statusClass;
+        public final SortedMap<String, String> labels;
+
+        public MetricKey(String method, String endpoint, String statusClass, Map<String, String> labels) {
+            this.method = method;
+            this.endpoint = endpoint;
+            this.statusClass = statusClass;
+            this.labels = labels == null || labels.isEmpty()
+                    ? Collections.emptySortedMap()
+                    : Collections.unmodifiableSortedMap(new TreeMap<>(labels));
+        }
+
+        public String label(String name) {
+            return labels.get(name);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof MetricKey)) return false;
+            MetricKey k = (MetricKey) o;
+            return method.equals(k.method) && endpoint.equals(k.endpoint)
+                    && statusClass.equals(k.statusClass) && labels.equals(k.labels);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(method, endpoint, statusClass, labels);
+        }
+
+        @Override
+        public int compareTo(MetricKey o) {
+            return toString().compareTo(o.toString());
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(method).append(' ').append(endpoint).append(' ').append(statusClass);
+            labels.forEach((k, v) -> sb.append(' ').append(k).append('=').append(v));
+            return sb.toString();
+        }
+    }
+
+    /** Per-key counters and histograms. */
+    private static final class Cell {
+        /** "METHOD endpoint", as used for the journal, JFR events and listeners */
+        final String series;
+        final LatencyHistogram serviceTimes;
+        final LatencyHistogram responseTimes;
+        final LongAdder success = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder scheduled = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+        final LongAccumulator firstStartMillis = new LongAccumulator(Math::min, Long.MAX_VALUE);
+        final LongAccumulator lastEndMillis = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+        Cell(String series, int significantDigits) {
+            this.series = series;
+            this.serviceTimes = new LatencyHistogram(MAX_MICROS, significantDigits);
+            this.responseTimes = serviceTimes.emptyCopy();
+        }
+
+        MetricsSnapshot snapshot(String name) {
+            return new MetricsSnapshot(name, success.sum(), errors.sum(), scheduled.sum(), bytes.sum(),
+                    firstStartMillis.get(), lastEndMillis.get(), 0, Collections.emptyMap(),
+                    serviceTimes, responseTimes);
+        }
+    }
+
+    /** Cells of one method, endpoint and label set, indexed by status class. */
+    private static final class Series {
+        final AtomicReferenceArray<Cell> byStatusClass = new AtomicReferenceArray<>(STATUS_CLASSES.length);
+    }
+
+    private static final long MAX_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final String[] STATUS_CLASSES = {"1xx", "2xx", "3xx", "4xx", "5xx", "err"};
+
+    private final String name;
+    private final int significantDigits;
+    private final ConcurrentHashMap<MetricKey, Cell> cells = new ConcurrentHashMap<>();
+    /** Lookup path for {@link #record}: endpoint, then method, then labels */
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, ConcurrentHashMap<Map<String, String>, Series>>> series =
+            new ConcurrentHashMap<>();
+    private final LongAdder active = new LongAdder();
+    private final RollingTimeWindows timeSeries = new RollingTimeWindows(
+            PerformanceConfig.METRICS_WINDOW_MS,
+            PerformanceConfig.METRICS_WINDOW_RING,
+            PerformanceConfig.METRICS_WINDOW_RETAINED);
+    private volatile SampleJournal journal;
+    private final List<SampleListener> listeners = new CopyOnWriteArrayList<>();
+
+    public MetricsRegistry(String name) {
+        this(name, PerformanceConfig.METRICS_SIGNIFICANT_DIGITS);
+    }
+
+    public MetricsRegistry(String name, int significantDigits) {
+        this.name = name;
+        this.significantDigits = significantDigits;
+    }
+
+    public String getName() { return name; }
+
+    /** "2xx", "3xx", "4xx", "5xx", or "err" for anything else (e.g. 0 when no response arrived). */
+    public static String statusClass(int httpStatus) {
+        return STATUS_CLASSES[statusClassIndex(httpStatus)];
+    }
+
+    private static int statusClassIndex(int httpStatus) {
+        return httpStatus >= 100 && httpStatus < 600 ? httpStatus / 100 - 1 : STATUS_CLASSES.length - 1;
+    }
+
+    /** The cell for these tags, created on first use. */
+    private Cell cell(String method, String endpoint, Map<String, String> labels, int httpStatus) {
+        Map<String, String> tags = labels == null ? Collections.emptyMap() : labels;
+        ConcurrentHashMap<String, ConcurrentHashMap<Map<String, String>, Series>> byMethod = series.get(endpoint);
+        if (byMethod == null) {
+            byMethod = series.computeIfAbsent(endpoint, e -> new ConcurrentHashMap<>());
+        }
+        ConcurrentHashMap<Map<String, String>, Series> byLabels = byMethod.get(method);
+        if (byLabels == null) {
+            byLabels = byMethod.computeIfAbsent(method, m -> new ConcurrentHashMap<>());
+        }
+        Series s = byLabels.get(tags);
+        if (s == null) {
+            // Keyed by an immutable copy, so callers may reuse or change their map afterwards
+            s = byLabels.computeIfAbsent(Collections.unmodifiableSortedMap(new TreeMap<>(tags)), l -> new Series());
+        }
+        int statusClass = statusClassIndex(httpStatus);
+        Cell cell = s.byStatusClass.get(statusClass);
+        if (cell == null) {
+            cell = cells.computeIfAbsent(new MetricKey(method, endpoint, STATUS_CLASSES[statusClass], tags),
+                    k -> new Cell(method + " " + endpoint, significantDigits));
+            s.byStatusClass.compareAndSet(statusClass, null, cell);
+        }
+        return cell;
+    }
+
+    public void record(String method, String endpoint, Map<String, String> labels,
+                       int httpStatus, long serviceMicros, long responseMicros, long responseBytes, boolean scheduled) {
+        record(method, endpoint, labels, httpStatus, serviceMicros, responseMicros, responseBytes, scheduled, null);
+    }
+
+    /** {@code event} is the JFR event begun when the request was sent, or null. */
+    private void record(String method, String endpoint, Map<String, String> labels, int httpStatus,
+                        long serviceMicros, long responseMicros, long responseBytes, boolean scheduled,
+                        RequestRecordedEvent event) {
+        Cell cell = cell(method, endpoint, labels, httpStatus);
+        cell.serviceTimes.record(serviceMicros);
+        cell.responseTimes.record(Math.max(serviceMicros, responseMicros));
+        boolean ok = httpStatus >= 200 && httpStatus < 400;
+        if (ok) cell.success.increment(); else cell.errors.increment();
+        if (scheduled) cell.scheduled.increment();
+        if (responseBytes > 0) cell.bytes.add(responseBytes);
+
+        long now = System.currentTimeMillis();
+        cell.firstStartMillis.accumulate(now - responseMicros / 1000);
+        cell.lastEndMillis.accumulate(now);
+        timeSeries.record(now, serviceMicros, !ok, responseBytes);
+
+        SampleJournal j = journal;
+        if (j != null) {
+            j.append(now, serviceMicros, responseMicros, httpStatus, scheduled,
+                    j.endpointId(cell.series), responseBytes);
+        }
+        if (RequestRecordedEvent.isEmitting() || !listeners.isEmpty()) {
+            String series = cell.series;
+            RequestRecordedEvent.emit(event, series, httpStatus, serviceMicros, responseMicros, responseBytes, scheduled);
+            for (SampleListener listener : listeners) {
+                listener.onSample(series, httpStatus, serviceMicros, responseMicros, responseBytes, scheduled);
+            }
+        }
+    }
+
+    /** Mirrors every subsequent sample to {@code listener}, e.g. a {@link DropwizardMetricsBridge}. */
+    public void addListener(SampleListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(SampleListener listener) {
+        listeners.remove(listener);
+    }
+
+    /** Also append every sample to {@code journal}, using "METHOD endpoint" as the journal endpoint. */
+    public void setJournal(SampleJournal journal) {
+        this.journal = journal;
+    }
+
+    /** Runs the call, timing it with System.nanoTime(), and records it under the given tags. */
+    public Response timed(String method, String endpoint, Map<String, String> labels, Supplier<Response> call) {
+        RequestRecordedEvent event = RequestRecordedEvent.start();
+        long start = System.nanoTime();
+        Response response = call.get();
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+        record(method, endpoint, labels, response.getStatusCode(), micros, micros,
+                PerformanceMetricsCollector.bodySize(response), false, event);
+        return response;
+    }
+
+    /** Like {@link #timed} but also measures response time from the schedule's intended start. */
+    public Response timedFrom(long intendedStartNanos, String method, String endpoint, Map<String, String> labels,
+                              Supplier<Response> call) {
+        RequestRecordedEvent event = RequestRecordedEvent.start();
+        long start = System.nanoTime();
+        Response response = call.get();
+        long end = System.nanoTime();
+        record(method, endpoint, labels, response.getStatusCode(),
+                TimeUnit.NANOSECONDS.toMicros(end - start), TimeUnit.NANOSECONDS.toMicros(end - intendedStartNanos),
+                PerformanceMetricsCollector.bodySize(response), true, event);
+        return response;
+    }
+
+    public void incrementActiveRequests() { active.increment(); }
+    public void decrementActiveRequests() { active.decrement(); }
+    public long getActiveRequests() { return active.sum(); }
+
+    public Set<MetricKey> getKeys() {
+        return new TreeSet<>(cells.keySet());
+    }
+
+    /** Snapshot of a single series, or null if nothing was recorded under that key. */
+    public MetricsSnapshot snapshot(MetricKey key) {
+        Cell cell = cells.get(key);
+        return cell == null ? null : cell.snapshot(key.toString());
+    }
+
+    public long getSuccessCount(MetricKey key) {
+        Cell cell = cells.get(key);
+        return cell == null ? 0 : cell.success.sum();
+    }
+
+    public long getErrorCount(MetricKey key) {
+        Cell cell = cells.get(key);
+        return cell == null ? 0 : cell.errors.sum();
+    }
+
+    public long getScheduledCount(MetricKey key) {
+        Cell cell = cells.get(key);
+        return cell == null ? 0 : cell.scheduled.sum();
+    }
+
+    public long getTotalBytes(MetricKey key) {
+        Cell cell = cells.get(key);
+        return cell == null ? 0 : cell.bytes.sum();
+    }
+
+    /**
+     * Adds the number of service times (or response times if {@code response}) of one series at
+     * or below each of the ascending {@code boundsMicros} to {@code into} and returns their sum in
+     * µs. Reads the live histograms, so unlike {@link #snapshot(MetricKey)} it copies nothing and is
+     * cheap enough to call on every scrape. Adds nothing for an unknown key.
+     */
+    public long addCountsAtOrBelow(MetricKey key, boolean response, long[] boundsMicros, long[] into) {
+        Cell cell = cells.get(key);
+        if (cell == null) return 0;
+        LatencyHistogram h = response ? cell.responseTimes : cell.serviceTimes;
+        h.addCountsAtOrBelow(boundsMicros, into);
+        return h.getSum();
+    }
+
+    /** One report per key, sorted by key. */
+    public Map<MetricKey, PerformanceMetricsCollector.PerformanceReport> getReports() {
+        Map<MetricKey, PerformanceMetricsCollector.PerformanceReport> reports = new TreeMap<>();
+        cells.forEach((key, cell) -> reports.put(key, cell.snapshot(key.toString()).toReport()));
+        return reports;
+    }
+
+    /**
+     * Merges series that map to the same group, e.g. {@code k -> k.endpoint} or
+     * {@code k -> k.endpoint + " " + k.label("city")}. Groups are sorted by name.
+     */
+    public Map<String, PerformanceMetricsCollector.PerformanceReport> rollUp(Function<MetricKey, String> groupBy) {
+        Map<String, MetricsSnapshot> groups = new TreeMap<>();
+        cells.forEach((key, cell) -> {
+            String group = groupBy.apply(key);
+            groups.merge(group, cell.snapshot(group), (a, b) -> a.merge(group, b));
+        });
+        Map<String, PerformanceMetricsCollector.PerformanceReport> reports = new LinkedHashMap<>();
+        groups.forEach((group, snapshot) -> reports.put(group, snapshot.toReport()));
+        return reports;
+    }
+
+    public Map<String, PerformanceMetricsCollector.PerformanceReport> byEndpoint() {
+        return rollUp(k -> k.method + " " + k.endpoint);
+    }
+
+    public Map<String, PerformanceMetricsCollector.PerformanceReport> byEndpointAndStatus() {
+        return rollUp(k -> k.method + " " + k.endpoint + " " + k.statusClass);
+    }
+
+    /** Every series merged, with peak throughput from the registry-wide time series. */
+    public MetricsSnapshot snapshot() {
+        MetricsSnapshot total = null;
+        for (Map.Entry<MetricKey, Cell> e : cells.entrySet()) {
+            MetricsSnapshot s = e.getValue().snapshot(name);
+            total = total == null ? s : total.merge(name, s);
+        }
+        Map<Long, Long> windows = new TreeMap<>();
+        for (RollingTimeWindows.TimeWindow w : timeSeries.getWindows()) {
+            windows.put(w.startEpochMillis, w.count);
+        }
+        if (total == null) {
+            LatencyHistogram empty = new LatencyHistogram(MAX_MICROS, significantDigits);
+            return new MetricsSnapshot(name, 0, 0, 0, 0, Long.MAX_VALUE, Long.MIN_VALUE,
+                    timeSeries.getWindowMillis(), windows, empty, empty);
+        }
+        return new MetricsSnapshot(name, total.successCount, total.errorCount, total.scheduledCount, total.totalBytes,
+                total.firstStartMillis, total.lastEndMillis, timeSeries.getWindowMillis(), windows,
+                total.getServiceTimes(), total.getResponseTimes());
+    }
+
+    public PerformanceMetricsCollector.PerformanceReport getTotalReport() {
+        return snapshot().toReport();
+    }
+
+    public RollingTimeWindows getTimeSeries() { return timeSeries; }
+
+    public void printReport() {
+        System.out.println();
+        System.out.println("================================================================================");
+        System.out.println("METRICS REGISTRY REPORT: " + name);
+        System.out.println("================================================================================");
+        System.out.printf(Locale.ROOT, "%-48s %8s %7s %10s %10s %10s%n", "Series", "Requests", "Err %", "p50 ms", "p95 ms", "p99 ms");
+        getReports().forEach((key, r) -> printRow(key.toString(), r));
+        System.out.println("--------------------------------------------------------------------------------");
+        byEndpoint().forEach(this::printRow);
+        System.out.println("--------------------------------------------------------------------------------");
+        PerformanceMetricsCollector.printReport(getTotalReport());
+    }
+
+    private void printRow(String series, PerformanceMetricsCollector.PerformanceReport r) {
+        System.out.printf(Locale.ROOT, "%-48s %8d %7.2f %10.3f %10.3f %10.3f%n",
+                series, r.totalRequests, r.errorRate,
+                r.correctedMedianResponseTime, r.correctedP95ResponseTime, r.correctedP99ResponseTime);
+    }
+
+    /** One CSV row per series plus one per endpoint roll-up and the total. */
+    public void exportToCSV(String path) {
+        List<PerformanceMetricsCollector.PerformanceReport> rows = new ArrayList<>(getReports().values());
+        rows.addAll(byEndpoint().values());
+        rows.add(getTotalReport());
+        PerformanceMetricsCollector.writeCSV(path, rows);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.performance.utils;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void splitsSeriesByTagsAndRollsThemUp() {
+        MetricsRegistry registry = new MetricsRegistry("split", 2);
+        for (int i = 0; i < 10; i++) {
+            registry.record("GET", "/current.json", Map.of("city", i % 2 == 0 ? "London" : "Paris"),
+                    200, 1_000, 1_000, 100, false);
+        }
+        registry.record("GET", "/current.json", Map.of("city", "London"), 404, 2_000, 2_000, 0, false);
+        registry.record("GET", "/forecast.json", null, 200, 3_000, 5_000, 0, true);
+        registry.record("GET", "/forecast.json", null, 0, 4_000, 4_000, 0, false);
+
+        // London 2xx, London 4xx, Paris 2xx, forecast 2xx, forecast err
+        assertEquals(5, registry.getKeys().size());
+        MetricsRegistry.MetricKey london = new MetricsRegistry.MetricKey("GET", "/current.json", "2xx", Map.of("city", "London"));
+        assertNotNull(registry.snapshot(london));
+        assertEquals(5, registry.snapshot(london).getTotalCount());
+
+        Map<String, PerformanceMetricsCollector.PerformanceReport> byEndpoint = registry.byEndpoint();
+        assertEquals(11, byEndpoint.get("GET /current.json").totalRequests);
+        assertEquals(1, byEndpoint.get("GET /current.json").errorCount);
+        assertEquals(2, byEndpoint.get("GET /forecast.json").totalRequests);
+        assertEquals(1, byEndpoint.get("GET /forecast.json").scheduledRequests);
+
+        Map<String, PerformanceMetricsCollector.PerformanceReport> byStatus = registry.byEndpointAndStatus();
+        assertEquals(10, byStatus.get("GET /current.json 2xx").totalRequests);
+        assertEquals(1, byStatus.get("GET /current.json 4xx").totalRequests);
+        assertEquals(1, byStatus.get("GET /forecast.json err").totalRequests);
+
+        Map<String, PerformanceMetricsCollector.PerformanceReport> byCity = registry.rollUp(k -> String.valueOf(k.label("city")));
+        assertEquals(6, byCity.get("London").totalRequests);
+        assertEquals(5, byCity.get("Paris").totalRequests);
+        assertEquals(2, byCity.get("null").totalRequests);
+
+        PerformanceMetricsCollector.PerformanceReport total = registry.getTotalReport();
+        assertEquals(13, total.totalRequests);
+        assertEquals(1000, total.totalBytes);
+        assertEquals(5.0, total.correctedMaxResponseTime, 0.05);
+    }
+
+    @Test
+    public void labelMapsAreMatchedByContentAndCopied() {
+        MetricsRegistry registry = new MetricsRegistry("labels", 2);
+        Map<String, String> labels = new HashMap<>();
+        labels.put("city", "Tokyo");
+        labels.put("plan", "free");
+        registry.record("GET", "/current.json", labels, 200, 1_000, 1_000, 0, false);
+        registry.record("GET", "/current.json", Map.of("plan", "free", "city", "Tokyo"), 200, 1_000, 1_000, 0, false);
+
+        // Changing the caller's map afterwards must not move the recorded series
+        labels.put("city", "Berlin");
+        registry.record("GET", "/current.json", labels, 200, 1_000, 1_000, 0, false);
+
+        assertEquals(2, registry.getKeys().size());
+        MetricsRegistry.MetricKey tokyo = new MetricsRegistry.MetricKey("GET", "/current.json", "2xx",
+                Map.of("city", "Tokyo", "plan", "free"));
+        assertEquals(2, registry.snapshot(tokyo).getTotalCount());
+        assertEquals("5xx", MetricsRegistry.statusClass(503));
+        assertEquals("err", MetricsRegistry.statusClass(0));
+    }
+
+    @Test
+    public void readsLiveCountsWithoutSnapshots() {
+        MetricsRegistry registry = new MetricsRegistry("live", 2);
+        registry.record("GET", "/current.json", null, 200, 1_000, 1_000, 50, false);
+        registry.record("GET", "/current.json", null, 200, 3_000, 10_000, 50, true);
+        MetricsRegistry.MetricKey key = new MetricsRegistry.MetricKey("GET", "/current.json", "2xx", null);
+
+        assertEquals(2, registry.getSuccessCount(key));
+        assertEquals(0, registry.getErrorCount(key));
+        assertEquals(1, registry.getScheduledCount(key));
+        assertEquals(100, registry.getTotalBytes(key));
+
+        long[] bounds = {2_000, Long.MAX_VALUE};
+        long[] service = new long[bounds.length];
+        assertEquals(4_000, registry.addCountsAtOrBelow(key, false, bounds, service));
+        assertEquals(1, service[0]);
+        assertEquals(2, service[1]);
+        long[] response = new long[bounds.length];
+        registry.addCountsAtOrBelow(key, true, bounds, response);
+        assertEquals(1, response[0]);
+
+        // Later samples show up on the next read
+        registry.record("GET", "/current.json", null, 200, 500, 500, 0, false);
+        long[] again = new long[bounds.length];
+        registry.addCountsAtOrBelow(key, false, bounds, again);
+        assertEquals(2, again[0]);
+
+        MetricsRegistry.MetricKey unknown = new MetricsRegistry.MetricKey("GET", "/nope", "2xx", null);
+        assertEquals(0, registry.addCountsAtOrBelow(unknown, false, bounds, new long[bounds.length]));
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.performance.utils;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Metrics Snapshot
+ *
+ * Point-in-time, mergeable copy of everything needed to build a {@link PerformanceMetricsCollector.PerformanceReport}:
+ * outcome counters, first/last sample timestamps, per-window request counts and the service-time and
+ * response-time histograms (µs). Snapshots taken from different collectors, registry keys or processes
+ * can be merged and still yield accurate percentiles, because histograms merge without loss.
+ *
+ * Snapshots can be written to disk ({@link #save(String)}) so that parallel Surefire forks or
+ * separate runs each leave a partial file that {@link MetricsSnapshotMerger} later combines.
+ */
+public final class MetricsSnapshot {
+
+    /** "PMSN" */
+    private static final int MAGIC = 0x504D534E;
+    private static final int FORMAT_VERSION = 1;
+
+    public final String name;
+    public final long successCount;
+    public final long errorCount;
+    public final long scheduledCount;
+    public final long totalBytes;
+    /** Epoch ms; Long.MAX_VALUE when empty */
+    public final long firstStartMillis;
+    /** Epoch ms; Long.MIN_VALUE when empty */
+    public final long lastEndMillis;
+    /** Width of the windows in {@link #getWindowCounts()}; 0 when no timeline was kept */
+    public final long windowMillis;
+
+    private final NavigableMap<Long, Long> windowCounts;
+    private final LatencyHistogram serviceTimes;
+    private final LatencyHistogram responseTimes;
+
+    public MetricsSnapshot(String name, long successCount, long errorCount, long scheduledCount, long totalBytes,
+                           long firstStartMillis, long lastEndMillis, long windowMillis,
+                           Map<Long, Long> windowCounts,
+                           LatencyHistogram serviceTimes, LatencyHistogram responseTimes) {
+        this.name = name;
+        this.successCount = successCount;
+        this.errorCount = errorCount;
+        this.scheduledCount = scheduledCount;
+        this.totalBytes = totalBytes;
+        this.firstStartMillis = firstStartMillis;
+        this.lastEndMillis = lastEndMillis;
+        this.windowMillis = windowMillis;
+        this.windowCounts = Collections.unmodifiableNavigableMap(new TreeMap<>(windowCounts));
+        this.serviceTimes = serviceTimes.copy();
+        this.responseTimes = responseTimes.copy();
+    }
+
+    public long getTotalCount() { return successCount + errorCount; }
+
+    /** Requests completed per window, keyed by window start (epoch ms). */
+    public NavigableMap<Long, Long> getWindowCounts() { return windowCounts; }
+
+    /** Service-time histogram in µs (defensive copy). */
+    public LatencyHistogram getServiceTimes() { return serviceTimes.copy(); }
+
+    /** Response-time-from-schedule histogram in µs (defensive copy). */
+    public LatencyHistogram getResponseTimes() { return responseTimes.copy(); }
+
+    /** Highest per-second rate over the window timeline; 0 when no timeline was kept. */
+    public double getPeakThroughput() {
+        if (windowMillis <= 0) return 0.0;
+        long peak = 0;
+        for (long c : windowCounts.values()) peak = Math.max(peak, c);
+        return peak * 1000.0 / windowMillis;
+    }
+
+    /**
+     * Combines two snapshots of activity that ran side by side (different keys, forks or workers).
+     * Counters add up, histograms merge, the time span widens, and window counts are summed per
+     * window when both sides use the same window width.
+     */
+    public MetricsSnapshot merge(String mergedName, MetricsSnapshot other) {
+        LatencyHistogram service = serviceTimes.copy();
+        service.add(other.serviceTimes);
+        LatencyHistogram response = responseTimes.copy();
+        response.add(other.responseTimes);
+
+        long width;
+        Map<Long, Long> windows = new TreeMap<>();
+        if (windowMillis == other.windowMillis || other.windowMillis == 0 || windowMillis == 0) {
+            width = Math.max(windowMillis, other.windowMillis);
+            windows.putAll(windowCounts);
+            other.windowCounts.forEach((start, count) -> windows.merge(start, count, Long::sum));
+        } else {
+            width = 0; // incompatible timelines: peak becomes unknown rather than wrong
+        }
+
+        return new MetricsSnapshot(mergedName,
+                successCount + other.successCount,
+                errorCount + other.errorCount,
+                scheduledCount + other.scheduledCount,
+                totalBytes + other.totalBytes,
+                Math.min(firstStartMillis, other.firstStartMillis),
+                Math.max(lastEndMillis, other.lastEndMillis),
+                width, windows, service, response);
+    }
+
+    /** Same totals and histograms with a different set of time windows. */
+    public MetricsSnapshot withWindows(Map<Long, Long> windows) {
+        return new MetricsSnapshot(name, successCount, errorCount, scheduledCount, totalBytes,
+                firstStartMillis, lastEndMillis, windowMillis, windows, serviceTimes, responseTimes);
+    }
+
+    public MetricsSnapshot withName(String newName) {
+        return new MetricsSnapshot(newName, successCount, errorCount, scheduledCount, totalBytes,
+                firstStartMillis, lastEndMillis, windowMillis, windowCounts, serviceTimes, responseTimes);
+    }
+
+    public PerformanceMetricsCollector.PerformanceReport toReport() {
+        return PerformanceMetricsCollector.buildReport(name, successCount, errorCount, 0, scheduledCount, totalBytes,
+                firstStartMillis, lastEndMillis, getPeakThroughput(), serviceTimes, responseTimes);
+    }
+
+    // --- serialization ---
+
+    public void writeTo(OutputStream os) throws IOException {
+        DataOutputStream out = new DataOutputStream(os);
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(name);
+        out.writeLong(successCount);
+        out.writeLong(errorCount);
+        out.writeLong(scheduledCount);
+        out.writeLong(totalBytes);
+        out.writeLong(firstStartMillis);
+        out.writeLong(lastEndMillis);
+        out.writeLong(windowMillis);
+        out.writeInt(windowCounts.size());
+        for (Map.Entry<Long, Long> e : windowCounts.entrySet()) {
+            out.writeLong(e.getKey());
+            out.writeLong(e.getValue());
+        }
+        serviceTimes.writeTo(out);
+        responseTimes.writeTo(out);
+        out.flush();
+    }
+
+    public static MetricsSnapshot readFrom(InputStream is) throws IOException {
+        DataInputStream in = new DataInputStream(is);
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a metrics snapshot");
+        }
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported metrics snapshot version: " + version);
+        }
+        String name = in.readUTF();
+        long success = in.readLong();
+        long errors = in.readLong();
+        long scheduled = in.readLong();
+        long bytes = in.readLong();
+        long first = in.readLong();
+        long last = in.readLong();
+        long windowMillis = in.readLong();
+        int windows = in.readInt();
+        Map<Long, Long> windowCounts = new TreeMap<>();
+        for (int i = 0; i < windows; i++) {
+            windowCounts.put(in.readLong(), in.readLong());
+        }
+        LatencyHistogram service = LatencyHistogram.readFrom(in);
+        LatencyHistogram response = LatencyHistogram.readFrom(in);
+        return new MetricsSnapshot(name, success, errors, scheduled, bytes, first, last, windowMillis,
+                windowCounts, service, response);
+    }
+
+    public void save(String path) throws IOException {
+        Path p = Paths.get(path);
+        if (p.getParent() != null) {
+            Files.createDirectories(p.getParent());
+        }
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(p))) {
+            writeTo(os);
+        }
+    }
+
+    public static MetricsSnapshot load(String path) throws IOException {
+        try (InputStream is = new BufferedInputStream(Files.newInputStream(Paths.get(path)))) {
+            return readFrom(is);
+        }
+    }
+}
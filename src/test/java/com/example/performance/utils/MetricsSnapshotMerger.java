@@ -0,0 +1,87 @@
+package com.example.performance.utils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Metrics Snapshot Merger
+ *
+ * Combines the partial snapshot files written by {@link PerformanceMetricsCollector#saveSnapshot(String)}
+ * (one per Surefire fork, machine or run) into a single report. Percentiles are computed from the
+ * merged histograms, not averaged, so the result matches what one collector would have reported.
+ *
+ * Run with:
+ *   java -cp target/test-classes:... com.example.performance.utils.MetricsSnapshotMerger \
+ *       [--name "Merged"] [--csv target/performance-results/merged.csv] <file-or-dir>...
+ * Directories are scanned (non-recursively) for *.snapshot files.
+ */
+public final class MetricsSnapshotMerger {
+
+    public static final String SNAPSHOT_EXTENSION = ".snapshot";
+
+    private MetricsSnapshotMerger() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        String name = "Merged";
+        String csv = null;
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("--name".equals(args[i]) && i + 1 < args.length) {
+                name = args[++i];
+            } else if ("--csv".equals(args[i]) && i + 1 < args.length) {
+                csv = args[++i];
+            } else {
+                inputs.add(args[i]);
+            }
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("Usage: MetricsSnapshotMerger [--name <name>] [--csv <out.csv>] <file-or-dir>...");
+            System.exit(2);
+        }
+
+        List<Path> files = expand(inputs);
+        System.out.println("Merging " + files.size() + " snapshot file(s)");
+        PerformanceMetricsCollector.PerformanceReport report = merge(name, files).toReport();
+        PerformanceMetricsCollector.printReport(report);
+        if (csv != null) {
+            PerformanceMetricsCollector.writeCSV(csv, List.of(report));
+        }
+    }
+
+    /** Loads and merges the given snapshot files. */
+    public static MetricsSnapshot merge(String name, List<Path> files) throws IOException {
+        if (files.isEmpty()) {
+            throw new IllegalArgumentException("No snapshot files to merge");
+        }
+        MetricsSnapshot merged = null;
+        for (Path file : files) {
+            MetricsSnapshot part = MetricsSnapshot.load(file.toString());
+            merged = merged == null ? part.withName(name) : merged.merge(name, part);
+        }
+        return merged;
+    }
+
+    private static List<Path> expand(List<String> inputs) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String input : inputs) {
+            Path p = Paths.get(input);
+            if (Files.isDirectory(p)) {
+                try (Stream<Path> s = Files.list(p)) {
+                    files.addAll(s.filter(f -> f.getFileName().toString().endsWith(SNAPSHOT_EXTENSION))
+                            .sorted()
+                            .collect(Collectors.toList()));
+                }
+            } else {
+                files.add(p);
+            }
+        }
+        return files;
+    }
+}
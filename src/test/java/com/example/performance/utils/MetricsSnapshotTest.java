@@ -0,0 +1,102 @@
+package com.example.performance.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class MetricsSnapshotTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static MetricsSnapshot snapshot(String name, long ok, long err, long first, long last, long windowMillis,
+                                            Map<Long, Long> windows, long... micros) {
+        LatencyHistogram service = new LatencyHistogram(3_600_000_000L, 2);
+        for (long m : micros) service.record(m);
+        LatencyHistogram response = service.copy();
+        response.record(micros[micros.length - 1] * 2);
+        return new MetricsSnapshot(name, ok, err, 1, ok * 100, first, last, windowMillis, windows, service, response);
+    }
+
+    @Test
+    public void savedPartsLoadAndMergeIntoOneReport() throws Exception {
+        MetricsSnapshot a = snapshot("fork-1", 5, 1, 1_000, 3_000, 1000, Map.of(1_000L, 4L, 2_000L, 2L),
+                1_000, 2_000, 3_000, 4_000, 5_000, 6_000);
+        MetricsSnapshot b = snapshot("fork-2", 3, 0, 2_000, 4_500, 1000, Map.of(2_000L, 1L, 3_000L, 0L, 4_000L, 2L),
+                10_000, 20_000, 30_000);
+        File fa = new File(tmp.getRoot(), "a" + MetricsSnapshotMerger.SNAPSHOT_EXTENSION);
+        File fb = new File(tmp.getRoot(), "b" + MetricsSnapshotMerger.SNAPSHOT_EXTENSION);
+        a.save(fa.getPath());
+        b.save(fb.getPath());
+
+        MetricsSnapshot loaded = MetricsSnapshot.load(fa.getPath());
+        assertEquals("fork-1", loaded.name);
+        assertEquals(6, loaded.getTotalCount());
+        assertEquals(a.getWindowCounts(), loaded.getWindowCounts());
+        assertEquals(a.getServiceTimes().getTotalCount(), loaded.getServiceTimes().getTotalCount());
+        assertEquals(a.getResponseTimes().getMax(), loaded.getResponseTimes().getMax());
+
+        List<Path> files = Arrays.asList(fa.toPath(), fb.toPath());
+        MetricsSnapshot merged = MetricsSnapshotMerger.merge("all", files);
+        assertEquals("all", merged.name);
+        assertEquals(8, merged.successCount);
+        assertEquals(1, merged.errorCount);
+        assertEquals(2, merged.scheduledCount);
+        assertEquals(800, merged.totalBytes);
+        assertEquals(1_000, merged.firstStartMillis);
+        assertEquals(4_500, merged.lastEndMillis);
+        assertEquals(Map.of(1_000L, 4L, 2_000L, 3L, 3_000L, 0L, 4_000L, 2L), merged.getWindowCounts());
+        assertEquals(4.0, merged.getPeakThroughput(), 0);
+        assertEquals(9, merged.getServiceTimes().getTotalCount());
+        assertEquals(11, merged.getResponseTimes().getTotalCount());
+
+        PerformanceMetricsCollector.PerformanceReport report = merged.toReport();
+        assertEquals(9, report.totalRequests);
+        assertEquals(3.5, report.durationSeconds, 1e-9);
+        assertEquals(30.0, report.maxResponseTime, 0.3);
+    }
+
+    @Test
+    public void differentWindowWidthsDropThePeakInsteadOfMixingTimelines() {
+        MetricsSnapshot a = snapshot("1s", 1, 0, 0, 1_000, 1000, Map.of(0L, 1L), 1_000);
+        MetricsSnapshot b = snapshot("5s", 1, 0, 0, 1_000, 5000, Map.of(0L, 1L), 1_000);
+        MetricsSnapshot merged = a.merge("mixed", b);
+        assertEquals(0, merged.windowMillis);
+        assertEquals(0.0, merged.getPeakThroughput(), 0);
+        assertEquals(2, merged.getTotalCount());
+    }
+
+    @Test
+    public void collectorSnapshotsRoundTrip() throws Exception {
+        for (PerformanceMetricsCollector collector : Arrays.asList(
+                new PerformanceMetricsCollector("raw", 0), PerformanceMetricsCollector.histogram("histogram", 2))) {
+            long t = System.nanoTime();
+            for (int i = 1; i <= 50; i++) {
+                collector.recordScheduled(t, t + 1_000_000, t + 1_000_000 + i * 100_000L, i % 10 == 0 ? 500 : 200, 10);
+            }
+            File f = tmp.newFile(collector.getName() + MetricsSnapshotMerger.SNAPSHOT_EXTENSION);
+            collector.saveSnapshot(f.getPath());
+
+            MetricsSnapshot loaded = MetricsSnapshot.load(f.getPath());
+            PerformanceMetricsCollector.PerformanceReport live = collector.getReport();
+            assertEquals(45, loaded.successCount);
+            assertEquals(5, loaded.errorCount);
+            assertEquals(50, loaded.scheduledCount);
+            assertEquals(500, loaded.totalBytes);
+            long windowed = 0;
+            for (long c : loaded.getWindowCounts().values()) windowed += c;
+            assertEquals(50, windowed);
+            PerformanceMetricsCollector.PerformanceReport fromFile = loaded.toReport();
+            assertEquals(live.correctedP99ResponseTime, fromFile.correctedP99ResponseTime, live.correctedP99ResponseTime * 0.01);
+            assertEquals(live.p95ResponseTime, fromFile.p95ResponseTime, live.p95ResponseTime * 0.01);
+        }
+    }
+}
@@ -1,15 +1,40 @@
 package com.example.performance.utils;
 
+import com.example.performance.config.PerformanceConfig;
 import io.restassured.response.Response;
 
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
 import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Collects response timings and outcomes for performance tests.
- * All durations are stored in MILLISECONDS.
+ * Durations are stored in MICROSECONDS and reported in (fractional) milliseconds,
+ * so sub-millisecond latencies against local mocks stay readable.
+ *
+ * Two storage modes are available:
+ *  - raw: every sample is kept and sorted for each report (exact, memory grows with the run)
+ *  - histogram: samples go into striped {@link LatencyHistogram}s (fixed memory, O(1) recording,
+ *    low contention across load threads) that are merged without locks on getReport()
+ * The default mode comes from perf.metrics.mode (raw | histogram).
+ *
+ * In both modes samples are also bucketed into {@link RollingTimeWindows} (perf.metrics.windowMs)
+ * so degradation over time can be inspected during and after the run.
+ *
+ * Two latency distributions are kept:
+ *  - service time: from the moment the request was actually sent until it completed
+ *  - response time: from the moment the load schedule intended to send it until it completed
+ * They only differ for samples recorded with {@link #recordScheduled} / {@link #timedFrom};
+ * the gap is queueing delay in the load generator that plain service timing hides
+ * (coordinated omission).
+ *
+ * Optionally every sample is also appended to an off-heap {@link SampleJournal} (see
+ * {@link #setJournal(SampleJournal)}) for forensic analysis after the run, and emitted as a
+ * {@link RequestRecordedEvent} for JDK Flight Recorder (perf.jfr.events).
  */
 public class PerformanceMetricsCollector {
 
@@ -20,7 +45,7 @@ public class PerformanceMetricsCollector {
         public final int errorCount;
         /** Percentage [0..100] */
         public final double errorRate;
-        /** ms */
+        /** Service time, ms */
         public final double meanResponseTime;
         /** ms */
         public final double medianResponseTime;
@@ -31,6 +56,35 @@ public class PerformanceMetricsCollector {
         /** ms */
         public final double maxResponseTime;
         public final int activeRequests;
+        /** µs */
+        public final long medianMicros;
+        /** µs */
+        public final long p95Micros;
+        /** µs */
+        public final long p99Micros;
+        /** µs */
+        public final long maxMicros;
+        /** Wall-clock span from the first request start to the last completion, seconds */
+        public final double durationSeconds;
+        /** Achieved system throughput over the wall-clock span, req/s */
+        public final double throughput;
+        /** Highest rate observed in any time-series window, req/s */
+        public final double peakThroughput;
+        public final long totalBytes;
+        /** Response bytes received per second over the wall-clock span */
+        public final double bytesPerSecond;
+        /** Samples recorded with an intended start time from a schedule */
+        public final int scheduledRequests;
+        /** Response time measured from the intended start (service time + queueing delay), ms */
+        public final double correctedMeanResponseTime;
+        /** ms */
+        public final double correctedMedianResponseTime;
+        /** ms */
+        public final double correctedP95ResponseTime;
+        /** ms */
+        public final double correctedP99ResponseTime;
+        /** ms */
+        public final double correctedMaxResponseTime;
 
         private PerformanceReport(
                 String name,
@@ -43,7 +97,22 @@ public class PerformanceMetricsCollector {
                 double p95ResponseTime,
                 double p99ResponseTime,
                 double maxResponseTime,
-                int activeRequests) {
+                int activeRequests,
+                long medianMicros,
+                long p95Micros,
+                long p99Micros,
+                long maxMicros,
+                double durationSeconds,
+                double throughput,
+                double peakThroughput,
+                long totalBytes,
+                double bytesPerSecond,
+                int scheduledRequests,
+                double correctedMeanResponseTime,
+                double correctedMedianResponseTime,
+                double correctedP95ResponseTime,
+                double correctedP99ResponseTime,
+                double correctedMaxResponseTime) {
             this.name = name;
             this.totalRequests = totalRequests;
             this.successCount = successCount;
@@ -55,98 +124,488 @@ public class PerformanceMetricsCollector {
             this.p99ResponseTime = p99ResponseTime;
             this.maxResponseTime = maxResponseTime;
             this.activeRequests = activeRequests;
+            this.medianMicros = medianMicros;
+            this.p95Micros = p95Micros;
+            this.p99Micros = p99Micros;
+            this.maxMicros = maxMicros;
+            this.durationSeconds = durationSeconds;
+            this.throughput = throughput;
+            this.peakThroughput = peakThroughput;
+            this.totalBytes = totalBytes;
+            this.bytesPerSecond = bytesPerSecond;
+            this.scheduledRequests = scheduledRequests;
+            this.correctedMeanResponseTime = correctedMeanResponseTime;
+            this.correctedMedianResponseTime = correctedMedianResponseTime;
+            this.correctedP95ResponseTime = correctedP95ResponseTime;
+            this.correctedP99ResponseTime = correctedP99ResponseTime;
+            this.correctedMaxResponseTime = correctedMaxResponseTime;
         }
 
+        /** Checks service-time percentiles, i.e. from when each request was actually sent. */
         public boolean meetsSLA(double p95Ms, double p99Ms, double successRatePercent) {
-            double successRate = totalRequests == 0 ? 0.0 : (successCount * 100.0 / totalRequests);
-            return p95ResponseTime <= p95Ms && p99ResponseTime <= p99Ms && successRate >= successRatePercent;
+            return p95ResponseTime <= p95Ms && p99ResponseTime <= p99Ms && successRate() >= successRatePercent;
+        }
+
+        /**
+         * Checks percentiles of the response time measured from the intended start, which is what
+         * users experience when the generator falls behind; for unscheduled samples this equals
+         * the service time, so it is never more lenient than {@link #meetsSLA}.
+         */
+        public boolean meetsCorrectedSLA(double p95Ms, double p99Ms, double successRatePercent) {
+            return correctedP95ResponseTime <= p95Ms && correctedP99ResponseTime <= p99Ms
+                    && successRate() >= successRatePercent;
+        }
+
+        private double successRate() {
+            return totalRequests == 0 ? 0.0 : (successCount * 100.0 / totalRequests);
+        }
+    }
+
+    /** Highest latency tracked at full precision in histogram mode: 1 hour in µs. */
+    private static final long HISTOGRAM_MAX_MICROS = TimeUnit.HOURS.toMicros(1);
+    /** Precision used when raw samples are turned into a mergeable snapshot */
+    private static final int RAW_SNAPSHOT_DIGITS = 3;
+
+    /** Largest service time kept exactly in raw mode (low 32 bits): about 71 minutes in µs. */
+    private static final long RAW_MAX_SERVICE_MICROS = 0xFFFF_FFFFL;
+    /** Largest queueing delay kept exactly in raw mode (high bits): about 35 minutes in µs. */
+    private static final long RAW_MAX_DELAY_MICROS = Integer.MAX_VALUE;
+
+    /**
+     * Service and response time samples in µs, kept either raw or in striped histograms.
+     * Raw mode keeps one boxed value per sample for both distributions: the service time in the
+     * low 32 bits and the queueing delay (response - service, 0 for unscheduled samples) above it.
+     */
+    private static final class Latencies {
+        /** Packed raw samples; null in histogram mode. */
+        private final ConcurrentLinkedQueue<Long> raw;
+        /** Bucketed samples; null in raw mode. */
+        private final StripedLatencyRecorder serviceHistogram;
+        private final StripedLatencyRecorder responseHistogram;
+
+        Latencies(int significantDigits) {
+            if (significantDigits > 0) {
+                this.raw = null;
+                this.serviceHistogram = new StripedLatencyRecorder(HISTOGRAM_MAX_MICROS, significantDigits);
+                this.responseHistogram = new StripedLatencyRecorder(HISTOGRAM_MAX_MICROS, significantDigits);
+            } else {
+                this.raw = new ConcurrentLinkedQueue<>();
+                this.serviceHistogram = null;
+                this.responseHistogram = null;
+            }
+        }
+
+        void record(long serviceMicros, long responseMicros) {
+            if (raw == null) {
+                serviceHistogram.record(serviceMicros);
+                responseHistogram.record(responseMicros);
+                return;
+            }
+            long service = Math.max(0, Math.min(serviceMicros, RAW_MAX_SERVICE_MICROS));
+            long delay = Math.max(0, Math.min(responseMicros - serviceMicros, RAW_MAX_DELAY_MICROS));
+            raw.add(delay << 32 | service);
+        }
+
+        /** Service times, or response times (service + queueing delay) if {@code response}. */
+        private long[] rawValues(boolean response) {
+            long[] values = new long[raw.size() + 16];
+            int n = 0;
+            for (Long packed : raw) {
+                if (n == values.length) values = Arrays.copyOf(values, n * 2);
+                long service = packed & RAW_MAX_SERVICE_MICROS;
+                values[n++] = response ? service + (packed >>> 32) : service;
+            }
+            return Arrays.copyOf(values, n);
+        }
+
+        /** Histogram view of the samples; raw samples are bucketed at {@link #RAW_SNAPSHOT_DIGITS}. */
+        LatencyHistogram toHistogram(boolean response) {
+            if (raw == null) {
+                return (response ? responseHistogram : serviceHistogram).snapshot();
+            }
+            LatencyHistogram h = new LatencyHistogram(HISTOGRAM_MAX_MICROS, RAW_SNAPSHOT_DIGITS);
+            for (long micros : rawValues(response)) h.record(micros);
+            return h;
+        }
+
+        /**
+         * Counts at or below each ascending bound added to {@code into}; returns the sum in µs.
+         * Raw samples are counted in place, in one pass and without copying them.
+         */
+        long addCountsAtOrBelow(boolean response, long[] boundsMicros, long[] into) {
+            if (raw == null) {
+                StripedLatencyRecorder h = response ? responseHistogram : serviceHistogram;
+                h.addCountsAtOrBelow(boundsMicros, into);
+                return h.getSum();
+            }
+            long[] perBound = new long[boundsMicros.length];
+            long sum = 0;
+            for (Long packed : raw) {
+                long service = packed & RAW_MAX_SERVICE_MICROS;
+                long micros = response ? service + (packed >>> 32) : service;
+                sum += micros;
+                int b = Arrays.binarySearch(boundsMicros, micros);
+                if (b < 0) b = -b - 1;
+                if (b < perBound.length) perBound[b]++;
+            }
+            long cumulative = 0;
+            for (int b = 0; b < perBound.length; b++) {
+                cumulative += perBound[b];
+                into[b] += cumulative;
+            }
+            return sum;
+        }
+
+        Summary summarize(boolean response) {
+            if (raw == null) {
+                return Summary.of((response ? responseHistogram : serviceHistogram).snapshot());
+            }
+
+            Summary s = new Summary();
+            long[] sorted = rawValues(response);
+            Arrays.sort(sorted);
+
+            int n = sorted.length;
+            if (n > 0) {
+                long sum = 0L;
+                for (long d : sorted) sum += d;
+                s.mean = sum / (double) n;
+                s.median = percentile(sorted, 50);
+                s.p95 = percentile(sorted, 95);
+                s.p99 = percentile(sorted, 99);
+                s.max = sorted[n - 1];
+            }
+            return s;
+        }
+    }
+
+    /** µs */
+    private static final class Summary {
+        double mean;
+        long median, p95, p99, max;
+
+        static Summary of(LatencyHistogram h) {
+            Summary s = new Summary();
+            if (h.getTotalCount() > 0) {
+                s.mean = h.getMean();
+                s.median = h.getValueAtPercentile(50);
+                s.p95 = h.getValueAtPercentile(95);
+                s.p99 = h.getValueAtPercentile(99);
+                s.max = h.getMax();
+            }
+            return s;
         }
     }
 
     private final String name;
-    private final ConcurrentLinkedQueue<Long> durationsMs = new ConcurrentLinkedQueue<>();
+    private final Latencies latencies;
+    private final LongAdder scheduled = new LongAdder();
     private final LongAdder success = new LongAdder();
     private final LongAdder errors = new LongAdder();
     private final LongAdder active = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    /** Epoch ms at which the earliest recorded request started */
+    private final LongAccumulator firstStartMillis = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    /** Epoch ms at which the latest recorded request completed */
+    private final LongAccumulator lastEndMillis = new LongAccumulator(Math::max, Long.MIN_VALUE);
+    private final RollingTimeWindows timeSeries = new RollingTimeWindows(
+            PerformanceConfig.METRICS_WINDOW_MS,
+            PerformanceConfig.METRICS_WINDOW_RING,
+            PerformanceConfig.METRICS_WINDOW_RETAINED);
+    private volatile SampleJournal journal;
+    private volatile int journalEndpointId;
+    private final List<SampleListener> listeners = new CopyOnWriteArrayList<>();
 
     public PerformanceMetricsCollector(String name) {
+        this(name, "histogram".equalsIgnoreCase(PerformanceConfig.METRICS_MODE)
+                ? PerformanceConfig.METRICS_SIGNIFICANT_DIGITS
+                : 0);
+    }
+
+    /**
+     * @param significantDigits 1..5 to use histogram mode with that precision, 0 to keep raw samples
+     */
+    public PerformanceMetricsCollector(String name, int significantDigits) {
         this.name = name;
+        this.latencies = new Latencies(significantDigits);
     }
 
-    /** Prefer this method from your tests. Stores response time in MILLISECONDS. */
+    /** Convenience factory for a fixed-memory collector. */
+    public static PerformanceMetricsCollector histogram(String name, int significantDigits) {
+        if (significantDigits <= 0) {
+            throw new IllegalArgumentException("significantDigits must be positive: " + significantDigits);
+        }
+        return new PerformanceMetricsCollector(name, significantDigits);
+    }
+
+    public boolean isHistogramMode() { return latencies.raw == null; }
+
+    /**
+     * Records the response using RestAssured's own timer.
+     * Note: RestAssured measures in whole milliseconds; use {@link #timed(Supplier)} or
+     * {@link #recordResponse(Response, long)} when sub-millisecond resolution matters.
+     */
     public void recordResponse(Response response) {
-        long millis = response.getTimeIn(TimeUnit.MILLISECONDS);
-        durationsMs.add(millis);
+        recordDurationMicros(response.getTimeIn(TimeUnit.MICROSECONDS), response.getStatusCode(), bodySize(response));
+    }
 
-        int code = response.getStatusCode();
-        if (code >= 200 && code < 400) {
-            success.increment();
-        } else {
-            errors.increment();
+    /** Records the response with an elapsed time measured by the caller with System.nanoTime(). */
+    public void recordResponse(Response response, long elapsedNanos) {
+        recordDurationMicros(TimeUnit.NANOSECONDS.toMicros(elapsedNanos), response.getStatusCode(), bodySize(response));
+    }
+
+    /** Content-Length when the server sent one; otherwise the body is read to count its bytes. */
+    static long bodySize(Response response) {
+        try {
+            String contentLength = response.getHeader("Content-Length");
+            if (contentLength != null) {
+                try {
+                    return Long.parseLong(contentLength.trim());
+                } catch (NumberFormatException ignored) {
+                    // fall back to the body
+                }
+            }
+            return response.asByteArray().length;
+        } catch (Exception e) {
+            return 0L;
         }
     }
 
-    /** If you must record a duration measured with nanoTime(), call this and we convert nanos -> ms. */
+    /** Runs the call, timing it with System.nanoTime(), and records the response. */
+    public Response timed(Supplier<Response> call) {
+        RequestRecordedEvent event = RequestRecordedEvent.start();
+        long start = System.nanoTime();
+        Response response = call.get();
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+        record(micros, micros, response.getStatusCode(), bodySize(response), false, event);
+        return response;
+    }
+
+    /** Records a duration measured with nanoTime(); stored with microsecond resolution. */
     public void recordDurationNanos(long nanos, int httpStatus) {
-        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
-        durationsMs.add(millis);
-        if (httpStatus >= 200 && httpStatus < 400) success.increment(); else errors.increment();
+        recordDurationMicros(TimeUnit.NANOSECONDS.toMicros(nanos), httpStatus);
+    }
+
+    public void recordDurationMicros(long micros, int httpStatus) {
+        recordDurationMicros(micros, httpStatus, 0L);
+    }
+
+    /** Records a completed request; {@code responseBytes} feeds the bytes/s figures. */
+    public void recordDurationMicros(long micros, int httpStatus, long responseBytes) {
+        record(micros, micros, httpStatus, responseBytes, false);
+    }
+
+    /**
+     * Records a request issued from a load schedule, correcting for coordinated omission.
+     * All arguments are System.nanoTime() values.
+     *
+     * @param intendedStartNanos when the schedule wanted the request to start
+     * @param serviceStartNanos  when the request was actually sent
+     * @param endNanos           when the response was complete
+     */
+    public void recordScheduled(long intendedStartNanos, long serviceStartNanos, long endNanos,
+                                int httpStatus, long responseBytes) {
+        recordScheduled(intendedStartNanos, serviceStartNanos, endNanos, httpStatus, responseBytes, null);
+    }
+
+    private void recordScheduled(long intendedStartNanos, long serviceStartNanos, long endNanos,
+                                 int httpStatus, long responseBytes, RequestRecordedEvent event) {
+        long serviceMicros = TimeUnit.NANOSECONDS.toMicros(endNanos - serviceStartNanos);
+        long responseMicros = Math.max(serviceMicros, TimeUnit.NANOSECONDS.toMicros(endNanos - intendedStartNanos));
+        record(serviceMicros, responseMicros, httpStatus, responseBytes, true, event);
+    }
+
+    /**
+     * Runs the call and records it against the intended start taken from the load schedule
+     * (a System.nanoTime() value captured when the request was due, e.g. at submit time).
+     */
+    public Response timedFrom(long intendedStartNanos, Supplier<Response> call) {
+        RequestRecordedEvent event = RequestRecordedEvent.start();
+        long start = System.nanoTime();
+        Response response = call.get();
+        recordScheduled(intendedStartNanos, start, System.nanoTime(), response.getStatusCode(), bodySize(response),
+                event);
+        return response;
+    }
+
+    private void record(long serviceMicros, long responseMicros, int httpStatus, long responseBytes,
+                        boolean scheduledSample) {
+        record(serviceMicros, responseMicros, httpStatus, responseBytes, scheduledSample, null);
+    }
+
+    /** {@code event} is the JFR event begun when the request was sent, or null. */
+    private void record(long serviceMicros, long responseMicros, int httpStatus, long responseBytes,
+                        boolean scheduledSample, RequestRecordedEvent event) {
+        latencies.record(serviceMicros, responseMicros);
+        boolean ok = httpStatus >= 200 && httpStatus < 400;
+        if (ok) success.increment(); else errors.increment();
+        if (responseBytes > 0) bytes.add(responseBytes);
+        if (scheduledSample) scheduled.increment();
+
+        long now = System.currentTimeMillis();
+        firstStartMillis.accumulate(now - responseMicros / 1000);
+        lastEndMillis.accumulate(now);
+        timeSeries.record(now, serviceMicros, !ok, responseBytes);
+
+        SampleJournal j = journal;
+        if (j != null) {
+            j.append(now, serviceMicros, responseMicros, httpStatus, scheduledSample, journalEndpointId, responseBytes);
+        }
+        RequestRecordedEvent.emit(event, name, httpStatus, serviceMicros, responseMicros, responseBytes, scheduledSample);
+        for (SampleListener listener : listeners) {
+            listener.onSample(name, httpStatus, serviceMicros, responseMicros, responseBytes, scheduledSample);
+        }
+    }
+
+    /** Mirrors every subsequent sample to {@code listener}, e.g. a {@link DropwizardMetricsBridge}. */
+    public void addListener(SampleListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(SampleListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Also append every sample from now on to {@code journal}, tagged with this collector's name
+     * as the endpoint. Several collectors may share one journal. Pass null to detach.
+     */
+    public void setJournal(SampleJournal journal) {
+        if (journal != null) {
+            this.journalEndpointId = journal.endpointId(name);
+        }
+        this.journal = journal;
+    }
+
+    /** Per-window view of the run; can be queried while load is still running. */
+    public RollingTimeWindows getTimeSeries() { return timeSeries; }
+
+    public void exportTimeSeriesToCSV(String path) {
+        timeSeries.exportToCSV(path);
     }
 
     public void incrementActiveRequests() { active.increment(); }
     public void decrementActiveRequests() { active.decrement(); }
+    public long getActiveRequests() { return active.sum(); }
+
+    public String getName() { return name; }
+
+    public long getSuccessCount() { return success.sum(); }
+    public long getErrorCount() { return errors.sum(); }
+    public long getScheduledCount() { return scheduled.sum(); }
+    public long getTotalBytes() { return bytes.sum(); }
+
+    /**
+     * Adds the number of service times (or response times if {@code response}) at or below each
+     * of the ascending {@code boundsMicros} to {@code into} and returns their sum in µs. Unlike
+     * {@link #snapshot()} this builds no window map and does not re-bucket raw samples, so it is
+     * cheap enough to call on every scrape.
+     */
+    public long addCountsAtOrBelow(boolean response, long[] boundsMicros, long[] into) {
+        return latencies.addCountsAtOrBelow(response, boundsMicros, into);
+    }
 
     public PerformanceReport getReport() {
-        // Snapshot durations into a list
-        List<Long> list = new ArrayList<>(durationsMs);
-        Collections.sort(list);
-
-        int n = list.size();
-        double mean = 0.0, median = 0.0, p95 = 0.0, p99 = 0.0, max = 0.0;
-        if (n > 0) {
-            long sum = 0L;
-            for (long d : list) sum += d;
-            mean = sum / (double) n;
-            median = percentile(list, 50);
-            p95 = percentile(list, 95);
-            p99 = percentile(list, 99);
-            max = list.get(n - 1);
-        }
-
-        int ok = success.intValue();
-        int err = errors.intValue();
+        return buildReport(name, success.sum(), errors.sum(), active.intValue(), scheduled.sum(), bytes.sum(),
+                firstStartMillis.get(), lastEndMillis.get(), timeSeries.getPeakThroughput(),
+                latencies.summarize(false), latencies.summarize(true));
+    }
+
+    /**
+     * Mergeable copy of the current state; see {@link MetricsSnapshot} and
+     * {@link MetricsSnapshotMerger}. In raw mode samples are bucketed into a histogram first.
+     */
+    public MetricsSnapshot snapshot() {
+        Map<Long, Long> windows = new TreeMap<>();
+        for (RollingTimeWindows.TimeWindow w : timeSeries.getWindows()) {
+            windows.put(w.startEpochMillis, w.count);
+        }
+        return new MetricsSnapshot(name, success.sum(), errors.sum(), scheduled.sum(), bytes.sum(),
+                firstStartMillis.get(), lastEndMillis.get(), timeSeries.getWindowMillis(), windows,
+                latencies.toHistogram(false), latencies.toHistogram(true));
+    }
+
+    /** Writes {@link #snapshot()} to disk so partial results from several forks can be merged later. */
+    public void saveSnapshot(String path) {
+        try {
+            snapshot().save(path);
+        } catch (Exception e) {
+            System.err.println("Snapshot export failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Builds a report from histogram data (µs) rather than a live collector; used for registry
+     * roll-ups and merged snapshots.
+     */
+    static PerformanceReport buildReport(String name, long ok, long err, int active, long scheduled, long totalBytes,
+                                         long firstStartMillis, long lastEndMillis, double peakThroughput,
+                                         LatencyHistogram serviceTimes, LatencyHistogram responseTimes) {
+        return buildReport(name, ok, err, active, scheduled, totalBytes, firstStartMillis, lastEndMillis,
+                peakThroughput, Summary.of(serviceTimes), Summary.of(responseTimes));
+    }
+
+    private static PerformanceReport buildReport(String name, long okCount, long errCount, int active, long scheduled,
+                                                 long totalBytes, long first, long last, double peakThroughput,
+                                                 Summary service, Summary response) {
+        int ok = (int) okCount;
+        int err = (int) errCount;
         int total = ok + err;
         double errRate = total == 0 ? 0.0 : (err * 100.0 / total);
 
+        // At least 1 ms so a single instant sample doesn't divide by zero
+        double durationSeconds = total == 0 ? 0.0 : Math.max(1L, last - first) / 1000.0;
+        double throughput = total == 0 ? 0.0 : total / durationSeconds;
+        double bytesPerSecond = total == 0 ? 0.0 : totalBytes / durationSeconds;
+
         return new PerformanceReport(
-                name, total, ok, err, errRate, mean, median, p95, p99, max, active.intValue()
+                name, total, ok, err, errRate,
+                service.mean / 1000.0, service.median / 1000.0, service.p95 / 1000.0,
+                service.p99 / 1000.0, service.max / 1000.0,
+                active, service.median, service.p95, service.p99, service.max,
+                durationSeconds, throughput, peakThroughput, totalBytes, bytesPerSecond,
+                (int) scheduled,
+                response.mean / 1000.0, response.median / 1000.0, response.p95 / 1000.0,
+                response.p99 / 1000.0, response.max / 1000.0
         );
     }
 
-    private static double percentile(List<Long> sortedMillis, int pct) {
-        if (sortedMillis.isEmpty()) return 0.0;
-        double rank = Math.ceil((pct / 100.0) * sortedMillis.size());
-        int idx = Math.max(0, Math.min(sortedMillis.size() - 1, (int) rank - 1));
-        return sortedMillis.get(idx);
+    private static long percentile(long[] sortedMicros, int pct) {
+        if (sortedMicros.length == 0) return 0L;
+        double rank = Math.ceil((pct / 100.0) * sortedMicros.length);
+        int idx = Math.max(0, Math.min(sortedMicros.length - 1, (int) rank - 1));
+        return sortedMicros[idx];
     }
 
     public void printReport() {
-        PerformanceReport r = getReport();
+        printReport(getReport());
+    }
+
+    static void printReport(PerformanceReport r) {
         System.out.println();
         System.out.println("================================================================================");
         System.out.println("PERFORMANCE TEST REPORT: " + r.name);
         System.out.println("================================================================================");
         System.out.printf(Locale.ROOT, "Total Requests: %d%n", r.totalRequests);
         System.out.printf(Locale.ROOT, "Total Errors: %d (%.2f%%)%n", r.errorCount, r.errorRate);
-        System.out.printf(Locale.ROOT, "Mean Response Time: %.2f ms%n", r.meanResponseTime);
-        System.out.printf(Locale.ROOT, "Median Response Time: %.2f ms%n", r.medianResponseTime);
-        System.out.printf(Locale.ROOT, "95th Percentile: %.2f ms%n", r.p95ResponseTime);
-        System.out.printf(Locale.ROOT, "99th Percentile: %.2f ms%n", r.p99ResponseTime);
-        System.out.printf(Locale.ROOT, "Max Response Time: %.2f ms%n", r.maxResponseTime);
-        double throughput = (r.totalRequests <= 0 || r.meanResponseTime <= 0)
-                ? 0.0
-                : 1000.0 / r.meanResponseTime; // simplistic per-thread; keep if you like
-        System.out.printf(Locale.ROOT, "Throughput: %.2f req/sec%n", throughput);
+        System.out.printf(Locale.ROOT, "Mean Response Time: %.3f ms%n", r.meanResponseTime);
+        System.out.printf(Locale.ROOT, "Median Response Time: %.3f ms%n", r.medianResponseTime);
+        System.out.printf(Locale.ROOT, "95th Percentile: %.3f ms%n", r.p95ResponseTime);
+        System.out.printf(Locale.ROOT, "99th Percentile: %.3f ms%n", r.p99ResponseTime);
+        System.out.printf(Locale.ROOT, "Max Response Time: %.3f ms%n", r.maxResponseTime);
+        if (r.scheduledRequests > 0) {
+            System.out.printf(Locale.ROOT, "Response Time from Schedule (%d requests, incl. queueing):%n", r.scheduledRequests);
+            System.out.printf(Locale.ROOT, "  Mean %.3f ms | Median %.3f ms | P95 %.3f ms | P99 %.3f ms | Max %.3f ms%n",
+                    r.correctedMeanResponseTime, r.correctedMedianResponseTime, r.correctedP95ResponseTime,
+                    r.correctedP99ResponseTime, r.correctedMaxResponseTime);
+        }
+        System.out.printf(Locale.ROOT, "Duration: %.2f sec%n", r.durationSeconds);
+        if (r.peakThroughput > 0) {
+            System.out.printf(Locale.ROOT, "Throughput: %.2f req/sec (peak %.2f req/sec)%n", r.throughput, r.peakThroughput);
+        } else {
+            System.out.printf(Locale.ROOT, "Throughput: %.2f req/sec%n", r.throughput);
+        }
+        System.out.printf(Locale.ROOT, "Bytes Received: %d (%.2f KB/sec)%n", r.totalBytes, r.bytesPerSecond / 1024.0);
         System.out.printf(Locale.ROOT, "Active Requests: %d%n", r.activeRequests);
         System.out.println("================================================================================");
         System.out.println();
@@ -169,7 +628,11 @@ public class PerformanceMetricsCollector {
 //    }
 
     public void exportToCSV(String path) {
-        PerformanceReport r = getReport();
+        writeCSV(path, Collections.singletonList(getReport()));
+    }
+
+    /** Writes one CSV row per report, using the same columns as {@link #exportToCSV(String)}. */
+    static void writeCSV(String path, Collection<PerformanceReport> reports) {
         java.nio.file.Path p = java.nio.file.Paths.get(path);
         try {
             java.nio.file.Path parent = p.getParent();
@@ -177,14 +640,22 @@ public class PerformanceMetricsCollector {
                 java.nio.file.Files.createDirectories(parent); // <-- ensure dir exists
             }
             try (java.io.BufferedWriter bw = new java.io.BufferedWriter(new java.io.FileWriter(p.toFile()))) {
-                bw.write("name,totalRequests,successCount,errorCount,errorRate,meanMs,medianMs,p95Ms,p99Ms,maxMs,active\n");
-                bw.write(String.format(
-                        java.util.Locale.ROOT,
-                        "%s,%d,%d,%d,%.4f,%.3f,%.3f,%.3f,%.3f,%.3f,%d%n",
-                        r.name, r.totalRequests, r.successCount, r.errorCount, r.errorRate,
-                        r.meanResponseTime, r.medianResponseTime, r.p95ResponseTime, r.p99ResponseTime,
-                        r.maxResponseTime, r.activeRequests
-                ));
+                bw.write("name,totalRequests,successCount,errorCount,errorRate,meanMs,medianMs,p95Ms,p99Ms,maxMs,active,"
+                        + "medianUs,p95Us,p99Us,maxUs,durationSec,throughputRps,peakThroughputRps,totalBytes,bytesPerSec,"
+                        + "scheduledRequests,correctedMeanMs,correctedMedianMs,correctedP95Ms,correctedP99Ms,correctedMaxMs\n");
+                for (PerformanceReport r : reports) {
+                    bw.write(String.format(
+                            java.util.Locale.ROOT,
+                            "%s,%d,%d,%d,%.4f,%.3f,%.3f,%.3f,%.3f,%.3f,%d,%d,%d,%d,%d,%.3f,%.2f,%.2f,%d,%.2f,%d,%.3f,%.3f,%.3f,%.3f,%.3f%n",
+                            r.name, r.totalRequests, r.successCount, r.errorCount, r.errorRate,
+                            r.meanResponseTime, r.medianResponseTime, r.p95ResponseTime, r.p99ResponseTime,
+                            r.maxResponseTime, r.activeRequests,
+                            r.medianMicros, r.p95Micros, r.p99Micros, r.maxMicros,
+                            r.durationSeconds, r.throughput, r.peakThroughput, r.totalBytes, r.bytesPerSecond,
+                            r.scheduledRequests, r.correctedMeanResponseTime, r.correctedMedianResponseTime,
+                            r.correctedP95ResponseTime, r.correctedP99ResponseTime, r.correctedMaxResponseTime
+                    ));
+                }
             }
         } catch (Exception e) {
             System.err.println("CSV export failed: " + e.getMessage());
@@ -0,0 +1,237 @@
+package com.example.performance.utils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Embedded Prometheus endpoint for live metrics during a run.
+ *
+ * Serves GET /metrics on localhost in the Prometheus text exposition format (0.0.4), built from
+ * registered {@link PerformanceMetricsCollector}s and {@link MetricsRegistry}s at scrape time:
+ *  - perf_requests_total{outcome="success|error"}  counter
+ *  - perf_scheduled_requests_total                  counter
+ *  - perf_response_bytes_total                      counter
+ *  - perf_requests_in_flight                        gauge
+ *  - perf_service_time_seconds                      histogram (actual send to completion)
+ *  - perf_response_time_seconds                     histogram (intended start to completion)
+ *  - perf_loadgen_queue_depth / perf_loadgen_running_tasks           gauges per {@link LoadGenerator}
+ *  - perf_loadgen_dropped_tasks_total / perf_loadgen_caller_runs_total counters per {@link LoadGenerator}
+ * Collector series carry a {@code collector} label; registry series carry {@code registry},
+ * {@code method}, {@code endpoint}, {@code status_class} and the key's own labels.
+ *
+ * Uses the same com.sun.net.httpserver approach as {@link com.example.mock.WeatherApiMockServer}.
+ * Watch a run with: {@code watch -n1 curl -s localhost:9464/metrics}
+ */
+public class PrometheusMetricsServer {
+
+    /** Upper bounds in seconds, Prometheus client defaults extended down to 100 µs for local mocks */
+    private static final double[] BUCKETS_SECONDS = {
+            0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+
+    /** Bucket bounds in µs, with a final {@link Long#MAX_VALUE} bound for {@code +Inf} */
+    private static final long[] BOUNDS_MICROS = new long[BUCKETS_SECONDS.length + 1];
+
+    static {
+        for (int i = 0; i < BUCKETS_SECONDS.length; i++) {
+            BOUNDS_MICROS[i] = Math.round(BUCKETS_SECONDS[i] * 1_000_000);
+        }
+        BOUNDS_MICROS[BUCKETS_SECONDS.length] = Long.MAX_VALUE;
+    }
+
+    /**
+     * Counters and cumulative bucket counts of one labelled source, read straight from its live
+     * counters and histograms. The {@code +Inf} bucket doubles as {@code _count}, so the two always
+     * agree and buckets stay monotonic even while requests complete during the scrape.
+     */
+    private static final class Series {
+        final String labels;
+        final long success, errors, scheduled, bytes;
+        final long[] serviceBuckets = new long[BOUNDS_MICROS.length];
+        final long[] responseBuckets = new long[BOUNDS_MICROS.length];
+        long serviceSumMicros, responseSumMicros;
+
+        Series(String labels, long success, long errors, long scheduled, long bytes) {
+            this.labels = labels;
+            this.success = success;
+            this.errors = errors;
+            this.scheduled = scheduled;
+            this.bytes = bytes;
+        }
+    }
+
+    private final List<PerformanceMetricsCollector> collectors = new CopyOnWriteArrayList<>();
+    private final List<MetricsRegistry> registries = new CopyOnWriteArrayList<>();
+    private final Map<String, LoadGenerator> generators = new ConcurrentHashMap<>();
+    private HttpServer server;
+    private ExecutorService executor;
+    private int port;
+
+    public PrometheusMetricsServer register(PerformanceMetricsCollector collector) {
+        collectors.add(collector);
+        return this;
+    }
+
+    public PrometheusMetricsServer register(MetricsRegistry registry) {
+        registries.add(registry);
+        return this;
+    }
+
+    /** Exposes the generator's queue metrics under {@code generator="<name>"}. */
+    public PrometheusMetricsServer register(String name, LoadGenerator generator) {
+        generators.put(name, generator);
+        return this;
+    }
+
+    public void unregister(PerformanceMetricsCollector collector) { collectors.remove(collector); }
+
+    public void unregister(MetricsRegistry registry) { registries.remove(registry); }
+
+    public void unregisterGenerator(String name) { generators.remove(name); }
+
+    /** Binds to the loopback interface only; port 0 picks a free port. */
+    public void start(int port) {
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+            server.createContext("/metrics", this::handle);
+            // Dedicated scrape thread so a slow scrape never blocks load threads
+            executor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "prometheus-metrics");
+                t.setDaemon(true);
+                return t;
+            });
+            server.setExecutor(executor);
+            server.start();
+            this.port = server.getAddress().getPort();
+            System.out.println("[PrometheusMetrics] Serving " + url());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to start PrometheusMetricsServer", e);
+        }
+    }
+
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+            executor.shutdownNow();
+            System.out.println("[PrometheusMetrics] Stopped");
+        }
+    }
+
+    public String url() {
+        return "http://localhost:" + port + "/metrics";
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream os = exchange.getResponseBody()) { os.write(body); }
+    }
+
+    /** Renders every registered source in Prometheus text format. */
+    public String scrape() {
+        List<Series> series = new ArrayList<>();
+        Map<String, Long> inFlight = new LinkedHashMap<>();
+        for (PerformanceMetricsCollector c : collectors) {
+            String labels = label("collector", c.getName());
+            Series s = new Series(labels, c.getSuccessCount(), c.getErrorCount(), c.getScheduledCount(), c.getTotalBytes());
+            s.serviceSumMicros = c.addCountsAtOrBelow(false, BOUNDS_MICROS, s.serviceBuckets);
+            s.responseSumMicros = c.addCountsAtOrBelow(true, BOUNDS_MICROS, s.responseBuckets);
+            series.add(s);
+            inFlight.put(labels, c.getActiveRequests());
+        }
+        for (MetricsRegistry r : registries) {
+            for (MetricsRegistry.MetricKey key : r.getKeys()) {
+                StringBuilder labels = new StringBuilder(label("registry", r.getName()))
+                        .append(',').append(label("method", key.method))
+                        .append(',').append(label("endpoint", key.endpoint))
+                        .append(',').append(label("status_class", key.statusClass));
+                key.labels.forEach((k, v) -> labels.append(',').append(label(sanitize(k), v)));
+                Series s = new Series(labels.toString(), r.getSuccessCount(key), r.getErrorCount(key),
+                        r.getScheduledCount(key), r.getTotalBytes(key));
+                s.serviceSumMicros = r.addCountsAtOrBelow(key, false, BOUNDS_MICROS, s.serviceBuckets);
+                s.responseSumMicros = r.addCountsAtOrBelow(key, true, BOUNDS_MICROS, s.responseBuckets);
+                series.add(s);
+            }
+            inFlight.put(label("registry", r.getName()), r.getActiveRequests());
+        }
+
+        StringBuilder out = new StringBuilder(4096);
+        header(out, "perf_requests_total", "counter", "Completed requests by outcome");
+        for (Series s : series) {
+            sample(out, "perf_requests_total", s.labels + "," + label("outcome", "success"), s.success);
+            sample(out, "perf_requests_total", s.labels + "," + label("outcome", "error"), s.errors);
+        }
+        header(out, "perf_scheduled_requests_total", "counter", "Requests issued from a load schedule");
+        for (Series s : series) sample(out, "perf_scheduled_requests_total", s.labels, s.scheduled);
+        header(out, "perf_response_bytes_total", "counter", "Response body bytes received");
+        for (Series s : series) sample(out, "perf_response_bytes_total", s.labels, s.bytes);
+        header(out, "perf_requests_in_flight", "gauge", "Requests currently in progress");
+        inFlight.forEach((labels, value) -> sample(out, "perf_requests_in_flight", labels, value));
+
+        if (!generators.isEmpty()) {
+            header(out, "perf_loadgen_queue_depth", "gauge", "Tasks waiting for a load generator thread");
+            generators.forEach((n, g) -> sample(out, "perf_loadgen_queue_depth", label("generator", n), g.getQueueDepth()));
+            header(out, "perf_loadgen_running_tasks", "gauge", "Tasks running on load generator threads");
+            generators.forEach((n, g) -> sample(out, "perf_loadgen_running_tasks", label("generator", n), g.getRunningTasks()));
+            header(out, "perf_loadgen_dropped_tasks_total", "counter", "Tasks dropped because the generator queue was full");
+            generators.forEach((n, g) -> sample(out, "perf_loadgen_dropped_tasks_total", label("generator", n), g.getDroppedTasks()));
+            header(out, "perf_loadgen_caller_runs_total", "counter", "Tasks run by the submitting thread because the queue was full");
+            generators.forEach((n, g) -> sample(out, "perf_loadgen_caller_runs_total", label("generator", n), g.getCallerRunsTasks()));
+        }
+
+        header(out, "perf_service_time_seconds", "histogram", "Time from sending the request until it completed");
+        for (Series s : series) histogram(out, "perf_service_time_seconds", s.labels, s.serviceBuckets, s.serviceSumMicros);
+        header(out, "perf_response_time_seconds", "histogram", "Time from the scheduled start until the request completed");
+        for (Series s : series) histogram(out, "perf_response_time_seconds", s.labels, s.responseBuckets, s.responseSumMicros);
+        return out.toString();
+    }
+
+    private static void histogram(StringBuilder out, String name, String labels, long[] buckets, long sumMicros) {
+        for (int i = 0; i < BUCKETS_SECONDS.length; i++) {
+            sample(out, name + "_bucket", labels + "," + label("le", format(BUCKETS_SECONDS[i])), buckets[i]);
+        }
+        long total = buckets[BUCKETS_SECONDS.length];
+        sample(out, name + "_bucket", labels + "," + label("le", "+Inf"), total);
+        out.append(name).append("_sum{").append(labels).append("} ")
+                .append(format(sumMicros / 1_000_000.0)).append('\n');
+        sample(out, name + "_count", labels, total);
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, long value) {
+        out.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+    }
+
+    private static String label(String name, String value) {
+        String escaped = value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        return name + "=\"" + escaped + "\"";
+    }
+
+    /** Label names must match [a-zA-Z_][a-zA-Z0-9_]* */
+    private static String sanitize(String labelName) {
+        String s = labelName.replaceAll("[^a-zA-Z0-9_]", "_");
+        return s.isEmpty() || Character.isDigit(s.charAt(0)) ? "_" + s : s;
+    }
+
+    private static String format(double v) {
+        return BigDecimal.valueOf(v).stripTrailingZeros().toPlainString();
+    }
+}
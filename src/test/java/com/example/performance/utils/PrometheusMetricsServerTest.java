@@ -0,0 +1,83 @@
+package com.example.performance.utils;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PrometheusMetricsServerTest {
+
+    @Test
+    public void servesWellFormedHistogramsAndEscapedLabels() throws Exception {
+        PerformanceMetricsCollector raw = new PerformanceMetricsCollector("raw \"quoted\"", 0);
+        PerformanceMetricsCollector histogram = PerformanceMetricsCollector.histogram("histogram", 2);
+        MetricsRegistry registry = new MetricsRegistry("registry", 2);
+        long t = System.nanoTime();
+        for (int i = 1; i <= 200; i++) {
+            long service = i * 37_000L; // 37 µs .. 7.4 ms
+            raw.recordScheduled(t, t + 500_000, t + 500_000 + service, i % 50 == 0 ? 500 : 200, 10);
+            histogram.recordScheduled(t, t + 500_000, t + 500_000 + service, 200, 10);
+        }
+        registry.record("GET", "/current.json", Map.of("city", "C:\\dir\n\"x\"", "plan-tier", "free"),
+                200, 1_000, 2_000, 0, true);
+
+        PrometheusMetricsServer server = new PrometheusMetricsServer()
+                .register(raw).register(histogram).register(registry);
+        server.start(0);
+        HttpResponse<String> response;
+        try {
+            response = HttpClient.newHttpClient().send(
+                    HttpRequest.newBuilder(URI.create(server.url())).build(), HttpResponse.BodyHandlers.ofString());
+        } finally {
+            server.stop();
+        }
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain; version=0.0.4"));
+        String body = response.body();
+        assertTrue(body.contains("perf_requests_total{collector=\"raw \\\"quoted\\\"\",outcome=\"error\"} 4\n"));
+        assertTrue(body.contains("city=\"C:\\\\dir\\n\\\"x\\\"\""));
+        assertTrue(body.contains(",plan_tier=\"free\""));
+        assertTrue(body.contains("perf_scheduled_requests_total{collector=\"histogram\"} 200\n"));
+
+        // Every histogram series: buckets never decrease and +Inf equals _count
+        Map<String, List<Long>> buckets = new LinkedHashMap<>();
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (String line : body.split("\n")) {
+            if (line.startsWith("#") || line.contains("_sum{")) continue;
+            int brace = line.indexOf('{');
+            String name = line.substring(0, brace);
+            String labels = line.substring(brace + 1, line.lastIndexOf('}'));
+            long value = Long.parseLong(line.substring(line.lastIndexOf(' ') + 1));
+            if (name.endsWith("_bucket")) {
+                String series = name.replace("_bucket", "") + "{" + labels.substring(0, labels.lastIndexOf(",le="));
+                buckets.computeIfAbsent(series, k -> new ArrayList<>()).add(value);
+            } else if (name.endsWith("_count")) {
+                counts.put(name.replace("_count", "") + "{" + labels, value);
+            }
+        }
+        assertEquals(6, buckets.size());
+        assertEquals(buckets.keySet(), counts.keySet());
+        buckets.forEach((series, values) -> {
+            for (int i = 1; i < values.size(); i++) {
+                assertTrue(series + " " + values, values.get(i) >= values.get(i - 1));
+            }
+            assertEquals(series, counts.get(series), values.get(values.size() - 1));
+        });
+
+        // Raw samples are counted exactly: 27 of 37 µs steps fit in 1 ms, all 200 in 10 ms
+        List<Long> rawService = buckets.get("perf_service_time_seconds{collector=\"raw \\\"quoted\\\"\"");
+        assertEquals(27, (long) rawService.get(3));
+        assertEquals(200, (long) rawService.get(6));
+        assertTrue(body.contains("perf_service_time_seconds_sum{collector=\"raw \\\"quoted\\\"\"} 0.7437\n"));
+    }
+}
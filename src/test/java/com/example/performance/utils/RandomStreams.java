@@ -0,0 +1,122 @@
+package com.example.performance.utils;
+
+import com.example.performance.config.PerformanceConfig;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Random Streams
+ *
+ * Seeded source of the randomness in a run (think times, test data selection, arrival jitter), so
+ * a regression can be replayed with the same choices. Rather than one shared generator, whose
+ * sequence would depend on thread interleaving and whose state every thread would contend on, each
+ * virtual user or named purpose gets its own {@link SplittableRandom} derived from the run seed
+ * and the stream id:
+ *  - {@link #forUser(long)}: one stream per virtual user, owned by the thread running that user
+ *  - {@link #forName(String)} / {@link #seedFor(String)}: fixed purposes such as "arrivals"
+ * The same seed and id always give the same stream, and streams for different ids are
+ * statistically independent. With a fixed seed every user therefore issues an identical request
+ * sequence; only the interleaving between users depends on timing.
+ *
+ * The run seed comes from -Dperf.seed; when unset one is picked and logged so the run can be
+ * repeated with it.
+ */
+public final class RandomStreams {
+
+    private static volatile RandomStreams global;
+
+    private final long seed;
+
+    public RandomStreams(long seed) {
+        this.seed = seed;
+    }
+
+    /** Streams for the configured perf.seed, shared by the whole run. */
+    public static RandomStreams global() {
+        RandomStreams streams = global;
+        if (streams == null) {
+            synchronized (RandomStreams.class) {
+                streams = global;
+                if (streams == null) {
+                    streams = new RandomStreams(configuredSeed());
+                    global = streams;
+                }
+            }
+        }
+        return streams;
+    }
+
+    private static long configuredSeed() {
+        String configured = PerformanceConfig.SEED;
+        if (configured != null) {
+            try {
+                return Long.parseLong(configured);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("perf.seed must be a long: " + configured, e);
+            }
+        }
+        long seed = mix(System.nanoTime() ^ ProcessHandle.current().pid());
+        System.out.println("[RandomStreams] No perf.seed set, using -Dperf.seed=" + seed);
+        return seed;
+    }
+
+    public long getSeed() { return seed; }
+
+    /** Stream for virtual user {@code id}; use it from one thread only. */
+    public SplittableRandom forUser(long id) {
+        return new SplittableRandom(seedFor(id));
+    }
+
+    /** Stream for a named purpose, e.g. "arrivals"; use it from one thread only. */
+    public SplittableRandom forName(String name) {
+        return new SplittableRandom(seedFor(name));
+    }
+
+    /** Seed for a named purpose, for components that take a seed rather than a generator. */
+    public long seedFor(String name) {
+        // String.hashCode is specified, so this is stable across JVMs
+        return mix(seed ^ mix(0x6E616D65L + name.hashCode()));
+    }
+
+    long seedFor(long id) {
+        return mix(seed + mix(id + 1));
+    }
+
+    /** Uniform think time in [minMillis, maxMillis]. */
+    public static long thinkTimeMillis(SplittableRandom random, long minMillis, long maxMillis) {
+        return minMillis >= maxMillis ? minMillis : random.nextLong(minMillis, maxMillis + 1);
+    }
+
+    public static <T> T pick(SplittableRandom random, T[] items) {
+        return items[random.nextInt(items.length)];
+    }
+
+    public static <T> T pick(SplittableRandom random, List<T> items) {
+        return items.get(random.nextInt(items.size()));
+    }
+
+    /**
+     * Value {@code index} of the counter-based stream for {@code seed} (e.g. {@link #seedFor(String)}).
+     * Unlike a generator it needs no state and allocates nothing, so work numbered by arrival or
+     * pick can draw its value for that number from any thread and still get the same one every run.
+     */
+    public static long draw(long seed, long index) {
+        return mix(seed + mix(index + 1));
+    }
+
+    /** Item for value {@code index} of the counter-based stream for {@code seed}; see {@link #draw}. */
+    public static <T> T pick(long seed, long index, T[] items) {
+        return items[(int) (((draw(seed, index) >>> 32) * items.length) >>> 32)];
+    }
+
+    /**
+     * Stafford's 64-bit finalizer (variant 13). Seeds built by plain arithmetic such as seed + id
+     * can land on each other's sequence, since SplittableRandom itself just adds a constant.
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.performance.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RandomStreamsTest {
+
+    private static List<Long> draw(SplittableRandom random, int n) {
+        List<Long> values = new ArrayList<>();
+        for (int i = 0; i < n; i++) values.add(random.nextLong());
+        return values;
+    }
+
+    @Test
+    public void sameSeedAndUserGiveTheSameSequence() {
+        assertEquals(draw(new RandomStreams(7).forUser(3), 100), draw(new RandomStreams(7).forUser(3), 100));
+        assertEquals(new RandomStreams(7).seedFor("arrivals"), new RandomStreams(7).seedFor("arrivals"));
+
+        assertNotEquals(draw(new RandomStreams(7).forUser(3), 10), draw(new RandomStreams(7).forUser(4), 10));
+        assertNotEquals(draw(new RandomStreams(7).forUser(3), 10), draw(new RandomStreams(8).forUser(3), 10));
+        assertNotEquals(new RandomStreams(7).seedFor("arrivals"), new RandomStreams(7).seedFor("think"));
+    }
+
+    @Test
+    public void userSequencesDoNotDependOnThreadInterleaving() throws InterruptedException {
+        RandomStreams streams = new RandomStreams(123);
+        int users = 8;
+        List<List<Long>> concurrent = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int u = 0; u < users; u++) {
+            List<Long> out = new ArrayList<>();
+            concurrent.add(out);
+            SplittableRandom random = streams.forUser(u);
+            Thread t = new Thread(() -> out.addAll(draw(random, 1000)));
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t : threads) t.join();
+
+        for (int u = users - 1; u >= 0; u--) {
+            assertEquals(draw(streams.forUser(u), 1000), concurrent.get(u));
+        }
+    }
+
+    @Test
+    public void thinkTimesStayWithinBounds() {
+        SplittableRandom random = new RandomStreams(1).forUser(0);
+        long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+        for (int i = 0; i < 10_000; i++) {
+            long t = RandomStreams.thinkTimeMillis(random, 1000, 3000);
+            min = Math.min(min, t);
+            max = Math.max(max, t);
+        }
+        assertTrue(min >= 1000 && min < 1010);
+        assertTrue(max <= 3000 && max > 2990);
+        assertEquals(500, RandomStreams.thinkTimeMillis(random, 500, 500));
+    }
+
+    @Test
+    public void counterBasedPicksDependOnlyOnSeedAndIndex() {
+        String[] items = {"a", "b", "c", "d"};
+        long seed = new RandomStreams(5).seedFor("city");
+        int[] hits = new int[items.length];
+        for (long k = 0; k < 40_000; k++) {
+            String item = RandomStreams.pick(seed, k, items);
+            assertEquals(item, RandomStreams.pick(new RandomStreams(5).seedFor("city"), k, items));
+            hits[item.charAt(0) - 'a']++;
+        }
+        for (int h : hits) assertEquals(0.25, h / 40_000.0, 0.01);
+        assertNotEquals(RandomStreams.draw(seed, 0), RandomStreams.draw(seed, 1));
+        assertNotEquals(RandomStreams.draw(seed, 0), RandomStreams.draw(new RandomStreams(6).seedFor("city"), 0));
+    }
+}
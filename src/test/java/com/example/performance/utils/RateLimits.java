@@ -0,0 +1,124 @@
+package com.example.performance.utils;
+
+import com.example.performance.config.PerformanceConfig;
+import io.restassured.filter.Filter;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Rate Limits
+ *
+ * A global {@link TokenBucketRateLimiter} plus optional per-endpoint ones, e.g. to stay inside the
+ * Weather API free-tier quota while still driving it as hard as it allows. A request takes a
+ * permit from its endpoint's limiter (if any) and then from the global one (if any), so neither
+ * rate is ever exceeded.
+ *
+ * Quotas apply to the whole process, so {@link #global()} returns one shared instance built from
+ * the configuration:
+ *   -Dperf.rateLimit=10 -Dperf.rateLimit.burst=5 -Dperf.rateLimit.endpoints=/current.json=6,/forecast.json=2
+ * Use it directly ({@link #acquire(String)}), as a RestAssured filter ({@link #asFilter()}, keyed
+ * by request path), or through {@link LoadGenerator#setRateLimiter} for task starts.
+ */
+public final class RateLimits {
+
+    private static volatile RateLimits global;
+
+    private final TokenBucketRateLimiter overall;
+    private final Map<String, TokenBucketRateLimiter> endpoints;
+
+    /**
+     * @param overall   global limiter, or null for none
+     * @param endpoints limiters by endpoint path; endpoints not listed are only globally limited
+     */
+    public RateLimits(TokenBucketRateLimiter overall, Map<String, TokenBucketRateLimiter> endpoints) {
+        this.overall = overall;
+        this.endpoints = Collections.unmodifiableMap(new LinkedHashMap<>(endpoints));
+    }
+
+    /** The process-wide limits from perf.rateLimit*; disabled when none are configured. */
+    public static RateLimits global() {
+        RateLimits limits = global;
+        if (limits == null) {
+            synchronized (RateLimits.class) {
+                limits = global;
+                if (limits == null) {
+                    limits = parse(PerformanceConfig.RATE_LIMIT, PerformanceConfig.RATE_LIMIT_BURST,
+                            PerformanceConfig.RATE_LIMIT_ENDPOINTS);
+                    global = limits;
+                }
+            }
+        }
+        return limits;
+    }
+
+    /**
+     * @param rate      global permits per second, or null/blank for no global limit
+     * @param burst     burst size for every limiter
+     * @param endpoints comma-separated {@code path=rate} pairs, or null/blank
+     */
+    public static RateLimits parse(String rate, int burst, String endpoints) {
+        TokenBucketRateLimiter overall = rate == null || rate.isBlank()
+                ? null : new TokenBucketRateLimiter(parseRate("perf.rateLimit", rate), burst);
+        Map<String, TokenBucketRateLimiter> byEndpoint = new LinkedHashMap<>();
+        if (endpoints != null && !endpoints.isBlank()) {
+            for (String entry : endpoints.split(",")) {
+                int eq = entry.lastIndexOf('=');
+                if (eq <= 0) {
+                    throw new IllegalArgumentException("Expected path=rate in perf.rateLimit.endpoints: " + entry.trim());
+                }
+                String path = entry.substring(0, eq).trim();
+                byEndpoint.put(path, new TokenBucketRateLimiter(parseRate(path, entry.substring(eq + 1)), burst));
+            }
+        }
+        return new RateLimits(overall, byEndpoint);
+    }
+
+    private static double parseRate(String name, String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid rate for " + name + ": " + value.trim(), e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return overall != null || !endpoints.isEmpty();
+    }
+
+    /** Global limiter, or null. */
+    public TokenBucketRateLimiter getOverall() { return overall; }
+
+    public Map<String, TokenBucketRateLimiter> getEndpoints() { return endpoints; }
+
+    /** Waits until a request to {@code endpoint} is allowed under every applicable limit. */
+    public void acquire(String endpoint) throws InterruptedException {
+        TokenBucketRateLimiter limiter = endpoints.get(endpoint);
+        if (limiter != null) limiter.acquire();
+        if (overall != null) overall.acquire();
+    }
+
+    /**
+     * RestAssured filter that calls {@link #acquire} with the request path before sending, e.g.
+     * {@code given().filter(RateLimits.global().asFilter())}.
+     */
+    public Filter asFilter() {
+        return (requestSpec, responseSpec, ctx) -> {
+            try {
+                acquire(requestSpec.getUserDefinedPath());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a rate limit permit", e);
+            }
+            return ctx.next(requestSpec, responseSpec);
+        };
+    }
+
+    public void print() {
+        if (!isEnabled()) return;
+        System.out.println("Rate limits:");
+        if (overall != null) System.out.println("  global: " + overall);
+        endpoints.forEach((path, limiter) -> System.out.println("  " + path + ": " + limiter));
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.performance.utils;
+
+import com.example.performance.config.PerformanceConfig;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * JDK Flight Recorder event emitted for every request recorded by {@link PerformanceMetricsCollector}
+ * or {@link MetricsRegistry}, so request latency can be lined up with GC pauses, safepoints and
+ * thread activity of the load-generator JVM in one JMC timeline. JFR records the emitting thread
+ * itself.
+ *
+ * Requests run through the collectors' {@code timed}/{@code timedFrom} wrappers are begun when the
+ * request is sent, so the event spans the call on the timeline. Samples recorded after the fact
+ * (recordDurationMicros, recordResponse, MetricsRegistry.record) have no span there; their timings
+ * are always in the Service Time and Response Time fields.
+ *
+ * Off unless perf.jfr.events=true. When enabled, events are only written while a recording is
+ * running (e.g. -XX:StartFlightRecording), and no stack traces are captured to keep overhead low.
+ */
+@Name("com.example.performance.RequestRecorded")
+@Label("Request Recorded")
+@Category({"Performance Tests"})
+@Description("A request completed and was recorded by the performance metrics collector")
+@StackTrace(false)
+public class RequestRecordedEvent extends jdk.jfr.Event {
+
+    /** perf.jfr.events; a plain flag read, so the disabled path is one well-predicted branch */
+    private static volatile boolean enabled = PerformanceConfig.JFR_EVENTS;
+
+    @Label("Endpoint")
+    public String endpoint;
+
+    @Label("Status")
+    public int status;
+
+    @Label("Service Time")
+    @Description("Time from sending the request until it completed")
+    @Timespan(Timespan.MICROSECONDS)
+    public long serviceTime;
+
+    @Label("Response Time")
+    @Description("Time from the scheduled start until the request completed")
+    @Timespan(Timespan.MICROSECONDS)
+    public long responseTime;
+
+    @Label("Response Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Scheduled")
+    public boolean scheduled;
+
+    /** Whether {@link #emit} does anything; lets callers skip building the endpoint string. */
+    static boolean isEmitting() {
+        return enabled;
+    }
+
+    /** Overrides perf.jfr.events for the rest of the run, e.g. in tests. */
+    static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /** An event begun now, as a request is sent, to hand to {@link #emit} on completion; null when off. */
+    static RequestRecordedEvent start() {
+        if (!enabled) return null;
+        RequestRecordedEvent event = new RequestRecordedEvent();
+        event.begin();
+        return event;
+    }
+
+    static void emit(String endpoint, int status, long serviceMicros, long responseMicros, long bytes, boolean scheduled) {
+        emit(null, endpoint, status, serviceMicros, responseMicros, bytes, scheduled);
+    }
+
+    /** Commits {@code started} (from {@link #start}), or a new event without a span when it is null. */
+    static void emit(RequestRecordedEvent started, String endpoint, int status, long serviceMicros, long responseMicros,
+                     long bytes, boolean scheduled) {
+        if (!enabled) return;
+        RequestRecordedEvent event = started != null ? started : new RequestRecordedEvent();
+        event.end();
+        if (event.shouldCommit()) {
+            event.endpoint = endpoint;
+            event.status = status;
+            event.serviceTime = serviceMicros;
+            event.responseTime = responseMicros;
+            event.bytes = bytes;
+            event.scheduled = scheduled;
+            event.commit();
+        }
+    }
+}
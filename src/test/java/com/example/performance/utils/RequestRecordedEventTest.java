@@ -0,0 +1,101 @@
+package com.example.performance.utils;
+
+import io.restassured.builder.ResponseBuilder;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RequestRecordedEventTest {
+
+    private static final String EVENT = "com.example.performance.RequestRecorded";
+    /** The switch is process-wide; methods of this class may run in parallel */
+    private static final Object SWITCH = new Object();
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    /** Events of this collector captured while {@code body} runs under a recording. */
+    private List<RecordedEvent> record(String collectorName, boolean enabled, Runnable body) throws Exception {
+        Path file = tmp.newFile(collectorName + ".jfr").toPath();
+        synchronized (SWITCH) {
+            boolean was = RequestRecordedEvent.isEmitting();
+            RequestRecordedEvent.setEnabled(enabled);
+            try (Recording recording = new Recording()) {
+                recording.enable(EVENT);
+                recording.start();
+                body.run();
+                recording.stop();
+                recording.dump(file);
+            } finally {
+                RequestRecordedEvent.setEnabled(was);
+            }
+        }
+        List<RecordedEvent> events = new ArrayList<>();
+        for (RecordedEvent e : RecordingFile.readAllEvents(file)) {
+            // Other tests in the JVM may record at the same time
+            if (e.getEventType().getName().equals(EVENT) && collectorName.equals(e.getString("endpoint"))) {
+                events.add(e);
+            }
+        }
+        return events;
+    }
+
+    @Test
+    public void enabledRecordingCapturesEachRequest() throws Exception {
+        PerformanceMetricsCollector metrics = PerformanceMetricsCollector.histogram("jfr-enabled", 2);
+        String thread = Thread.currentThread().getName();
+
+        List<RecordedEvent> events = record(metrics.getName(), true, () -> metrics.recordDurationMicros(1_234, 503, 42));
+
+        assertEquals(1, events.size());
+        RecordedEvent event = events.get(0);
+        assertEquals(503, event.getInt("status"));
+        assertEquals(1_234_000, event.getDuration("serviceTime").toNanos());
+        assertEquals(1_234_000, event.getDuration("responseTime").toNanos());
+        assertEquals(42, event.getLong("bytes"));
+        assertFalse(event.getBoolean("scheduled"));
+        assertEquals(thread, event.getThread().getJavaName());
+    }
+
+    @Test
+    public void timedRequestsSpanTheCallOnTheTimeline() throws Exception {
+        PerformanceMetricsCollector metrics = PerformanceMetricsCollector.histogram("jfr-timed", 2);
+
+        List<RecordedEvent> events = record(metrics.getName(), true, () -> metrics.timed(() -> {
+            long until = System.nanoTime() + 20_000_000;
+            while (until - System.nanoTime() > 0) LockSupport.parkNanos(until - System.nanoTime());
+            return new ResponseBuilder().setStatusCode(200).setBody("{}").build();
+        }));
+
+        assertEquals(1, events.size());
+        RecordedEvent event = events.get(0);
+        // Begun before the call and ended once it was recorded, so the span covers the service time
+        assertTrue("span " + event.getDuration(), event.getDuration().toNanos() >= 20_000_000);
+        assertTrue(event.getDuration().compareTo(event.getDuration("serviceTime")) >= 0);
+        assertEquals(200, event.getInt("status"));
+    }
+
+    @Test
+    public void nothingIsEmittedWhenSwitchedOff() throws Exception {
+        PerformanceMetricsCollector metrics = PerformanceMetricsCollector.histogram("jfr-disabled", 2);
+
+        List<RecordedEvent> events = record(metrics.getName(), false, () -> {
+            for (int i = 0; i < 100; i++) metrics.recordDurationMicros(1_000, 200, 0);
+        });
+
+        assertTrue("events " + events.size(), events.isEmpty());
+        assertEquals(100, metrics.getReport().totalRequests);
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.performance.utils;
+
+import com.example.config.TestConfig;
+import io.restassured.builder.RequestSpecBuilder;
+import io.restassured.filter.Filter;
+import io.restassured.response.Response;
+import io.restassured.specification.RequestSpecification;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static io.restassured.RestAssured.given;
+
+/**
+ * Request Template
+ *
+ * An immutable, precompiled request for the hot loop of a performance test. Building
+ * {@code given().spec(TestConfig.baseSpec()).queryParam(...)} on every call creates a new
+ * RequestSpecBuilder, re-checks for a local mock, adds the API key and has RestAssured merge and
+ * encode every parameter again. A template does all of that once, when it is created:
+ *  - base URI, fixed query parameters (the API key) and headers are resolved into one shared spec
+ *  - the path and query are parsed and percent-encoded, leaving literal chunks around the
+ *    {@code {name}} placeholders
+ * so per request only the variable values are encoded and spliced in.
+ *
+ * Usage:
+ * <pre>
+ *   private static final RequestTemplate CURRENT = RequestTemplate.weatherApi("/current.json?q={city}");
+ *
+ *   metrics.timedFrom(intendedStart, () -> CURRENT.get(city));      // RestAssured
+ *   engine.submit(CURRENT.uri(city), intendedStart, metrics);        // AsyncLoadEngine
+ * </pre>
+ * Placeholders may stand for a whole path segment or a whole query value; values are passed in
+ * the order the placeholders appear. Templates are safe to share between threads.
+ */
+public final class RequestTemplate {
+
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final String baseUrl;
+    private final String path;
+    /** Encoded text before, between and after the placeholders; one more than {@link #variables} */
+    private final String[] literals;
+    private final String[] variables;
+    /** Whether each placeholder is a query value (space as '+') rather than a path segment */
+    private final boolean[] inQuery;
+    private final int literalLength;
+    private final RequestSpecification spec;
+    /** The whole URI when there are no placeholders */
+    private final URI constantUri;
+
+    private RequestTemplate(String baseUrl, String path, List<String> literals, List<String> variables,
+                            List<Boolean> inQuery, Map<String, String> headers) {
+        this.baseUrl = baseUrl;
+        this.path = path;
+        this.literals = literals.toArray(new String[0]);
+        this.variables = variables.toArray(new String[0]);
+        this.inQuery = new boolean[inQuery.size()];
+        for (int i = 0; i < this.inQuery.length; i++) this.inQuery[i] = inQuery.get(i);
+        int length = 0;
+        for (String literal : this.literals) length += literal.length();
+        this.literalLength = length;
+
+        // Everything is encoded already; RestAssured must send it as is
+        RequestSpecBuilder builder = new RequestSpecBuilder().setBaseUri(baseUrl).setUrlEncodingEnabled(false);
+        headers.forEach(builder::addHeader);
+        this.spec = builder.build();
+        this.constantUri = this.variables.length == 0 ? URI.create(baseUrl + this.literals[0]) : null;
+    }
+
+    private RequestTemplate(RequestTemplate template, RequestSpecification spec) {
+        this.baseUrl = template.baseUrl;
+        this.path = template.path;
+        this.literals = template.literals;
+        this.variables = template.variables;
+        this.inQuery = template.inQuery;
+        this.literalLength = template.literalLength;
+        this.spec = spec;
+        this.constantUri = template.constantUri;
+    }
+
+    /**
+     * Template against {@link TestConfig#BASE_URL}, with the API key added the same way as
+     * {@link TestConfig#baseSpec()} (not for a local mock, nor when no key is configured).
+     */
+    public static RequestTemplate weatherApi(String pathAndQuery) {
+        Map<String, String> query = new LinkedHashMap<>();
+        if (!TestConfig.isLocalMock(TestConfig.BASE_URL) && TestConfig.API_KEY != null && !TestConfig.API_KEY.isBlank()) {
+            query.put("key", TestConfig.API_KEY);
+        }
+        return of(TestConfig.BASE_URL, pathAndQuery, query, Collections.emptyMap());
+    }
+
+    /**
+     * @param baseUrl      scheme, host and optional base path, e.g. {@code http://localhost:8080/v1}
+     * @param pathAndQuery path with optional query, e.g. {@code /forecast.json?q={city}&days=3}
+     * @param fixedQuery   query parameters appended to every request, e.g. an API key
+     * @param headers      headers sent with every request (RestAssured only)
+     */
+    public static RequestTemplate of(String baseUrl, String pathAndQuery, Map<String, String> fixedQuery,
+                                     Map<String, String> headers) {
+        if (baseUrl == null || baseUrl.isBlank()) throw new IllegalArgumentException("baseUrl is required");
+        if (pathAndQuery == null || !pathAndQuery.startsWith("/")) {
+            throw new IllegalArgumentException("pathAndQuery must start with '/': " + pathAndQuery);
+        }
+        String base = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        int q = pathAndQuery.indexOf('?');
+        String rawPath = q < 0 ? pathAndQuery : pathAndQuery.substring(0, q);
+        String rawQuery = q < 0 ? "" : pathAndQuery.substring(q + 1);
+
+        List<String> literals = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        List<Boolean> inQuery = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+
+        for (String segment : rawPath.substring(1).split("/", -1)) {
+            literal.append('/');
+            literal = appendPart(segment, false, literal, literals, variables, inQuery);
+        }
+        char separator = '?';
+        for (String pair : rawQuery.isEmpty() ? new String[0] : rawQuery.split("&")) {
+            if (pair.isEmpty()) continue;
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            literal.append(separator).append(encode(name, true)).append('=');
+            literal = appendPart(eq < 0 ? "" : pair.substring(eq + 1), true, literal, literals, variables, inQuery);
+            separator = '&';
+        }
+        for (Map.Entry<String, String> e : fixedQuery.entrySet()) {
+            literal.append(separator).append(encode(e.getKey(), true)).append('=').append(encode(e.getValue(), true));
+            separator = '&';
+        }
+        literals.add(literal.toString());
+
+        String path = rawPath.replaceAll("\\{[^}/]*}", "*");
+        return new RequestTemplate(base, path, literals, variables, inQuery, new LinkedHashMap<>(headers));
+    }
+
+    /** Appends a path segment or query value: a placeholder closes the current literal. */
+    private static StringBuilder appendPart(String part, boolean query, StringBuilder literal, List<String> literals,
+                                            List<String> variables, List<Boolean> inQuery) {
+        if (part.length() > 2 && part.startsWith("{") && part.endsWith("}")) {
+            literals.add(literal.toString());
+            variables.add(part.substring(1, part.length() - 1));
+            inQuery.add(query);
+            return new StringBuilder();
+        }
+        if (part.indexOf('{') >= 0) {
+            throw new IllegalArgumentException("A placeholder must be a whole path segment or query value: " + part);
+        }
+        return literal.append(encode(part, query));
+    }
+
+    /** GET through RestAssured with the shared spec; filters such as {@link RateLimits#asFilter()} see the plain path. */
+    public Response get(String... values) {
+        return given().spec(spec).get(expand(values));
+    }
+
+    /**
+     * The same template with {@code filter} applied to every request it sends, e.g.
+     * {@link RateLimits#asFilter()}; unlike {@code RestAssured.filters(...)} this affects no other request.
+     */
+    public RequestTemplate withFilter(Filter filter) {
+        return new RequestTemplate(this, new RequestSpecBuilder().addRequestSpecification(spec).addFilter(filter).build());
+    }
+
+    /** Shared RestAssured spec (base URI, headers, URL encoding off) for other methods or extra options. */
+    public RequestSpecification spec() {
+        return spec;
+    }
+
+    /** Absolute URI for the given values, e.g. for {@link AsyncLoadEngine#submit}. */
+    public URI uri(String... values) {
+        if (constantUri != null) {
+            checkArity(values);
+            return constantUri;
+        }
+        return URI.create(expand(new StringBuilder(baseUrl.length() + literalLength + 16).append(baseUrl), values)
+                .toString());
+    }
+
+    /** Encoded path and query for the given values, relative to the base URL. */
+    public String expand(String... values) {
+        if (variables.length == 0) {
+            checkArity(values);
+            return literals[0];
+        }
+        return expand(new StringBuilder(literalLength + 16), values).toString();
+    }
+
+    private StringBuilder expand(StringBuilder sb, String[] values) {
+        checkArity(values);
+        sb.append(literals[0]);
+        for (int i = 0; i < variables.length; i++) {
+            appendEncoded(sb, values[i], inQuery[i]);
+            sb.append(literals[i + 1]);
+        }
+        return sb;
+    }
+
+    private void checkArity(String[] values) {
+        if (values.length != variables.length) {
+            throw new IllegalArgumentException("Expected " + variables.length + " values " + getVariables()
+                    + " but got " + values.length);
+        }
+    }
+
+    public String getBaseUrl() { return baseUrl; }
+
+    /** Endpoint path with placeholders as {@code *}, e.g. for rate limits or report labels. */
+    public String getPath() { return path; }
+
+    public List<String> getVariables() { return List.of(variables); }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(baseUrl).append(literals[0]);
+        for (int i = 0; i < variables.length; i++) {
+            sb.append('{').append(variables[i]).append('}').append(literals[i + 1]);
+        }
+        return sb.toString();
+    }
+
+    static String encode(String value, boolean query) {
+        return appendEncoded(new StringBuilder(value.length() + 8), value, query).toString();
+    }
+
+    /**
+     * Percent-encodes everything but the RFC 3986 unreserved characters, which is valid in both a
+     * path segment and a query value; in a query a space becomes '+', as RestAssured sends it.
+     * Plain ASCII values (the usual case) are appended as they are.
+     */
+    private static StringBuilder appendEncoded(StringBuilder sb, String value, boolean query) {
+        int n = value.length();
+        int i = 0;
+        while (i < n && isUnreserved(value.charAt(i))) i++;
+        if (i == n) return sb.append(value);
+        sb.append(value, 0, i);
+        for (byte b : value.substring(i).getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xFF);
+            if (isUnreserved(c)) {
+                sb.append(c);
+            } else if (c == ' ' && query) {
+                sb.append('+');
+            } else {
+                sb.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+            }
+        }
+        return sb;
+    }
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+}
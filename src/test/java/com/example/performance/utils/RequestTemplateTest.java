@@ -0,0 +1,66 @@
+package com.example.performance.utils;
+
+import com.example.mock.WeatherApiMockServer;
+import io.restassured.response.Response;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RequestTemplateTest {
+
+    @Test
+    public void encodesLiteralsOnceAndOnlyValuesPerRequest() {
+        RequestTemplate t = RequestTemplate.of("http://api.example.com/v1/", "/forecast.json?q={city}&days=3&lang=pt br",
+                Map.of("key", "a&b=c"), Map.of());
+
+        assertEquals(List.of("city"), t.getVariables());
+        assertEquals("/forecast.json", t.getPath());
+        assertEquals("/forecast.json?q=London&days=3&lang=pt+br&key=a%26b%3Dc", t.expand("London"));
+        assertEquals(URI.create("http://api.example.com/v1/forecast.json?q=S%C3%A3o+Paulo%2FSP&days=3&lang=pt+br&key=a%26b%3Dc"),
+                t.uri("São Paulo/SP"));
+
+        RequestTemplate byId = RequestTemplate.of("http://localhost", "/items/{id}/reviews", Map.of(), Map.of());
+        assertEquals("/items/*/reviews", byId.getPath());
+        assertEquals("/items/a%20b/reviews", byId.expand("a b"));
+
+        RequestTemplate constant = RequestTemplate.of("http://localhost", "/current.json?q=London", Map.of(), Map.of());
+        assertSame(constant.uri(), constant.uri());
+
+        try {
+            t.expand("London", "Paris");
+            fail("Expected a value count mismatch");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().contains("[city]"));
+        }
+        try {
+            RequestTemplate.of("http://localhost", "/current.json?q=city-{n}", Map.of(), Map.of());
+            fail("Expected a partial placeholder to be rejected");
+        } catch (IllegalArgumentException expected) {
+            // placeholders must be whole values
+        }
+    }
+
+    @Test
+    public void sendsTheSameRequestAsTheBaseSpec() {
+        WeatherApiMockServer mock = new WeatherApiMockServer();
+        mock.start(0);
+        try {
+            RequestTemplate forecast = RequestTemplate.of(mock.baseUrl(), "/forecast.json?q={city}&days=2",
+                    Map.of(), Map.of("Accept", "application/json"));
+            Response response = forecast.get("New York");
+
+            assertEquals(200, response.statusCode());
+            assertEquals("New York", response.jsonPath().getString("location.name"));
+            assertEquals(2, response.jsonPath().getList("forecast.forecastday").size());
+        } finally {
+            mock.stop();
+        }
+    }
+}
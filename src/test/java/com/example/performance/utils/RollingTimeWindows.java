@@ -0,0 +1,260 @@
+package com.example.performance.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Rolling time-series windows
+ *
+ * Splits a run into fixed-width windows (1 s by default) and keeps count, errors, bytes,
+ * p50/p95/p99 and max for each one, which doubles as the run's throughput timeline. The most
+ * recent windows live in a ring of histograms; when a ring position moves on to a newer window,
+ * the old window is frozen into a small {@link TimeWindow} summary, so memory stays bounded while
+ * the full time series remains available for export.
+ *
+ * Histograms are only allocated for windows that receive samples, so a short-lived collector
+ * (a capacity trial, a warm-up, an endurance interval) costs a few windows rather than the whole
+ * ring. Each window gets a fresh histogram instead of a reset one, and a window is only frozen
+ * once every recorder that was writing into it has finished, so no sample is lost or lands in the
+ * wrong window.
+ *
+ * All latencies are in MICROSECONDS; timestamps are epoch milliseconds.
+ */
+public class RollingTimeWindows {
+
+    /** Immutable summary of one window. Latencies in ms. */
+    public static final class TimeWindow {
+        public final long startEpochMillis;
+        public final long windowMillis;
+        public final long count;
+        public final long errors;
+        public final long bytes;
+        public final double p50ResponseTime;
+        public final double p95ResponseTime;
+        public final double p99ResponseTime;
+        public final double maxResponseTime;
+
+        TimeWindow(long startEpochMillis, long windowMillis, long count, long errors, long bytes,
+                   double p50ResponseTime, double p95ResponseTime, double p99ResponseTime, double maxResponseTime) {
+            this.startEpochMillis = startEpochMillis;
+            this.windowMillis = windowMillis;
+            this.count = count;
+            this.errors = errors;
+            this.bytes = bytes;
+            this.p50ResponseTime = p50ResponseTime;
+            this.p95ResponseTime = p95ResponseTime;
+            this.p99ResponseTime = p99ResponseTime;
+            this.maxResponseTime = maxResponseTime;
+        }
+
+        /** Requests completed per second in this window. */
+        public double getThroughput() {
+            return count * 1000.0 / windowMillis;
+        }
+
+        /** Response bytes received per second in this window. */
+        public double getBytesPerSecond() {
+            return bytes * 1000.0 / windowMillis;
+        }
+    }
+
+    /** One live window in the ring. */
+    private static final class Slot {
+        final long index;
+        final LatencyHistogram histogram = new LatencyHistogram(MAX_MICROS, 2);
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+        /** Recorders currently writing into this window */
+        final AtomicInteger writers = new AtomicInteger();
+        volatile boolean closed;
+
+        Slot(long index) { this.index = index; }
+
+        /** Returns false if the window was closed by a concurrent rotation. */
+        boolean tryRecord(long latencyMicros, boolean error, long bytes) {
+            writers.incrementAndGet();
+            try {
+                if (closed) return false;
+                histogram.record(latencyMicros);
+                if (error) errors.incrementAndGet();
+                if (bytes > 0) this.bytes.addAndGet(bytes);
+                return true;
+            } finally {
+                writers.decrementAndGet();
+            }
+        }
+
+        /** Stops new writes and waits for the ones in progress. */
+        void close() {
+            closed = true;
+            while (writers.get() > 0) {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private static final long MAX_MICROS = TimeUnit.HOURS.toMicros(1);
+
+    private final long windowMillis;
+    private final long originMillis;
+    private final AtomicReferenceArray<Slot> ring;
+    private final Object rotationLock = new Object();
+    private final int maxRetained;
+    private final ConcurrentLinkedDeque<TimeWindow> completed = new ConcurrentLinkedDeque<>();
+    /** Highest count of any frozen window */
+    private final AtomicLong peakCompletedCount = new AtomicLong();
+    private final AtomicLong droppedLateSamples = new AtomicLong();
+
+    /**
+     * @param windowMillis width of each window
+     * @param ringSize     number of live windows kept as histograms
+     * @param maxRetained  number of completed window summaries kept for export (oldest dropped first)
+     */
+    public RollingTimeWindows(long windowMillis, int ringSize, int maxRetained) {
+        if (windowMillis <= 0) throw new IllegalArgumentException("windowMillis must be positive: " + windowMillis);
+        if (ringSize < 2) throw new IllegalArgumentException("ringSize must be at least 2: " + ringSize);
+        this.windowMillis = windowMillis;
+        this.originMillis = (System.currentTimeMillis() / windowMillis) * windowMillis;
+        this.ring = new AtomicReferenceArray<>(ringSize);
+        this.maxRetained = maxRetained;
+    }
+
+    public long getWindowMillis() { return windowMillis; }
+
+    /** Samples that arrived after their window had already been recycled. */
+    public long getDroppedLateSamples() { return droppedLateSamples.get(); }
+
+    public void record(long timestampMillis, long latencyMicros, boolean error, long bytes) {
+        long index = Math.max(0, (timestampMillis - originMillis) / windowMillis);
+        int position = (int) (index % ring.length());
+        while (true) {
+            Slot slot = ring.get(position);
+            if (slot != null && slot.index > index) {
+                droppedLateSamples.incrementAndGet();
+                return;
+            }
+            if (slot != null && slot.index == index && slot.tryRecord(latencyMicros, error, bytes)) {
+                return;
+            }
+            // Empty, older, or closed while we were about to write: move on (or wait for the rotation) and retry
+            rotate(position, index);
+        }
+    }
+
+    /** Moves ring {@code position} forward to window {@code index}, freezing the window it held. */
+    private void rotate(int position, long index) {
+        synchronized (rotationLock) {
+            Slot current = ring.get(position);
+            if (current != null && current.index >= index) return;
+            if (current != null) {
+                current.close();
+                if (current.histogram.getTotalCount() > 0) {
+                    retain(freeze(current));
+                }
+            }
+            ring.set(position, new Slot(index));
+        }
+    }
+
+    private void retain(TimeWindow window) {
+        peakCompletedCount.accumulateAndGet(window.count, Math::max);
+        completed.addLast(window);
+        while (completed.size() > maxRetained) {
+            completed.pollFirst();
+        }
+    }
+
+    private TimeWindow freeze(Slot slot) {
+        LatencyHistogram h = slot.histogram;
+        return new TimeWindow(
+                originMillis + slot.index * windowMillis,
+                windowMillis,
+                h.getTotalCount(),
+                slot.errors.get(),
+                slot.bytes.get(),
+                h.getValueAtPercentile(50) / 1000.0,
+                h.getValueAtPercentile(95) / 1000.0,
+                h.getValueAtPercentile(99) / 1000.0,
+                h.getMax() / 1000.0);
+    }
+
+    /**
+     * Windows from the first to the last one with samples, oldest first, including the live
+     * (possibly partial) windows. Windows without completions in between are included with a
+     * count of 0, so stalls show up in the time series. Safe to call while the run is in progress.
+     */
+    public List<TimeWindow> getWindows() {
+        List<TimeWindow> result = new ArrayList<>(completed);
+        for (int i = 0; i < ring.length(); i++) {
+            Slot slot = ring.get(i);
+            if (slot != null && slot.histogram.getTotalCount() > 0) {
+                result.add(freeze(slot));
+            }
+        }
+        result.sort(Comparator.comparingLong(w -> w.startEpochMillis));
+        // A slot may be frozen into 'completed' while we read the ring; keep the first copy
+        List<TimeWindow> windows = new ArrayList<>(result.size());
+        for (TimeWindow w : result) {
+            long expected = windows.isEmpty() ? w.startEpochMillis
+                    : windows.get(windows.size() - 1).startEpochMillis + windowMillis;
+            if (w.startEpochMillis < expected) continue;
+            for (long start = expected; start < w.startEpochMillis; start += windowMillis) {
+                windows.add(new TimeWindow(start, windowMillis, 0, 0, 0, 0, 0, 0, 0));
+            }
+            windows.add(w);
+        }
+        return windows;
+    }
+
+    /**
+     * Highest per-second request rate seen in any window; 0 if nothing was recorded. Frozen windows
+     * are tracked as they complete, so this only looks at the live ring.
+     */
+    public double getPeakThroughput() {
+        long peak = peakCompletedCount.get();
+        for (int i = 0; i < ring.length(); i++) {
+            Slot slot = ring.get(i);
+            if (slot != null) {
+                peak = Math.max(peak, slot.histogram.getTotalCount());
+            }
+        }
+        return peak * 1000.0 / windowMillis;
+    }
+
+    /** The most recent {@code n} windows, oldest first. */
+    public List<TimeWindow> getRecentWindows(int n) {
+        List<TimeWindow> all = getWindows();
+        return all.subList(Math.max(0, all.size() - n), all.size());
+    }
+
+    public void exportToCSV(String path) {
+        List<TimeWindow> windows = getWindows();
+        java.nio.file.Path p = java.nio.file.Paths.get(path);
+        try {
+            java.nio.file.Path parent = p.getParent();
+            if (parent != null) {
+                java.nio.file.Files.createDirectories(parent);
+            }
+            try (java.io.BufferedWriter bw = new java.io.BufferedWriter(new java.io.FileWriter(p.toFile()))) {
+                bw.write("windowStartEpochMs,windowMs,count,errors,bytes,throughputRps,p50Ms,p95Ms,p99Ms,maxMs\n");
+                for (TimeWindow w : windows) {
+                    bw.write(String.format(
+                            Locale.ROOT,
+                            "%d,%d,%d,%d,%d,%.2f,%.3f,%.3f,%.3f,%.3f%n",
+                            w.startEpochMillis, w.windowMillis, w.count, w.errors, w.bytes, w.getThroughput(),
+                            w.p50ResponseTime, w.p95ResponseTime, w.p99ResponseTime, w.maxResponseTime
+                    ));
+                }
+            }
+        } catch (Exception e) {
+            System.err.println("Time-series CSV export failed: " + e.getMessage());
+        }
+    }
+}
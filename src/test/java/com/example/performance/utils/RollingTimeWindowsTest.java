@@ -0,0 +1,86 @@
+package com.example.performance.utils;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RollingTimeWindowsTest {
+
+    @Test
+    public void bucketsSamplesAndKeepsStallsAsEmptyWindows() {
+        RollingTimeWindows windows = new RollingTimeWindows(100, 4, 1000);
+        long t0 = System.currentTimeMillis() / 100 * 100;
+
+        windows.record(t0, 1_000, false, 10);
+        windows.record(t0 + 50, 3_000, true, 20);
+        // Nothing completes for two windows, then one more
+        windows.record(t0 + 300, 2_000, false, 0);
+
+        List<RollingTimeWindows.TimeWindow> list = windows.getWindows();
+        assertEquals(4, list.size());
+        assertEquals(2, list.get(0).count);
+        assertEquals(1, list.get(0).errors);
+        assertEquals(30, list.get(0).bytes);
+        assertEquals(3.0, list.get(0).maxResponseTime, 0.05);
+        for (int i = 1; i <= 2; i++) {
+            assertEquals(t0 + i * 100, list.get(i).startEpochMillis);
+            assertEquals(0, list.get(i).count);
+            assertEquals(0.0, list.get(i).getThroughput(), 0);
+        }
+        assertEquals(1, list.get(3).count);
+        assertEquals(20.0, windows.getPeakThroughput(), 0);
+    }
+
+    @Test
+    public void freezesRecycledSlotsAndDropsSamplesForThem() {
+        RollingTimeWindows windows = new RollingTimeWindows(100, 2, 3);
+        long t0 = System.currentTimeMillis() / 100 * 100;
+
+        for (int w = 0; w < 6; w++) {
+            for (int i = 0; i <= w; i++) {
+                windows.record(t0 + w * 100, 500, false, 0);
+            }
+        }
+        // Window 0 shares a ring position with window 4, which has moved past it
+        windows.record(t0, 500, false, 0);
+        assertEquals(1, windows.getDroppedLateSamples());
+
+        // 3 retained summaries plus the 2 live windows
+        List<RollingTimeWindows.TimeWindow> list = windows.getWindows();
+        assertEquals(5, list.size());
+        assertEquals(t0 + 100, list.get(0).startEpochMillis);
+        assertEquals(6, list.get(4).count);
+        // The peak survives even once its window is no longer retained
+        assertEquals(60.0, windows.getPeakThroughput(), 0);
+    }
+
+    @Test
+    public void losesNoSamplesWhileWindowsRotateUnderLoad() throws InterruptedException {
+        RollingTimeWindows windows = new RollingTimeWindows(10, 4, 100_000);
+        long t0 = System.currentTimeMillis() / 10 * 10;
+        int threads = 4;
+        int perThread = 50_000;
+        AtomicLong clock = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    // Shared, steadily advancing clock: one window every 1000 samples
+                    windows.record(t0 + clock.getAndIncrement() / 100, 100, false, 0);
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+
+        long recorded = 0;
+        for (RollingTimeWindows.TimeWindow w : windows.getWindows()) recorded += w.count;
+        assertTrue("windows " + windows.getWindows().size(), windows.getWindows().size() > 100);
+        assertEquals((long) threads * perThread, recorded + windows.getDroppedLateSamples());
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.performance.utils;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Sample Journal
+ *
+ * Off-heap, append-only record of every sample for post-hoc analysis. Each sample is a
+ * fixed-width {@value #RECORD_SIZE}-byte record written into a memory-mapped file, so the journal
+ * costs no heap per sample and an append is a single atomic increment plus a few absolute puts
+ * (no allocation, no locks). The file is mapped in {@value #SEGMENT_BYTES}-byte segments as it grows.
+ *
+ * Record layout (little-endian):
+ * <pre>
+ *   0  long   end of request, epoch ms
+ *   8  long   service time, µs
+ *  16  long   response time from schedule, µs
+ *  24  int    response bytes
+ *  28  short  HTTP status (low 15 bits) | {@link #SCHEDULED_FLAG}
+ *  30  short  endpoint id (see {@link #endpointId(String)})
+ * </pre>
+ * Endpoint names are written next to the journal in {@code <file>.endpoints}, one per line, when
+ * it is closed. Use {@link SampleJournalReader} to rebuild reports or re-slice the run.
+ */
+public final class SampleJournal implements AutoCloseable {
+
+    static final int MAGIC = 0x50534A31; // "PSJ1"
+    static final int FORMAT_VERSION = 1;
+    static final int RECORD_SIZE = 32;
+    /** Header occupies the first record slot: magic, version, record size, reserved, record count, created at */
+    static final int HEADER_SIZE = RECORD_SIZE;
+    static final int HEADER_COUNT_OFFSET = 16;
+    static final long SEGMENT_BYTES = 64L * 1024 * 1024;
+    static final int SCHEDULED_FLAG = 0x8000;
+    static final String ENDPOINTS_SUFFIX = ".endpoints";
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long capacity;
+    private final AtomicReferenceArray<MappedByteBuffer> segments;
+    private final AtomicLong position = new AtomicLong(HEADER_SIZE);
+    private final AtomicLong dropped = new AtomicLong();
+    /** Appends in progress; close() waits for them before it counts, flushes and trims */
+    private final AtomicInteger writers = new AtomicInteger();
+    private final ConcurrentHashMap<String, Integer> endpointIds = new ConcurrentHashMap<>();
+    private final List<String> endpoints = new ArrayList<>();
+    private volatile boolean closed;
+
+    private SampleJournal(Path path, long maxBytes) throws IOException {
+        this.path = path;
+        this.capacity = Math.max(SEGMENT_BYTES, (maxBytes / SEGMENT_BYTES) * SEGMENT_BYTES);
+        this.segments = new AtomicReferenceArray<>((int) (capacity / SEGMENT_BYTES));
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        MappedByteBuffer header = segment(0);
+        header.putInt(0, MAGIC);
+        header.putInt(4, FORMAT_VERSION);
+        header.putInt(8, RECORD_SIZE);
+        header.putLong(HEADER_COUNT_OFFSET, 0L);
+        header.putLong(24, System.currentTimeMillis());
+    }
+
+    /**
+     * Creates (or truncates) a journal file.
+     *
+     * @param maxBytes upper bound for the file; samples beyond it are counted as dropped
+     */
+    public static SampleJournal open(String path, long maxBytes) throws IOException {
+        Path p = Paths.get(path);
+        if (p.getParent() != null) {
+            Files.createDirectories(p.getParent());
+        }
+        return new SampleJournal(p, maxBytes);
+    }
+
+    public Path getPath() { return path; }
+
+    /**
+     * Stable small id for an endpoint name. Registration is synchronized; repeated lookups of a
+     * known name are a lock-free map read.
+     */
+    public int endpointId(String endpoint) {
+        Integer id = endpointIds.get(endpoint);
+        if (id != null) return id;
+        synchronized (endpoints) {
+            id = endpointIds.get(endpoint);
+            if (id == null) {
+                if (endpoints.size() > Short.MAX_VALUE) {
+                    throw new IllegalStateException("Too many journal endpoints");
+                }
+                id = endpoints.size();
+                endpoints.add(endpoint);
+                endpointIds.put(endpoint, id);
+            }
+            return id;
+        }
+    }
+
+    /** Appends one sample. Never blocks on other writers; returns false if the journal is full or closed. */
+    public boolean append(long endEpochMillis, long serviceMicros, long responseMicros,
+                          int httpStatus, boolean scheduled, int endpointId, long responseBytes) {
+        writers.incrementAndGet();
+        try {
+            if (closed) return false;
+            long pos = position.getAndAdd(RECORD_SIZE);
+            if (pos + RECORD_SIZE > capacity) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            MappedByteBuffer buf = segment((int) (pos / SEGMENT_BYTES));
+            int off = (int) (pos % SEGMENT_BYTES);
+            buf.putLong(off + 8, serviceMicros);
+            buf.putLong(off + 16, responseMicros);
+            buf.putInt(off + 24, (int) Math.min(Integer.MAX_VALUE, Math.max(0, responseBytes)));
+            buf.putShort(off + 28, (short) ((httpStatus & 0x7FFF) | (scheduled ? SCHEDULED_FLAG : 0)));
+            buf.putShort(off + 30, (short) endpointId);
+            // Timestamp last: a non-zero timestamp marks the record as complete for crash-time readers
+            buf.putLong(off, endEpochMillis);
+            return true;
+        } finally {
+            writers.decrementAndGet();
+        }
+    }
+
+    /** Number of records appended so far (excluding dropped ones). */
+    public long getRecordCount() {
+        return (Math.min(position.get(), capacity) - HEADER_SIZE) / RECORD_SIZE;
+    }
+
+    public long getDroppedSamples() { return dropped.get(); }
+
+    private MappedByteBuffer segment(int index) {
+        MappedByteBuffer buf = segments.get(index);
+        if (buf != null) return buf;
+        synchronized (segments) {
+            buf = segments.get(index);
+            if (buf == null) {
+                try {
+                    buf = channel.map(FileChannel.MapMode.READ_WRITE, index * SEGMENT_BYTES, SEGMENT_BYTES);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Cannot map journal segment " + index + " of " + path, e);
+                }
+                buf.order(ByteOrder.LITTLE_ENDIAN);
+                segments.set(index, buf);
+            }
+            return buf;
+        }
+    }
+
+    /**
+     * Writes the record count and endpoint names, flushes the mapped pages and trims the file to
+     * the records actually written. Safe to call while tasks are still running (e.g. after an
+     * executor's shutdownNow): later appends are rejected, and appends already past the closed
+     * check are waited for, so no writer can touch a page after the file has been trimmed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        // An append never blocks, so this wait is bounded by a few puts
+        while (writers.get() > 0) {
+            Thread.onSpinWait();
+        }
+        long count = getRecordCount();
+        segment(0).putLong(HEADER_COUNT_OFFSET, count);
+        for (int i = 0; i < segments.length(); i++) {
+            MappedByteBuffer buf = segments.get(i);
+            if (buf != null) buf.force();
+        }
+        synchronized (endpoints) {
+            Files.write(Paths.get(path + ENDPOINTS_SUFFIX), endpoints, StandardCharsets.UTF_8);
+        }
+        try {
+            channel.truncate(HEADER_SIZE + count * RECORD_SIZE);
+        } catch (IOException e) {
+            // Some platforms refuse to shrink a mapped file; readers use the header count instead
+            System.err.println("Journal trim skipped: " + e.getMessage());
+        }
+        channel.close();
+        if (dropped.get() > 0) {
+            System.err.println("Journal " + path + " was full; " + dropped.get() + " samples dropped");
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.performance.utils;
+
+import com.example.performance.config.PerformanceConfig;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sample Journal Reader
+ *
+ * Reads a {@link SampleJournal} after the run and rebuilds {@link PerformanceMetricsCollector.PerformanceReport}s
+ * from the raw samples: for the whole run, per endpoint, for an arbitrary time range, or re-sliced
+ * into windows of any width (independent of the window size used while the test was running).
+ *
+ * A journal that was never closed (e.g. the JVM crashed) is still readable: records are read up to
+ * the first incomplete one.
+ *
+ * Run with:
+ *   java -cp target/test-classes:... com.example.performance.utils.SampleJournalReader <file> [windowMs]
+ */
+public final class SampleJournalReader {
+
+    /** Receives one journal record; primitives only so a full scan allocates nothing per sample. */
+    @FunctionalInterface
+    public interface SampleVisitor {
+        void visit(long endEpochMillis, long serviceMicros, long responseMicros,
+                   int httpStatus, boolean scheduled, int endpointId, int responseBytes);
+    }
+
+    private static final long MAX_MICROS = TimeUnit.HOURS.toMicros(1);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final String name;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final List<String> endpoints;
+    private final long recordCount;
+
+    private SampleJournalReader(Path path) throws IOException {
+        this.name = path.getFileName().toString();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long offset = 0; offset < size; offset += SampleJournal.SEGMENT_BYTES) {
+                MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                        Math.min(SampleJournal.SEGMENT_BYTES, size - offset));
+                buf.order(ByteOrder.LITTLE_ENDIAN);
+                segments.add(buf);
+            }
+            if (segments.isEmpty() || segments.get(0).getInt(0) != SampleJournal.MAGIC) {
+                throw new IOException("Not a sample journal: " + path);
+            }
+            MappedByteBuffer header = segments.get(0);
+            if (header.getInt(4) != SampleJournal.FORMAT_VERSION || header.getInt(8) != SampleJournal.RECORD_SIZE) {
+                throw new IOException("Unsupported sample journal format: " + path);
+            }
+            long written = header.getLong(SampleJournal.HEADER_COUNT_OFFSET);
+            this.recordCount = written > 0 ? written : countCompleteRecords(size);
+        }
+
+        Path names = Paths.get(path + SampleJournal.ENDPOINTS_SUFFIX);
+        this.endpoints = Files.exists(names)
+                ? Files.readAllLines(names, StandardCharsets.UTF_8)
+                : Collections.emptyList();
+    }
+
+    public static SampleJournalReader open(String path) throws IOException {
+        return new SampleJournalReader(Paths.get(path));
+    }
+
+    /** Unclosed journal: scan until the first record whose timestamp was never written. */
+    private long countCompleteRecords(long fileSize) {
+        long n = 0;
+        for (long pos = SampleJournal.HEADER_SIZE; pos + SampleJournal.RECORD_SIZE <= fileSize; pos += SampleJournal.RECORD_SIZE) {
+            if (segment(pos).getLong(offset(pos)) == 0L) break;
+            n++;
+        }
+        return n;
+    }
+
+    private MappedByteBuffer segment(long pos) {
+        return segments.get((int) (pos / SampleJournal.SEGMENT_BYTES));
+    }
+
+    private static int offset(long pos) {
+        return (int) (pos % SampleJournal.SEGMENT_BYTES);
+    }
+
+    public long getRecordCount() { return recordCount; }
+
+    /** Endpoint names indexed by endpoint id; empty if the journal was not closed cleanly. */
+    public List<String> getEndpoints() { return Collections.unmodifiableList(endpoints); }
+
+    public String endpointName(int endpointId) {
+        return endpointId < endpoints.size() ? endpoints.get(endpointId) : "endpoint-" + endpointId;
+    }
+
+    /** Visits every record in the order it was appended. */
+    public void forEach(SampleVisitor visitor) {
+        long end = SampleJournal.HEADER_SIZE + recordCount * SampleJournal.RECORD_SIZE;
+        for (long pos = SampleJournal.HEADER_SIZE; pos < end; pos += SampleJournal.RECORD_SIZE) {
+            MappedByteBuffer buf = segment(pos);
+            int off = offset(pos);
+            short statusAndFlags = buf.getShort(off + 28);
+            visitor.visit(buf.getLong(off), buf.getLong(off + 8), buf.getLong(off + 16),
+                    statusAndFlags & 0x7FFF,
+                    (statusAndFlags & SampleJournal.SCHEDULED_FLAG) != 0,
+                    buf.getShort(off + 30), buf.getInt(off + 24));
+        }
+    }
+
+    /**
+     * Aggregates the samples that completed in {@code [fromMillis, toMillis)} for one endpoint
+     * ({@code endpointId < 0} for all).
+     */
+    public MetricsSnapshot snapshot(String snapshotName, long fromMillis, long toMillis, int endpointId) {
+        long windowMillis = PerformanceConfig.METRICS_WINDOW_MS;
+        LatencyHistogram service = new LatencyHistogram(MAX_MICROS, SIGNIFICANT_DIGITS);
+        LatencyHistogram response = service.emptyCopy();
+        Map<Long, Long> windows = new TreeMap<>();
+        long[] totals = new long[6]; // ok, err, scheduled, bytes, first, last
+        totals[4] = Long.MAX_VALUE;
+        totals[5] = Long.MIN_VALUE;
+
+        forEach((end, serviceMicros, responseMicros, status, scheduled, id, bytes) -> {
+            if (end < fromMillis || end >= toMillis || (endpointId >= 0 && id != endpointId)) return;
+            service.record(serviceMicros);
+            response.record(responseMicros);
+            if (status >= 200 && status < 400) totals[0]++; else totals[1]++;
+            if (scheduled) totals[2]++;
+            totals[3] += bytes;
+            totals[4] = Math.min(totals[4], end - responseMicros / 1000);
+            totals[5] = Math.max(totals[5], end);
+            windows.merge((end / windowMillis) * windowMillis, 1L, Long::sum);
+        });
+
+        return new MetricsSnapshot(snapshotName, totals[0], totals[1], totals[2], totals[3],
+                totals[4], totals[5], windowMillis, windows, service, response);
+    }
+
+    /** Report for the whole journal. */
+    public PerformanceMetricsCollector.PerformanceReport report() {
+        return snapshot(name, Long.MIN_VALUE, Long.MAX_VALUE, -1).toReport();
+    }
+
+    /** One report per endpoint, in endpoint id order. */
+    public Map<String, PerformanceMetricsCollector.PerformanceReport> reportsByEndpoint() {
+        Set<Integer> ids = new TreeSet<>();
+        forEach((end, s, r, status, scheduled, id, bytes) -> ids.add(id));
+        Map<String, PerformanceMetricsCollector.PerformanceReport> reports = new LinkedHashMap<>();
+        for (int id : ids) {
+            String endpoint = endpointName(id);
+            reports.put(endpoint, snapshot(endpoint, Long.MIN_VALUE, Long.MAX_VALUE, id).toReport());
+        }
+        return reports;
+    }
+
+    /**
+     * Re-slices the run into consecutive windows of {@code windowMillis}, one report per
+     * non-empty window, named by the window's start time.
+     */
+    public List<PerformanceMetricsCollector.PerformanceReport> reportsByWindow(long windowMillis) {
+        if (windowMillis <= 0) throw new IllegalArgumentException("windowMillis must be positive: " + windowMillis);
+        SortedSet<Long> starts = new TreeSet<>();
+        forEach((end, s, r, status, scheduled, id, bytes) -> starts.add((end / windowMillis) * windowMillis));
+        List<PerformanceMetricsCollector.PerformanceReport> reports = new ArrayList<>(starts.size());
+        for (long start : starts) {
+            reports.add(snapshot(Instant.ofEpochMilli(start).toString(), start, start + windowMillis, -1).toReport());
+        }
+        return reports;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: SampleJournalReader <journal-file> [windowMs]");
+            System.exit(2);
+        }
+        SampleJournalReader reader = open(args[0]);
+        System.out.println("Journal " + args[0] + ": " + reader.getRecordCount() + " samples");
+        PerformanceMetricsCollector.printReport(reader.report());
+
+        Map<String, PerformanceMetricsCollector.PerformanceReport> byEndpoint = reader.reportsByEndpoint();
+        if (byEndpoint.size() > 1) {
+            byEndpoint.values().forEach(PerformanceMetricsCollector::printReport);
+        }
+        if (args.length > 1) {
+            long windowMs = Long.parseLong(args[1]);
+            System.out.printf(Locale.ROOT, "%-26s %8s %7s %10s %10s %10s%n", "Window", "Requests", "Err %", "rps", "p95 ms", "p99 ms");
+            for (PerformanceMetricsCollector.PerformanceReport r : reader.reportsByWindow(windowMs)) {
+                System.out.printf(Locale.ROOT, "%-26s %8d %7.2f %10.2f %10.3f %10.3f%n",
+                        r.name, r.totalRequests, r.errorRate, r.totalRequests * 1000.0 / windowMs,
+                        r.p95ResponseTime, r.p99ResponseTime);
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.performance.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SampleJournalTest {
+
+    private static final long MAX_BYTES = SampleJournal.SEGMENT_BYTES;
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void closedJournalReadsBackEveryRecord() throws Exception {
+        String path = new File(tmp.getRoot(), "run.journal").getPath();
+        SampleJournal journal = SampleJournal.open(path, MAX_BYTES);
+        int current = journal.endpointId("GET /current.json");
+        int forecast = journal.endpointId("GET /forecast.json");
+        assertEquals(current, journal.endpointId("GET /current.json"));
+
+        long t0 = 1_700_000_000_000L;
+        for (int i = 0; i < 100; i++) {
+            assertTrue(journal.append(t0 + i * 10, 1_000 + i, 2_000 + i, i % 20 == 0 ? 503 : 200,
+                    i % 2 == 0, i < 60 ? current : forecast, 100));
+        }
+        journal.close();
+        assertFalse(journal.append(t0, 1, 1, 200, false, current, 0));
+        assertEquals(SampleJournal.HEADER_SIZE + 100L * SampleJournal.RECORD_SIZE, new File(path).length());
+
+        SampleJournalReader reader = SampleJournalReader.open(path);
+        assertEquals(100, reader.getRecordCount());
+        assertEquals(List.of("GET /current.json", "GET /forecast.json"), reader.getEndpoints());
+
+        List<long[]> records = new ArrayList<>();
+        reader.forEach((end, service, response, status, scheduled, id, bytes) ->
+                records.add(new long[]{end, service, response, status, scheduled ? 1 : 0, id, bytes}));
+        assertEquals(100, records.size());
+        assertEquals(t0 + 990, records.get(99)[0]);
+        assertEquals(1_099, records.get(99)[1]);
+        assertEquals(2_099, records.get(99)[2]);
+        assertEquals(503, records.get(40)[3]);
+        assertEquals(1, records.get(40)[4]);
+        assertEquals(forecast, records.get(60)[5]);
+        assertEquals(100, records.get(0)[6]);
+
+        PerformanceMetricsCollector.PerformanceReport report = reader.report();
+        assertEquals(100, report.totalRequests);
+        assertEquals(5, report.errorCount);
+        assertEquals(50, report.scheduledRequests);
+        assertEquals(10_000, report.totalBytes);
+        Map<String, PerformanceMetricsCollector.PerformanceReport> byEndpoint = reader.reportsByEndpoint();
+        assertEquals(60, byEndpoint.get("GET /current.json").totalRequests);
+        assertEquals(40, byEndpoint.get("GET /forecast.json").totalRequests);
+        assertEquals(2, reader.reportsByWindow(500).size());
+    }
+
+    @Test
+    public void unclosedJournalIsReadUpToTheLastCompleteRecord() throws Exception {
+        String path = new File(tmp.getRoot(), "crashed.journal").getPath();
+        SampleJournal journal = SampleJournal.open(path, MAX_BYTES);
+        try {
+            int id = journal.endpointId("GET /current.json");
+            for (int i = 0; i < 25; i++) {
+                journal.append(1_700_000_000_000L + i, 500, 500, 200, false, id, 0);
+            }
+
+            // No header count and no endpoint names yet: the reader scans for written timestamps
+            SampleJournalReader reader = SampleJournalReader.open(path);
+            assertEquals(25, reader.getRecordCount());
+            assertTrue(reader.getEndpoints().isEmpty());
+            assertEquals("endpoint-" + id, reader.endpointName(id));
+            assertEquals(25, reader.report().totalRequests);
+        } finally {
+            journal.close();
+        }
+        // Reopening truncates the previous run
+        SampleJournal.open(path, MAX_BYTES).close();
+        assertEquals(0, SampleJournalReader.open(path).report().totalRequests);
+    }
+
+    @Test
+    public void closeWaitsForAppendsInFlight() throws Exception {
+        String path = new File(tmp.getRoot(), "busy.journal").getPath();
+        SampleJournal journal = SampleJournal.open(path, MAX_BYTES);
+        int id = journal.endpointId("GET /current.json");
+        int threads = 4;
+        AtomicLong accepted = new AtomicLong();
+        CountDownLatch started = new CountDownLatch(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                started.countDown();
+                long end = 1_700_000_000_000L;
+                // Writers keep going after close, as abandoned executor tasks would
+                for (int i = 0; i < 200_000; i++) {
+                    if (journal.append(end++, 100, 100, 200, false, id, 0)) accepted.incrementAndGet();
+                }
+                done.countDown();
+            }).start();
+        }
+        started.await();
+        Thread.sleep(5);
+        journal.close();
+        long atClose = SampleJournalReader.open(path).getRecordCount();
+        done.await();
+
+        // Every accepted append finished before the count was written and the file trimmed
+        assertEquals(accepted.get(), atClose);
+        assertEquals(SampleJournal.HEADER_SIZE + atClose * SampleJournal.RECORD_SIZE, new File(path).length());
+        long[] visited = new long[1];
+        SampleJournalReader.open(path).forEach((end, s, r, status, scheduled, e, bytes) -> {
+            if (end != 0) visited[0]++;
+        });
+        assertEquals(atClose, visited[0]);
+    }
+}
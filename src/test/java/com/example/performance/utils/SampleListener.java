@@ -0,0 +1,20 @@
+package com.example.performance.utils;
+
+/**
+ * Callback for every sample recorded by a {@link PerformanceMetricsCollector} or
+ * {@link MetricsRegistry}, used to mirror samples into other metrics systems.
+ *
+ * Invoked synchronously on the load thread that recorded the sample, so implementations must be
+ * thread-safe and cheap. Latencies are in MICROSECONDS.
+ */
+@FunctionalInterface
+public interface SampleListener {
+
+    /**
+     * @param endpoint       collector name, or "METHOD endpoint" for registry samples
+     * @param responseMicros time from the scheduled start; equals serviceMicros for unscheduled samples
+     * @param scheduled      whether the sample came from a load schedule (recordScheduled / timedFrom)
+     */
+    void onSample(String endpoint, int httpStatus, long serviceMicros, long responseMicros,
+                  long responseBytes, boolean scheduled);
+}
@@ -0,0 +1,75 @@
+package com.example.performance.utils;
+
+/**
+ * Striped latency recorder
+ *
+ * Spreads recording over a fixed set of {@link LatencyHistogram} stripes chosen by the
+ * recording thread's id, so load threads rarely touch the same counters. Reading merges
+ * the stripes into a fresh histogram without taking any lock; writers are never blocked.
+ *
+ * Stripes are bounded (not one per thread) so memory stays fixed even with thousands of
+ * short-lived or virtual threads.
+ */
+public class StripedLatencyRecorder {
+
+    private final LatencyHistogram[] stripes;
+    private final int mask;
+
+    public StripedLatencyRecorder(long highestTrackableValue, int significantDigits) {
+        this(highestTrackableValue, significantDigits, defaultStripeCount());
+    }
+
+    public StripedLatencyRecorder(long highestTrackableValue, int significantDigits, int stripeCount) {
+        int n = 1;
+        while (n < stripeCount) n <<= 1; // power of two so the index is a mask
+        this.stripes = new LatencyHistogram[n];
+        for (int i = 0; i < n; i++) {
+            stripes[i] = new LatencyHistogram(highestTrackableValue, significantDigits);
+        }
+        this.mask = n - 1;
+    }
+
+    /** Four stripes per core, capped at 64. */
+    static int defaultStripeCount() {
+        return Math.min(64, Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    public void record(long value) {
+        stripes[stripeIndex()].record(value);
+    }
+
+    /** Lock-free merge of all stripes into a new histogram. */
+    public LatencyHistogram snapshot() {
+        LatencyHistogram merged = stripes[0].emptyCopy();
+        for (LatencyHistogram stripe : stripes) {
+            merged.add(stripe);
+        }
+        return merged;
+    }
+
+    /**
+     * Adds the counts at or below each bound across all stripes without merging them into a new
+     * histogram; see {@link LatencyHistogram#addCountsAtOrBelow(long[], long[])}.
+     */
+    public void addCountsAtOrBelow(long[] bounds, long[] into) {
+        for (LatencyHistogram stripe : stripes) {
+            stripe.addCountsAtOrBelow(bounds, into);
+        }
+    }
+
+    public long getSum() {
+        long sum = 0;
+        for (LatencyHistogram stripe : stripes) {
+            sum += stripe.getSum();
+        }
+        return sum;
+    }
+
+    public int getStripeCount() { return stripes.length; }
+
+    private int stripeIndex() {
+        long id = Thread.currentThread().threadId();
+        // Fibonacci hashing spreads sequential thread ids across stripes
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+    }
+}
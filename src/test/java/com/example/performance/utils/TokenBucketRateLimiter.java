@@ -0,0 +1,136 @@
+package com.example.performance.utils;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Token Bucket Rate Limiter
+ *
+ * Caps permits at {@code permitsPerSecond} with bursts of up to {@code burst}, e.g. to run right
+ * up to an API quota without exceeding it. Refill is continuous at nanosecond resolution rather
+ * than in sleep-sized steps, so over any window the count never exceeds
+ * {@code burst + rate * window}.
+ *
+ * The bucket is kept as a single {@link AtomicLong}: the time at which it would be full again (the
+ * "theoretical arrival time" of the generic cell rate algorithm, equivalent to a token bucket).
+ * Taking a permit advances that time by one emission interval with a CAS, so there are no locks
+ * and no separate refill task. The interval is rounded up to whole nanoseconds, which errs on the
+ * side of staying under the limit.
+ *
+ * {@link #acquire()} reserves the next free slot and then waits for it, parking until shortly
+ * before and spinning for the rest like {@link ArrivalRateScheduler}. Waiting callers are therefore
+ * served in reservation order and never wake up only to find the permit taken.
+ */
+public final class TokenBucketRateLimiter {
+
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final double permitsPerSecond;
+    private final int burst;
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    /**
+     * Time (System.nanoTime()) at which the bucket is full again; not after now when it is full.
+     * A permit is available while it is at most {@code toleranceNanos} ahead of now.
+     */
+    private final AtomicLong fullAt;
+
+    private final LongAdder granted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder waitedNanos = new LongAdder();
+
+    /**
+     * @param permitsPerSecond sustained rate
+     * @param burst            permits available at once when the bucket is full (at least 1)
+     */
+    public TokenBucketRateLimiter(double permitsPerSecond, int burst) {
+        if (!(permitsPerSecond > 0) || Double.isInfinite(permitsPerSecond)) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive: " + permitsPerSecond);
+        }
+        if (burst < 1) throw new IllegalArgumentException("burst must be at least 1: " + burst);
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.intervalNanos = Math.max(1, (long) Math.ceil(1_000_000_000.0 / permitsPerSecond));
+        this.toleranceNanos = intervalNanos * (burst - 1);
+        // Starts full
+        this.fullAt = new AtomicLong(System.nanoTime());
+    }
+
+    /** No bursting: permits are spaced evenly at the rate. */
+    public TokenBucketRateLimiter(double permitsPerSecond) {
+        this(permitsPerSecond, 1);
+    }
+
+    /** Takes a permit if one is available now; never waits. */
+    public boolean tryAcquire() {
+        while (true) {
+            long now = System.nanoTime();
+            long current = fullAt.get();
+            long base = current - now > 0 ? current : now;
+            if (base - now > toleranceNanos) {
+                rejected.increment();
+                return false;
+            }
+            if (fullAt.compareAndSet(current, base + intervalNanos)) {
+                granted.increment();
+                return true;
+            }
+        }
+    }
+
+    /** Takes the next permit, waiting as long as needed. */
+    public void acquire() throws InterruptedException {
+        long readyAt = reserve();
+        long wait = readyAt - System.nanoTime();
+        if (wait <= 0) return;
+        waitedNanos.add(wait);
+        while (true) {
+            long remaining = readyAt - System.nanoTime();
+            if (remaining <= 0) return;
+            if (Thread.interrupted()) throw new InterruptedException();
+            if (remaining > SPIN_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    /**
+     * Reserves the next permit and returns the System.nanoTime() from which it may be used, which
+     * is in the past if a permit was available.
+     */
+    public long reserve() {
+        while (true) {
+            long now = System.nanoTime();
+            long current = fullAt.get();
+            long base = current - now > 0 ? current : now;
+            if (fullAt.compareAndSet(current, base + intervalNanos)) {
+                granted.increment();
+                return base - toleranceNanos;
+            }
+        }
+    }
+
+    public double getPermitsPerSecond() { return permitsPerSecond; }
+
+    public int getBurst() { return burst; }
+
+    /** Permits handed out by any method. */
+    public long getGranted() { return granted.sum(); }
+
+    /** {@link #tryAcquire()} calls that found no permit. */
+    public long getRejected() { return rejected.sum(); }
+
+    /** Total time callers of {@link #acquire()} were asked to wait. */
+    public long getWaitedNanos() { return waitedNanos.sum(); }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%.3f/s burst %d: %d granted, %d rejected, waited %.1f ms",
+                permitsPerSecond, burst, getGranted(), getRejected(), getWaitedNanos() / 1e6);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.performance.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TokenBucketRateLimiterTest {
+
+    @Test
+    public void startsFullAndAllowsOneBurst() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 5);
+        for (int i = 0; i < 5; i++) {
+            assertTrue("permit " + i, limiter.tryAcquire());
+        }
+        assertFalse(limiter.tryAcquire());
+        assertEquals(5, limiter.getGranted());
+        assertEquals(1, limiter.getRejected());
+    }
+
+    @Test
+    public void concurrentAcquiresNeverExceedTheRate() throws InterruptedException {
+        double rate = 200;
+        int burst = 10;
+        int threads = 8;
+        int perThread = 40;
+        long created = System.nanoTime();
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(rate, burst);
+
+        long[] grantedAt = new long[threads * perThread];
+        AtomicInteger next = new AtomicInteger();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    try {
+                        limiter.acquire();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    grantedAt[next.getAndIncrement()] = System.nanoTime();
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread w : workers) w.join();
+
+        // The n-th permit (0-based) can be used no earlier than (n - burst + 1) intervals after creation
+        Arrays.sort(grantedAt);
+        long interval = (long) Math.ceil(1e9 / rate);
+        for (int n = burst; n < grantedAt.length; n++) {
+            assertTrue("permit " + n + " too early", grantedAt[n] - created >= (n - burst + 1) * interval);
+        }
+        // ...and the limiter does not hold callers back far beyond that. Only a loose ceiling: how
+        // late a thread wakes after its permit is up to the host, not the limiter
+        long expectedNanos = (grantedAt.length - burst) * interval;
+        assertTrue("took " + (grantedAt[grantedAt.length - 1] - created) / 1e6 + " ms",
+                grantedAt[grantedAt.length - 1] - created < 2 * expectedNanos + TimeUnit.SECONDS.toNanos(10));
+        assertEquals(grantedAt.length, limiter.getGranted());
+    }
+
+    @Test
+    public void parsesGlobalAndPerEndpointLimits() throws InterruptedException {
+        RateLimits limits = RateLimits.parse("10", 3, "/current.json=6, /forecast.json=0.5");
+        assertTrue(limits.isEnabled());
+        assertEquals(10, limits.getOverall().getPermitsPerSecond(), 0);
+        assertEquals(3, limits.getOverall().getBurst());
+        assertEquals(0.5, limits.getEndpoints().get("/forecast.json").getPermitsPerSecond(), 0);
+
+        limits.acquire("/current.json");
+        limits.acquire("/astronomy.json");
+        assertEquals(1, limits.getEndpoints().get("/current.json").getGranted());
+        assertEquals(2, limits.getOverall().getGranted());
+
+        RateLimits none = RateLimits.parse(null, 1, " ");
+        assertFalse(none.isEnabled());
+        assertNull(none.getOverall());
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.performance.utils;
+
+import com.example.performance.config.PerformanceConfig;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Warm-up Phase
+ *
+ * Runs the workload before the measured phase so class loading, connection and TLS setup, and
+ * JIT compilation of RestAssured/Groovy do not end up in the measured percentiles. The phase is
+ * bounded by an iteration count or a duration, and its samples go to a separate collector that
+ * can be inspected but is never part of the test report.
+ *
+ * Optionally it then keeps going until latency has stabilized: requests are grouped into windows
+ * of {@code windowRequests}, and the phase ends once the medians of the last
+ * {@link #STABLE_WINDOWS} windows are within {@code tolerancePercent} of each other, or when
+ * {@code maxExtra} runs out (reported as not stabilized).
+ *
+ * Usage:
+ * <pre>
+ *   WarmupPhase.Result warmup = WarmupPhase.iterations(20).concurrency(5).untilStable(15, 20, 30, TimeUnit.SECONDS)
+ *           .run("Weather API", metrics -> metrics.timed(() -> given()...get("/current.json")));
+ *   warmup.print();
+ * </pre>
+ */
+public final class WarmupPhase {
+
+    /** Consecutive windows whose medians must agree before latency counts as stable. */
+    public static final int STABLE_WINDOWS = 3;
+
+    /** What the warm-up did. */
+    public static final class Result {
+        public final PerformanceMetricsCollector metrics;
+        public final long iterations;
+        public final long failures;
+        public final long durationNanos;
+        /** True if stabilization was requested and reached; false if not requested or it timed out */
+        public final boolean stabilized;
+        /** Median latency of each completed window, in ms */
+        public final List<Double> windowMedians;
+
+        Result(PerformanceMetricsCollector metrics, long iterations, long failures, long durationNanos,
+               boolean stabilized, List<Double> windowMedians) {
+            this.metrics = metrics;
+            this.iterations = iterations;
+            this.failures = failures;
+            this.durationNanos = durationNanos;
+            this.stabilized = stabilized;
+            this.windowMedians = Collections.unmodifiableList(windowMedians);
+        }
+
+        public void print() {
+            PerformanceMetricsCollector.PerformanceReport r = metrics.getReport();
+            System.out.printf(Locale.ROOT,
+                    "Warm-up: %d iterations (%d failed) in %.2f s, p50 %.3f ms, p99 %.3f ms%s%n",
+                    iterations, failures, durationNanos / 1e9, r.medianResponseTime, r.p99ResponseTime,
+                    windowMedians.isEmpty() ? "" : (stabilized ? ", stabilized" : ", NOT stabilized"));
+            if (!windowMedians.isEmpty()) {
+                StringBuilder sb = new StringBuilder("  window medians (ms):");
+                for (double m : windowMedians) sb.append(String.format(Locale.ROOT, " %.2f", m));
+                System.out.println(sb);
+            }
+        }
+    }
+
+    private final long iterations;
+    private final long durationNanos;
+    private int concurrency = 1;
+    private Executor executor;
+    private double tolerancePercent = -1;
+    private int windowRequests;
+    private long maxExtraNanos;
+
+    private WarmupPhase(long iterations, long durationNanos) {
+        this.iterations = iterations;
+        this.durationNanos = durationNanos;
+    }
+
+    /** Ends after {@code count} requests in total (across all loops); 0 skips the warm-up. */
+    public static WarmupPhase iterations(long count) {
+        if (count < 0) throw new IllegalArgumentException("iterations must not be negative: " + count);
+        return new WarmupPhase(count, -1);
+    }
+
+    /** Ends after {@code duration}; 0 skips the warm-up. */
+    public static WarmupPhase duration(long duration, TimeUnit unit) {
+        if (duration < 0) throw new IllegalArgumentException("duration must not be negative: " + duration);
+        return new WarmupPhase(-1, unit.toNanos(duration));
+    }
+
+    /**
+     * perf.warmup.seconds if above 0, otherwise perf.warmup.iterations (0 skips the warm-up); with
+     * perf.warmup.stabilize it also waits for stable latency (20% tolerance, windows of 10
+     * requests, up to 30 s more).
+     */
+    public static WarmupPhase fromConfig() {
+        WarmupPhase phase = PerformanceConfig.WARMUP_SECONDS > 0
+                ? duration(PerformanceConfig.WARMUP_SECONDS, TimeUnit.SECONDS)
+                : iterations(Math.max(0, PerformanceConfig.WARMUP_ITERATIONS));
+        return PerformanceConfig.WARMUP_STABILIZE ? phase.untilStable(20, 10, 30, TimeUnit.SECONDS) : phase;
+    }
+
+    /** Parallel request loops; defaults to 1. */
+    public WarmupPhase concurrency(int concurrency) {
+        if (concurrency < 1) throw new IllegalArgumentException("concurrency must be positive: " + concurrency);
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /** Runs the loops on {@code executor}, e.g. the measured phase's pool so its threads warm up too. */
+    public WarmupPhase executor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * After the base budget, continue until the window medians settle.
+     *
+     * @param tolerancePercent largest spread of the last window medians, relative to the smallest
+     * @param windowRequests   requests per window
+     * @param maxExtra         longest extension beyond the base budget
+     */
+    public WarmupPhase untilStable(double tolerancePercent, int windowRequests, long maxExtra, TimeUnit unit) {
+        if (tolerancePercent < 0) throw new IllegalArgumentException("tolerancePercent must not be negative");
+        if (windowRequests < 1) throw new IllegalArgumentException("windowRequests must be positive");
+        this.tolerancePercent = tolerancePercent;
+        this.windowRequests = windowRequests;
+        this.maxExtraNanos = unit.toNanos(maxExtra);
+        return this;
+    }
+
+    /**
+     * Runs the warm-up and blocks until it is over. {@code request} performs one iteration and
+     * records it into the collector it is given (a fresh one named "{@code name} (warm-up)").
+     * Exceptions from a request are counted as failures and do not stop the warm-up.
+     */
+    public Result run(String name, Consumer<PerformanceMetricsCollector> request) throws InterruptedException {
+        PerformanceMetricsCollector metrics = PerformanceMetricsCollector.histogram(name + " (warm-up)", 2);
+        if (iterations == 0 || durationNanos == 0) {
+            return new Result(metrics, 0, 0, 0, false, new ArrayList<>());
+        }
+        boolean stabilize = tolerancePercent >= 0;
+        long start = System.nanoTime();
+        long baseEnd = durationNanos > 0 ? start + durationNanos : Long.MAX_VALUE;
+
+        AtomicLong issued = new AtomicLong();
+        LongAdder executed = new LongAdder();
+        LongAdder failures = new LongAdder();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicBoolean stable = new AtomicBoolean();
+        AtomicReference<Long> extendedUntil = new AtomicReference<>();
+        AtomicReference<LatencyHistogram> window = new AtomicReference<>(newWindow());
+        LongAdder windowCount = new LongAdder();
+        List<Double> medians = Collections.synchronizedList(new ArrayList<>());
+
+        Runnable loop = () -> {
+            while (!done.get()) {
+                long now = System.nanoTime();
+                boolean baseDone = iterations > 0 ? issued.getAndIncrement() >= iterations : now - baseEnd >= 0;
+                if (baseDone) {
+                    if (!stabilize || stable.get()) break;
+                    Long limit = extendedUntil.updateAndGet(v -> v != null ? v : System.nanoTime() + maxExtraNanos);
+                    if (now - limit >= 0) break;
+                }
+                executed.increment();
+                long t0 = System.nanoTime();
+                try {
+                    request.accept(metrics);
+                } catch (RuntimeException e) {
+                    failures.increment();
+                }
+                LatencyHistogram w = window.get();
+                w.record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - t0));
+                if (stabilize) {
+                    windowCount.increment();
+                    if (windowCount.sum() >= windowRequests && window.compareAndSet(w, newWindow())) {
+                        windowCount.reset();
+                        medians.add(w.getValueAtPercentile(50) / 1000.0);
+                        if (isStable(medians)) stable.set(true);
+                    }
+                }
+            }
+            done.set(true);
+        };
+
+        CountDownLatch finished = new CountDownLatch(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            Runnable task = () -> {
+                try {
+                    loop.run();
+                } finally {
+                    finished.countDown();
+                }
+            };
+            if (executor != null) executor.execute(task); else Thread.ofVirtual().name("warmup-", i).start(task);
+        }
+        finished.await();
+
+        List<Double> windowMedians;
+        synchronized (medians) {
+            windowMedians = new ArrayList<>(medians);
+        }
+        return new Result(metrics, executed.sum(), failures.sum(), System.nanoTime() - start,
+                stabilize && stable.get(), windowMedians);
+    }
+
+    private boolean isStable(List<Double> medians) {
+        synchronized (medians) {
+            int n = medians.size();
+            if (n < STABLE_WINDOWS) return false;
+            double min = Double.MAX_VALUE, max = 0;
+            for (double m : medians.subList(n - STABLE_WINDOWS, n)) {
+                min = Math.min(min, m);
+                max = Math.max(max, m);
+            }
+            return max <= min * (1 + tolerancePercent / 100.0);
+        }
+    }
+
+    private static LatencyHistogram newWindow() {
+        // micros, up to an hour
+        return new LatencyHistogram(TimeUnit.HOURS.toMicros(1), 2);
+    }
+}
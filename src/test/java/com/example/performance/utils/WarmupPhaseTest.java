@@ -0,0 +1,71 @@
+package com.example.performance.utils;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WarmupPhaseTest {
+
+    private static void sleepMillis(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void runsExactlyTheIterationBudgetIntoItsOwnCollector() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        WarmupPhase.Result result = WarmupPhase.iterations(25).concurrency(4).run("test", metrics -> {
+            if (calls.incrementAndGet() % 5 == 0) throw new IllegalStateException("boom");
+            metrics.recordDurationMicros(1000, 200);
+        });
+
+        assertEquals(25, calls.get());
+        assertEquals(25, result.iterations);
+        assertEquals(5, result.failures);
+        assertEquals(20, result.metrics.getReport().totalRequests);
+        assertEquals("test (warm-up)", result.metrics.getReport().name);
+        assertTrue(result.windowMedians.isEmpty());
+        assertFalse(result.stabilized);
+
+        assertEquals(0, WarmupPhase.iterations(0).run("none", metrics -> {
+            throw new AssertionError("must not run");
+        }).iterations);
+    }
+
+    @Test
+    public void extendsUntilLatencySettles() throws InterruptedException {
+        // Slow at first and twice as fast every 5 calls, like a JVM warming up, then steady at 8 ms
+        // from call 20. Halving steps keep consecutive windows apart even when a busy host adds
+        // tens of milliseconds to every call
+        AtomicInteger calls = new AtomicInteger();
+        WarmupPhase.Result result = WarmupPhase.iterations(5)
+                .untilStable(50, 5, 30, TimeUnit.SECONDS)
+                .run("settling", metrics -> sleepMillis(Math.max(8, 128 >> (calls.incrementAndGet() / 5))));
+
+        assertTrue(result.stabilized);
+        assertTrue("iterations " + result.iterations + " " + result.windowMedians, result.iterations >= 30);
+        List<Double> medians = result.windowMedians;
+        assertTrue(medians.get(0) > 2 * medians.get(medians.size() - 1));
+    }
+
+    @Test
+    public void givesUpWhenLatencyKeepsDrifting() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        WarmupPhase.Result result = WarmupPhase.iterations(5)
+                .untilStable(10, 5, 400, TimeUnit.MILLISECONDS)
+                .run("drifting", metrics -> sleepMillis(1 + calls.incrementAndGet() / 2));
+
+        assertFalse(result.stabilized);
+        // Gave up after the 400 ms extension instead of running on; generous for a loaded host
+        assertTrue(result.durationNanos < TimeUnit.SECONDS.toNanos(30));
+    }
+}
@@ -0,0 +1,243 @@
+package com.example.performance.utils;
+
+import io.restassured.response.Response;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+/**
+ * Workload Mix
+ *
+ * Weighted set of request templates, sampled once per iteration, so a run follows a traffic ratio
+ * such as 70% current weather / 30% forecast interleaved over time rather than as sequential blocks.
+ * Picks use Vose's alias method: building the table is O(n) and each pick is O(1) (one uniform
+ * column plus one biased coin), however many templates there are.
+ *
+ * {@link #execute(long)} picks a template and records the call into a {@link MetricsRegistry}
+ * under its endpoint and a {@code template} label, so reports come out per template. It takes the
+ * intended start, so it plugs straight into the scheduler:
+ * <pre>
+ *   WorkloadMix mix = new WorkloadMix(metrics)
+ *           .add("current", 70, "GET", "/current.json", () -> ...)
+ *           .add("forecast", 30, "GET", "/forecast.json", () -> ...);
+ *   new ArrivalRateScheduler(20).run(5, 30, TimeUnit.SECONDS, mix::execute);
+ * </pre>
+ * Templates are added before the run; picking and executing are thread-safe.
+ *
+ * Picks are random per thread by default. For a repeatable sequence, either call {@link #seeded}
+ * so the k-th pick depends only on the run seed and k, or pass each virtual user's own stream to
+ * {@link #execute(long, SplittableRandom)} (see {@link RandomStreams}). A template added with a
+ * {@link LongFunction} receives k, so it can draw its test data for k as well, e.g. with
+ * {@link RandomStreams#pick(long, long, Object[])}, and a seeded run repeats both.
+ */
+public class WorkloadMix {
+
+    /** One weighted kind of request. */
+    public static final class Template {
+        public final String name;
+        public final double weight;
+        public final String method;
+        public final String endpoint;
+        private final Map<String, String> labels;
+        private final LongFunction<Response> call;
+        private final LongAdder picks = new LongAdder();
+
+        Template(String name, double weight, String method, String endpoint, LongFunction<Response> call) {
+            this.name = name;
+            this.weight = weight;
+            this.method = method;
+            this.endpoint = endpoint;
+            this.labels = Map.of("template", name);
+            this.call = call;
+        }
+
+        /** Number of times this template has been picked. */
+        public long getPicks() { return picks.sum(); }
+    }
+
+    private final MetricsRegistry metrics;
+    private final List<Template> templates = new ArrayList<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile AliasTable table;
+    private volatile boolean seeded;
+    private volatile long pickSeed;
+
+    public WorkloadMix(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    /** Adds a template; weights are relative and need not sum to 100. */
+    public WorkloadMix add(String name, double weight, String method, String endpoint, Supplier<Response> call) {
+        return add(name, weight, method, endpoint, k -> call.get());
+    }
+
+    /** Adds a template whose call receives the sequence number k of the pick that chose it. */
+    public WorkloadMix add(String name, double weight, String method, String endpoint, LongFunction<Response> call) {
+        if (!(weight > 0) || Double.isInfinite(weight)) {
+            throw new IllegalArgumentException("Weight must be positive: " + name + "=" + weight);
+        }
+        for (Template t : templates) {
+            if (t.name.equals(name)) throw new IllegalArgumentException("Duplicate template: " + name);
+        }
+        templates.add(new Template(name, weight, method, endpoint, call));
+        table = null;
+        return this;
+    }
+
+    public List<Template> getTemplates() {
+        return Collections.unmodifiableList(templates);
+    }
+
+    public MetricsRegistry getMetrics() { return metrics; }
+
+    /**
+     * Derives the k-th pick of {@link #execute(long)} from {@code streams} instead of per-thread
+     * randomness. Picks come from the stream's dedicated "mix" seed, so they are independent of the
+     * virtual users' own streams ({@link RandomStreams#forUser}) even though both are numbered from 0.
+     */
+    public WorkloadMix seeded(RandomStreams streams) {
+        this.pickSeed = streams.seedFor("mix");
+        this.seeded = true;
+        return this;
+    }
+
+    /** Picks a template according to the weights. */
+    public Template next() {
+        return next(sequence.getAndIncrement());
+    }
+
+    private Template next(long k) {
+        AliasTable t = table();
+        if (seeded) {
+            // Counter-based: hash (seed, k) into a column and a coin without allocating a generator
+            long column = RandomStreams.draw(pickSeed, k);
+            long coin = RandomStreams.mix(column);
+            return templates.get(t.pick((int) (((column >>> 32) * t.size()) >>> 32), (coin >>> 11) * 0x1.0p-53));
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return templates.get(t.pick(random.nextInt(t.size()), random.nextDouble()));
+    }
+
+    /** Picks a template using the caller's generator, e.g. a virtual user's own stream. */
+    public Template next(SplittableRandom random) {
+        AliasTable t = table();
+        return templates.get(t.pick(random.nextInt(t.size()), random.nextDouble()));
+    }
+
+    /**
+     * Picks a template and runs it, recording into the registry with response time measured from
+     * {@code intendedStartNanos} (System.nanoTime()). A call that throws is recorded as status 0.
+     */
+    public void execute(long intendedStartNanos) {
+        long k = sequence.getAndIncrement();
+        run(next(k), k, intendedStartNanos);
+    }
+
+    /** Like {@link #execute(long)}, picking with the caller's generator. */
+    public void execute(long intendedStartNanos, SplittableRandom random) {
+        run(next(random), sequence.getAndIncrement(), intendedStartNanos);
+    }
+
+    private void run(Template template, long k, long intendedStartNanos) {
+        template.picks.increment();
+        metrics.incrementActiveRequests();
+        long start = System.nanoTime();
+        try {
+            Response response = template.call.apply(k);
+            long end = System.nanoTime();
+            metrics.record(template.method, template.endpoint, template.labels, response.getStatusCode(),
+                    TimeUnit.NANOSECONDS.toMicros(end - start), TimeUnit.NANOSECONDS.toMicros(end - intendedStartNanos),
+                    PerformanceMetricsCollector.bodySize(response), true);
+        } catch (RuntimeException e) {
+            long end = System.nanoTime();
+            metrics.record(template.method, template.endpoint, template.labels, 0,
+                    TimeUnit.NANOSECONDS.toMicros(end - start), TimeUnit.NANOSECONDS.toMicros(end - intendedStartNanos),
+                    0, true);
+        } finally {
+            metrics.decrementActiveRequests();
+        }
+    }
+
+    /** Configured share against the share actually picked so far, per template. */
+    public void printMix() {
+        double totalWeight = 0;
+        long totalPicks = 0;
+        for (Template t : templates) {
+            totalWeight += t.weight;
+            totalPicks += t.getPicks();
+        }
+        System.out.println("Workload mix:");
+        System.out.printf(Locale.ROOT, "  %-20s %8s %8s %10s%n", "template", "weight %", "actual %", "picks");
+        for (Template t : templates) {
+            System.out.printf(Locale.ROOT, "  %-20s %8.2f %8.2f %10d%n", t.name, 100.0 * t.weight / totalWeight,
+                    totalPicks == 0 ? 0.0 : 100.0 * t.getPicks() / totalPicks, t.getPicks());
+        }
+    }
+
+    private AliasTable table() {
+        AliasTable t = table;
+        if (t == null) {
+            if (templates.isEmpty()) throw new IllegalStateException("No templates in the workload mix");
+            double[] weights = new double[templates.size()];
+            for (int i = 0; i < weights.length; i++) weights[i] = templates.get(i).weight;
+            t = new AliasTable(weights);
+            table = t;
+        }
+        return t;
+    }
+
+    /**
+     * Vose's alias table. Column i keeps index i with probability {@code probability[i]} and
+     * otherwise yields {@code alias[i]}; choosing the column uniformly gives the weighted draw.
+     */
+    static final class AliasTable {
+        private final double[] probability;
+        private final int[] alias;
+
+        AliasTable(double[] weights) {
+            int n = weights.length;
+            probability = new double[n];
+            alias = new int[n];
+            double sum = 0;
+            for (double w : weights) sum += w;
+
+            double[] scaled = new double[n];
+            Deque<Integer> small = new ArrayDeque<>();
+            Deque<Integer> large = new ArrayDeque<>();
+            for (int i = 0; i < n; i++) {
+                scaled[i] = weights[i] * n / sum;
+                (scaled[i] < 1.0 ? small : large).push(i);
+            }
+            while (!small.isEmpty() && !large.isEmpty()) {
+                int s = small.pop();
+                int l = large.pop();
+                probability[s] = scaled[s];
+                alias[s] = l;
+                scaled[l] = scaled[l] + scaled[s] - 1.0;
+                (scaled[l] < 1.0 ? small : large).push(l);
+            }
+            // Whatever is left is 1 up to rounding error
+            while (!large.isEmpty()) probability[large.pop()] = 1.0;
+            while (!small.isEmpty()) probability[small.pop()] = 1.0;
+        }
+
+        int size() { return probability.length; }
+
+        /** {@code column} uniform in [0, size), {@code coin} uniform in [0, 1). */
+        int pick(int column, double coin) {
+            return coin < probability[column] ? column : alias[column];
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.performance.utils;
+
+import io.restassured.builder.ResponseBuilder;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WorkloadMixTest {
+
+    @Test
+    public void aliasTableReproducesTheWeightsExactly() {
+        double[] weights = {70, 20, 7, 3};
+        WorkloadMix.AliasTable table = new WorkloadMix.AliasTable(weights);
+
+        // Sweep every column over an even grid of coins: each index must get exactly its share
+        int coins = 1000;
+        int[] hits = new int[weights.length];
+        for (int column = 0; column < table.size(); column++) {
+            for (int c = 0; c < coins; c++) {
+                hits[table.pick(column, (c + 0.5) / coins)]++;
+            }
+        }
+        int total = table.size() * coins;
+        for (int i = 0; i < weights.length; i++) {
+            assertEquals("index " + i, weights[i] / 100.0, hits[i] / (double) total, 1.0 / coins);
+        }
+    }
+
+    @Test
+    public void executeRecordsEachPickUnderItsTemplate() {
+        MetricsRegistry metrics = new MetricsRegistry("mix");
+        WorkloadMix mix = new WorkloadMix(metrics)
+                .add("current", 70, "GET", "/current.json", () -> new ResponseBuilder().setStatusCode(200).setBody("{}").build())
+                .add("forecast", 30, "GET", "/forecast.json", () -> {
+                    throw new IllegalStateException("connection refused");
+                });
+
+        for (int i = 0; i < 10_000; i++) {
+            mix.execute(System.nanoTime());
+        }
+
+        long current = mix.getTemplates().get(0).getPicks();
+        long forecast = mix.getTemplates().get(1).getPicks();
+        assertEquals(10_000, current + forecast);
+        assertTrue("current picked " + current, Math.abs(current - 7000) < 300);
+
+        Map<String, PerformanceMetricsCollector.PerformanceReport> byTemplate =
+                metrics.rollUp(k -> k.label("template"));
+        assertEquals(0, byTemplate.get("current").errorCount);
+        assertEquals(forecast, byTemplate.get("forecast").errorCount);
+        assertEquals(current + forecast, metrics.getTotalReport().totalRequests);
+        assertEquals(0, metrics.getActiveRequests());
+    }
+
+    @Test
+    public void seededMixRepeatsThePickSequence() {
+        List<String> first = new ArrayList<>();
+        List<String> second = new ArrayList<>();
+        for (List<String> picks : List.of(first, second)) {
+            WorkloadMix mix = new WorkloadMix(new MetricsRegistry("seeded"))
+                    .add("a", 5, "GET", "/a", () -> null)
+                    .add("b", 3, "GET", "/b", () -> null)
+                    .add("c", 2, "GET", "/c", () -> null)
+                    .seeded(new RandomStreams(99));
+            for (int i = 0; i < 200; i++) picks.add(mix.next().name);
+        }
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void seededPicksFollowTheWeightsIndependentlyOfUserStreams() {
+        RandomStreams streams = new RandomStreams(7);
+        WorkloadMix mix = new WorkloadMix(new MetricsRegistry("weights"))
+                .add("a", 70, "GET", "/a", () -> null)
+                .add("b", 30, "GET", "/b", () -> null)
+                .seeded(streams);
+        WorkloadMix byUser = new WorkloadMix(new MetricsRegistry("by-user"))
+                .add("a", 70, "GET", "/a", () -> null)
+                .add("b", 30, "GET", "/b", () -> null);
+
+        int a = 0, sameAsUser = 0;
+        int n = 100_000;
+        for (int k = 0; k < n; k++) {
+            String pick = mix.next().name;
+            if (pick.equals("a")) a++;
+            // What the k-th pick would be if it shared user k's stream
+            if (pick.equals(byUser.next(streams.forUser(k)).name)) sameAsUser++;
+        }
+        assertEquals(0.7, a / (double) n, 0.01);
+        // Independent picks agree 0.7^2 + 0.3^2 = 58% of the time, not always
+        assertEquals(0.58, sameAsUser / (double) n, 0.01);
+    }
+
+    @Test
+    public void seededRunsRepeatEachRequestWithItsDataAcrossThreads() throws InterruptedException {
+        String[] cities = {"London", "Tokyo", "Paris"};
+        List<Map<Long, String>> runs = new ArrayList<>();
+        for (int run = 0; run < 2; run++) {
+            RandomStreams streams = new RandomStreams(42);
+            long citySeed = streams.seedFor("city");
+            Map<Long, String> requests = new ConcurrentSkipListMap<>();
+            WorkloadMix mix = new WorkloadMix(new MetricsRegistry("data"))
+                    .seeded(streams)
+                    .add("current", 70, "GET", "/current.json", k -> {
+                        requests.put(k, "current " + RandomStreams.pick(citySeed, k, cities));
+                        return new ResponseBuilder().setStatusCode(200).setBody("{}").build();
+                    })
+                    .add("forecast", 30, "GET", "/forecast.json", k -> {
+                        requests.put(k, "forecast " + RandomStreams.pick(citySeed, k, cities));
+                        return new ResponseBuilder().setStatusCode(200).setBody("{}").build();
+                    });
+            ExecutorService pool = Executors.newFixedThreadPool(4);
+            for (int i = 0; i < 2_000; i++) pool.execute(() -> mix.execute(System.nanoTime()));
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+            runs.add(requests);
+        }
+        assertEquals(2_000, runs.get(0).size());
+        assertEquals(runs.get(0), runs.get(1));
+    }
+}
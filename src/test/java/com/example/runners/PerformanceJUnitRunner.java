@@ -14,6 +14,27 @@ import org.junit.runners.Suite;
 @RunWith(Suite.class)
 @Suite.SuiteClasses({
         com.example.performance.config.PerformanceConfigInitTest.class,
+        com.example.performance.utils.LatencyHistogramTest.class,
+        com.example.performance.utils.RollingTimeWindowsTest.class,
+        com.example.performance.utils.MetricsRegistryTest.class,
+        com.example.performance.utils.MetricsSnapshotTest.class,
+        com.example.performance.utils.SampleJournalTest.class,
+        com.example.performance.utils.RequestRecordedEventTest.class,
+        com.example.performance.utils.LatencyHistogramReservoirTest.class,
+        com.example.performance.utils.DropwizardMetricsBridgeTest.class,
+        com.example.performance.utils.PrometheusMetricsServerTest.class,
+        com.example.performance.utils.ArrivalRateSchedulerTest.class,
+        com.example.performance.utils.AsyncLoadEngineTest.class,
+        com.example.performance.utils.LoadGeneratorTest.class,
+        com.example.performance.utils.LoadProfileTest.class,
+        com.example.performance.utils.CapacityFinderTest.class,
+        com.example.performance.utils.LoadCoordinatorTest.class,
+        com.example.performance.utils.WorkloadMixTest.class,
+        com.example.performance.utils.RandomStreamsTest.class,
+        com.example.performance.utils.TokenBucketRateLimiterTest.class,
+        com.example.performance.utils.WarmupPhaseTest.class,
+        com.example.performance.utils.EnduranceRunnerTest.class,
+        com.example.performance.utils.RequestTemplateTest.class,
         WeatherApiPerformanceTest.class,
         FakeStorePerformanceTest.class
 })
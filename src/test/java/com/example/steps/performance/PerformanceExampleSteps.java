@@ -71,7 +71,7 @@ public class PerformanceExampleSteps {
     public void i_run_the_endurance_test_performance_example() {
         try {
             lastError = null;
-            PerformanceTestingExamples.throughputTest(); // Reuse throughputTest for endurance
+            PerformanceTestingExamples.enduranceTest();
         } catch (Throwable t) {
             lastError = t;
         }
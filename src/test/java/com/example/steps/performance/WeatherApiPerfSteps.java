@@ -2,19 +2,29 @@ package com.example.steps.performance;
 
 import com.example.config.TestConfig;
 import com.example.performance.junit.tests.WeatherApiPerformanceTest;
+import com.example.performance.utils.RateLimits;
 import com.example.util.ConfigurationReader;
 import io.cucumber.java.en.Given;
 import io.cucumber.java.en.Then;
 import io.cucumber.java.en.When;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static io.restassured.RestAssured.given;
 import static org.junit.Assert.assertNull;
 
 public class WeatherApiPerfSteps {
 
+    /** Numbers the runs of this process, so each scenario gets its own journal and snapshot file */
+    private static final AtomicInteger RUNS = new AtomicInteger();
+
     private Throwable lastError;
     private WeatherApiPerformanceTest perf;
 
+    private static String runName(String kind) {
+        return "cucumber-" + kind + "-" + RUNS.incrementAndGet();
+    }
+
 
     @Given("weather api is ready for performance tests")
     public void weatherApiIsReadyForPerformanceTests() {
@@ -27,6 +37,7 @@ public class WeatherApiPerfSteps {
             throw new IllegalStateException("Set WEATHER_API_KEY as env or -D system property");
         }
         given().baseUri(baseUrl)
+                .filter(RateLimits.global().asFilter())
                 .queryParam("key", apiKey)
                 .queryParam("q", "London")
                 .when().get("/current.json")
@@ -40,7 +51,7 @@ public class WeatherApiPerfSteps {
         try {
             lastError = null;
             perf = new WeatherApiPerformanceTest();
-            perf.setUp();
+            perf.setUp(runName("load"));
             perf.testCurrentWeatherEndpointUnderLoad();
         } catch (Throwable t) {
             lastError = t;
@@ -52,7 +63,7 @@ public class WeatherApiPerfSteps {
         try {
             lastError = null;
             perf = new WeatherApiPerformanceTest();
-            perf.setUp();
+            perf.setUp(runName("stress"));
             perf.testForecastEndpointStress();
         } catch (Throwable t) {
             lastError = t;
@@ -64,7 +75,7 @@ public class WeatherApiPerfSteps {
         try {
             lastError = null;
             perf = new WeatherApiPerformanceTest();
-            perf.setUp();
+            perf.setUp(runName("spike"));
             perf.testSpikeLoad();
         } catch (Throwable t) {
             lastError = t;
@@ -76,7 +87,7 @@ public class WeatherApiPerfSteps {
         try {
             lastError = null;
             perf = new WeatherApiPerformanceTest();
-            perf.setUp();
+            perf.setUp(runName("endurance"));
             perf.testEndurance();
         } catch (Throwable t) {
             lastError = t;